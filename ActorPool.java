@@ -0,0 +1,63 @@
+import greenfoot.*;  // Actor
+import java.util.function.Supplier;
+
+/**
+ * Pool simple de actores reutilizables (balas, partículas...).
+ * - acquire() entrega una instancia libre o crea una nueva si no hay.
+ * - release() la devuelve; lo hace AsteroidsWorld al sacarla del mundo,
+ *   así cada actor vuelve al pool exactamente una vez.
+ *
+ * Pensado para un solo hilo (el del mundo dueño del pool).
+ */
+public final class ActorPool<T extends Actor> {
+
+    private final Supplier<T> factory;
+    private Actor[] free;
+    private int freeCount = 0;
+    private int created = 0;     // instancias creadas en total
+    private int inUse = 0;       // entregadas y aún no devueltas
+
+    public ActorPool(Supplier<T> factory, int initialCapacity) {
+        this.factory = factory;
+        this.free = new Actor[Math.max(4, initialCapacity)];
+    }
+
+    /** Crea instancias por adelantado para que el juego no tenga que hacerlo. */
+    public void prefill(int count) {
+        while (created < count) {
+            push(factory.get());
+            created++;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        inUse++;
+        if (freeCount > 0) {
+            T a = (T) free[--freeCount];
+            free[freeCount] = null;
+            return a;
+        }
+        created++;
+        return factory.get();
+    }
+
+    public void release(T a) {
+        inUse--;
+        push(a);
+    }
+
+    private void push(Actor a) {
+        if (freeCount == free.length) {
+            Actor[] grown = new Actor[free.length * 2];
+            System.arraycopy(free, 0, grown, 0, freeCount);
+            free = grown;
+        }
+        free[freeCount++] = a;
+    }
+
+    /* ================== Estadísticas ================== */
+    public int inUse()     { return inUse; }
+    public int created()   { return created; }
+    public int available() { return freeCount; }
+}
@@ -0,0 +1,98 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Arnés de regresión de memoria: corre N frames sin interfaz (AsteroidsWorld.step)
+ * y mide, con los contadores de ThreadMXBean, cuántos bytes reserva cada tick.
+ * - La nave juega con una entrada guionada (buttons): dispara, gira y acelera,
+ *   así que balas, divisiones de rocas y partículas pasan por el tick medido.
+ *   Si la partida termina se reinicia entre dos ticks (el reinicio no se mide).
+ * - Primero calienta WARMUP_FRAMES frames (pools llenos, JIT, caches de Greenfoot).
+ * - Luego mide y falla (IllegalStateException) si el peor tick supera el umbral:
+ *   una reserva grande cada tanto no se esconde en la media.
+ * - El mundo es headless (WorldServices.headless): no toca la partida abierta.
+ *
+ * Uso: clic derecho sobre la clase en Greenfoot → run() / run(frames, maxBytes).
+ * La medición incluye lo que Greenfoot reserva internamente al mover actores y
+ * las rocas y OVNIs nuevos de una oleada, por eso el umbral por defecto no es cero.
+ */
+public final class AllocationProbe {
+
+    private AllocationProbe() {}
+
+    public static final int  WARMUP_FRAMES              = 300;  // ~5 s @60FPS
+    public static final int  DEFAULT_FRAMES             = 1200; // ~20 s @60FPS
+    public static final long DEFAULT_MAX_BYTES_PER_TICK = 16 * 1024;  // una oleada nueva ronda 10 KB
+
+    /** Corre la medición con los valores por defecto. */
+    public static long run() {
+        return run(DEFAULT_FRAMES, DEFAULT_MAX_BYTES_PER_TICK);
+    }
+
+    /**
+     * @param frames          frames medidos (tras el calentamiento)
+     * @param maxBytesPerTick bytes reservados tolerados en el peor tick
+     * @return bytes reservados en el peor tick
+     */
+    public static long run(int frames, long maxBytesPerTick) {
+        java.lang.management.ThreadMXBean base = ManagementFactory.getThreadMXBean();
+        if (!(base instanceof com.sun.management.ThreadMXBean)) {
+            throw new UnsupportedOperationException("La JVM no expone contadores de memoria por hilo");
+        }
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) base;
+        if (!mx.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("La JVM no expone contadores de memoria por hilo");
+        }
+        mx.setThreadAllocatedMemoryEnabled(true);
+
+        AsteroidsWorld world = new AsteroidsWorld(WorldServices.headless());
+        int[] frame = { 0 };
+        world.setInputScript(() -> buttons(frame[0]));
+        world.startGame();
+        for (; frame[0] < WARMUP_FRAMES; frame[0]++) step(world);
+
+        long worst = 0, total = 0;
+        int worstFrame = -1;
+        for (int i = 0; i < frames; i++, frame[0]++) {
+            if (gameOver(world)) world.startGame();   // fuera de la medición
+            long before = mx.getCurrentThreadAllocatedBytes();
+            world.step();
+            long bytes = mx.getCurrentThreadAllocatedBytes() - before;
+            total += bytes;
+            if (bytes > worst) {
+                worst = bytes;
+                worstFrame = i;
+            }
+        }
+        long avg = total / Math.max(1, frames);
+
+        System.out.println("AllocationProbe: " + frames + " frames, media " + avg + " B/tick, peor tick "
+                           + worst + " B (frame " + worstFrame + ", umbral " + maxBytesPerTick + " B/tick)");
+        if (worst > maxBytesPerTick) {
+            throw new IllegalStateException("El frame " + worstFrame + " reserva " + worst + " B (umbral "
+                                            + maxBytesPerTick + " B por tick)");
+        }
+        return worst;
+    }
+
+    private static void step(AsteroidsWorld world) {
+        if (gameOver(world)) world.startGame();
+        world.step();
+    }
+
+    private static boolean gameOver(AsteroidsWorld world) {
+        return world.getLives() <= 0 && world.players().isEmpty();
+    }
+
+    /**
+     * Entrada guionada del frame 'f' (máscara de PlayerControls): dispara sin
+     * parar (lo limita la recarga), barre girando dos de cada tres frames y
+     * cambia de sentido cada 4 s, con un toque de empuje cada 3 s. Alcanza
+     * para limpiar oleadas: divisiones, partículas y OVNIs entran en la medición.
+     */
+    private static int buttons(int f) {
+        int b = PlayerControls.FIRE;
+        if (f % 3 != 0) b |= ((f / 240) % 2 == 0) ? PlayerControls.LEFT : PlayerControls.RIGHT;
+        if (f % 180 < 8) b |= PlayerControls.THRUST;
+        return b;
+    }
+}
@@ -0,0 +1,425 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Campo de asteroides del modo arena: un toro de muchas pantallas con decenas
+ * de miles de rocas que NO son actores.
+ * - Datos por columnas (arrays paralelos): posición, velocidad, giro, tamaño...
+ * - El arena se divide en regiones de REGION px; cada roca pertenece a una.
+ * - Las regiones cercanas a la cámara se actualizan cada tick; las medianas
+ *   cada NEAR_PERIOD y las lejanas cada FAR_PERIOD (escalonadas para repartir
+ *   el costo). Como las rocas no chocan entre sí, avanzar dt ticks de golpe
+ *   da exactamente el mismo resultado: cada roca guarda su último tick.
+ * - Actualización en dos fases: 1) mover las rocas de cada región programada
+ *   (cada roca es de una sola región: las regiones se reparten entre los hilos
+ *   del ForkJoinPool común sin conflictos); 2) mudar las que cambiaron de región,
+ *   en serie y en el mismo orden de siempre. El resultado no depende de los hilos.
+ * - Sólo se dibujan las rocas de las regiones que tocan la vista, a partir
+ *   de una ArenaSnapshot (el campo puede estar avanzando en otro hilo).
+ *
+ * Lo crea AsteroidsWorld.startArena y lo avanza ArenaSim; CollisionSystem lo
+ * consulta con hitCircle / hitTriangle (coords. de arena) y publica GameEvents.fieldHit.
+ * No es seguro para hilos: ArenaSim garantiza que un solo hilo lo toca a la vez.
+ */
+public final class ArenaField {
+
+    public static final int REGION = 1024;               // lado de una región (px)
+    private static final int NEAR_PERIOD = 4;            // ticks entre actualizaciones (anillo medio)
+    private static final int FAR_PERIOD  = 32;           // ticks entre actualizaciones (lejos)
+    private static final double ROCKS_PER_SCREEN = 12.0; // densidad al generar
+    private static final int PARALLEL_MIN = 8192;        // rocas a mover para que valga repartir
+    private static final boolean PARALLEL =
+        !"off".equalsIgnoreCase(System.getProperty("asteroids.parallel", ""))
+        && ForkJoinPool.getCommonPoolParallelism() > 1;
+
+    private final int width, height;          // tamaño del toro (múltiplo de REGION)
+    private final int cols, rows;
+
+    // --------- Rocas (arrays paralelos) ---------
+    private int capacity;
+    private int highWater = 0;                // índices usados alguna vez
+    private int live = 0;
+    private double[] x, y, vx, vy;
+    private float[] rot, spin;                // grados, grados/tick
+    private byte[] size;                      // ordinal de Asteroid.Size, -1 = libre
+    private byte[] variant;
+    private int[] lastTick;                   // último tick al que se avanzó la roca
+    private int[] gen;                        // generación del hueco (para eventos diferidos)
+    private int[] region, slot;               // región y posición dentro de su lista
+    private int[] free = new int[64];
+    private int freeCount = 0;
+
+    // --------- Regiones ---------
+    private final int[][] members;
+    private final int[] memberCount;
+
+    private int tick = 0;
+    private int updatedLastTick = 0;          // rocas avanzadas en el último update
+
+    // --------- Reparto del update (se reutiliza cada tick) ---------
+    private final int[] scheduled;            // regiones a actualizar en este tick, en orden
+    private int scheduledCount = 0;
+    private final Chunk[] chunks;
+    private final RecursiveAction advanceAll = new RecursiveAction() {
+        @Override protected void compute() { ForkJoinTask.invokeAll(chunks); }
+    };
+
+    public ArenaField(int minWidth, int minHeight, int initialCapacity) {
+        this.cols = Math.max(3, (minWidth + REGION - 1) / REGION);
+        this.rows = Math.max(3, (minHeight + REGION - 1) / REGION);
+        this.width = cols * REGION;
+        this.height = rows * REGION;
+        this.members = new int[cols * rows][];
+        this.memberCount = new int[cols * rows];
+        for (int r = 0; r < members.length; r++) members[r] = new int[8];
+        allocate(Math.max(64, initialCapacity));
+        this.scheduled = new int[members.length];
+        // Varios trozos por hilo: los que terminan antes roban a los demás
+        int n = Math.min(members.length, 4 * ForkJoinPool.getCommonPoolParallelism());
+        this.chunks = new Chunk[Math.max(1, n)];
+        for (int k = 0; k < chunks.length; k++) chunks[k] = new Chunk();
+    }
+
+    /**
+     * Arena con el tamaño justo para 'rocks' rocas a densidad de juego normal,
+     * dejando libre un círculo de safeR alrededor de (safeX,safeY).
+     */
+    public static ArenaField generate(int rocks, int viewW, int viewH, Random rng,
+                                      double safeX, double safeY, double safeR) {
+        double scale = Math.sqrt(Math.max(4.0, rocks / ROCKS_PER_SCREEN));
+        ArenaField f = new ArenaField((int) (viewW * scale), (int) (viewH * scale), rocks * 2);
+        for (int i = 0; i < rocks; i++) {
+            double px, py;
+            do {
+                px = rng.nextDouble() * f.width;
+                py = rng.nextDouble() * f.height;
+            } while (f.distSq(px, py, safeX, safeY) < safeR * safeR);
+            double roll = rng.nextDouble();
+            Asteroid.Size s = (roll < 0.5) ? Asteroid.Size.LARGE
+                            : (roll < 0.8) ? Asteroid.Size.MEDIUM : Asteroid.Size.SMALL;
+            double spd = randomInRange(rng, Asteroid.vMinFor(s), Asteroid.vMaxFor(s));
+            double ang = rng.nextDouble() * Math.PI * 2;
+            f.add(s, rng.nextInt(Assets.ROCK_VARIANTS), px, py,
+                  Math.cos(ang) * spd, Math.sin(ang) * spd, randomSpin(rng));
+        }
+        return f;
+    }
+
+    /* ===================== Actualización ===================== */
+
+    /**
+     * Avanza el campo un tick. Las regiones a distancia <= 1 de la cámara se
+     * actualizan siempre; el resto, según su anillo y escalonadas por índice.
+     * @param camX,camY centro de la vista en coordenadas de arena
+     */
+    public void update(double camX, double camY) {
+        tick++;
+        int cc = Math.floorMod((int) Math.floor(camX / REGION), cols);
+        int cr = Math.floorMod((int) Math.floor(camY / REGION), rows);
+        scheduledCount = 0;
+        int rocks = 0;
+        for (int r = 0; r < rows; r++) {
+            int dr = ringDistance(r, cr, rows);
+            for (int c = 0; c < cols; c++) {
+                int d = Math.max(dr, ringDistance(c, cc, cols));
+                int idx = r * cols + c;
+                int period = (d <= 1) ? 1 : (d <= 3) ? NEAR_PERIOD : FAR_PERIOD;
+                if (period == 1 || (tick + idx) % period == 0) {
+                    scheduled[scheduledCount++] = idx;
+                    rocks += memberCount[idx];
+                }
+            }
+        }
+
+        // 1) Mover (en paralelo si hay bastantes rocas)
+        if (PARALLEL && rocks >= PARALLEL_MIN) {
+            int per = (scheduledCount + chunks.length - 1) / chunks.length;
+            for (int k = 0; k < chunks.length; k++) {
+                chunks[k].from = Math.min(scheduledCount, k * per);
+                chunks[k].to = Math.min(scheduledCount, (k + 1) * per);
+                chunks[k].reinitialize();
+            }
+            advanceAll.reinitialize();
+            ForkJoinPool.commonPool().invoke(advanceAll);
+            updatedLastTick = 0;
+            for (int k = 0; k < chunks.length; k++) updatedLastTick += chunks[k].advanced;
+        } else {
+            updatedLastTick = 0;
+            for (int s = 0; s < scheduledCount; s++) updatedLastTick += advanceRegion(scheduled[s]);
+        }
+
+        // 2) Mudar de región (en serie: toca las listas de las vecinas)
+        for (int s = 0; s < scheduledCount; s++) migrateRegion(scheduled[s]);
+    }
+
+    /** Avanza las rocas de la región r hasta el tick actual. Sólo escribe las suyas. */
+    private int advanceRegion(int r) {
+        int[] list = members[r];
+        int advanced = 0;
+        for (int k = memberCount[r] - 1; k >= 0; k--) {
+            int i = list[k];
+            int dt = tick - lastTick[i];
+            if (dt <= 0) continue;
+            lastTick[i] = tick;
+            x[i] = wrap(x[i] + vx[i] * dt, width);
+            y[i] = wrap(y[i] + vy[i] * dt, height);
+            rot[i] = (float) wrap(rot[i] + spin[i] * dt, 360);
+            advanced++;
+        }
+        return advanced;
+    }
+
+    /**
+     * Muda a su región nueva las rocas de r que salieron de ella. Las que llegaron
+     * en este tick ya están en su región; las listas quedan igual que si se
+     * hubiera mudado cada roca al moverla (el orden importa: hitCircle y el dibujo).
+     */
+    private void migrateRegion(int r) {
+        int[] list = members[r];
+        // De atrás hacia adelante: al mudar una roca, su hueco lo ocupa una ya procesada
+        for (int k = memberCount[r] - 1; k >= 0; k--) {
+            int i = list[k];
+            int nr = regionOf(x[i], y[i]);
+            if (nr != r) {
+                detach(i);
+                attach(i, nr);
+            }
+        }
+    }
+
+    /** Trozo del reparto: un rango contiguo de 'scheduled'. Se reutiliza cada tick. */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int from, to, advanced;
+
+        @Override
+        protected void compute() {
+            int n = 0;
+            for (int s = from; s < to; s++) n += advanceRegion(scheduled[s]);
+            advanced = n;
+        }
+    }
+
+    /* ===================== Consultas ===================== */
+
+    /** Índice de la primera roca que toca el círculo (coords. de arena), o -1. */
+    public int hitCircle(double px, double py, double r) {
+        double reach = r + Asteroid.MAX_HULL_RADIUS;
+        int c0 = (int) Math.floor((px - reach) / REGION), c1 = (int) Math.floor((px + reach) / REGION);
+        int r0 = (int) Math.floor((py - reach) / REGION), r1 = (int) Math.floor((py + reach) / REGION);
+        for (int rr = r0; rr <= r1; rr++) {
+            for (int cc = c0; cc <= c1; cc++) {
+                int idx = Math.floorMod(rr, rows) * cols + Math.floorMod(cc, cols);
+                int[] list = members[idx];
+                for (int k = 0; k < memberCount[idx]; k++) {
+                    int i = list[k];
+                    double ox = px + wrapDelta(x[i] - px, width);
+                    double oy = py + wrapDelta(y[i] - py, height);
+                    if (Collision.circleHitsShape(px, py, r, shapeOf(i), ox, oy, rot[i])) return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Índice de la primera roca que toca el triángulo (coords. de arena), o -1. */
+    public int hitTriangle(double[] tx, double[] ty, double tcx, double tcy, double tr) {
+        double reach = tr + Asteroid.MAX_HULL_RADIUS;
+        int c0 = (int) Math.floor((tcx - reach) / REGION), c1 = (int) Math.floor((tcx + reach) / REGION);
+        int r0 = (int) Math.floor((tcy - reach) / REGION), r1 = (int) Math.floor((tcy + reach) / REGION);
+        for (int rr = r0; rr <= r1; rr++) {
+            for (int cc = c0; cc <= c1; cc++) {
+                int idx = Math.floorMod(rr, rows) * cols + Math.floorMod(cc, cols);
+                int[] list = members[idx];
+                for (int k = 0; k < memberCount[idx]; k++) {
+                    int i = list[k];
+                    double ox = tcx + wrapDelta(x[i] - tcx, width);
+                    double oy = tcy + wrapDelta(y[i] - tcy, height);
+                    if (Collision.triangleHitsShape(tx, ty, tcx, tcy, tr, shapeOf(i), ox, oy, rot[i])) return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** ¿Sigue viva la roca que ocupaba el hueco i con generación g? */
+    public boolean isAlive(int i, int g) {
+        return i >= 0 && i < highWater && size[i] >= 0 && gen[i] == g;
+    }
+
+    /**
+     * Destruye la roca i (L->2M, M->2S, S->nada) con impulso a partir del vector
+     * de impacto (ivx,ivy), como Asteroid. Devuelve los puntos que otorga.
+     */
+    public int split(int i, double ivx, double ivy, Random rng) {
+        Asteroid.Size s = Asteroid.SIZES[size[i]];
+        int points = Asteroid.pointsFor(s);
+        double px = x[i], py = y[i], pvx = vx[i], pvy = vy[i];
+        remove(i);
+        if (s == Asteroid.Size.SMALL) return points;
+
+        Asteroid.Size child = (s == Asteroid.Size.LARGE) ? Asteroid.Size.MEDIUM : Asteroid.Size.SMALL;
+        double norm = Math.sqrt(ivx*ivx + ivy*ivy);
+        double a0 = rng.nextDouble() * Math.PI * 2;
+        double nx = (norm > 0.0001) ? ivx / norm : Math.cos(a0);
+        double ny = (norm > 0.0001) ? ivy / norm : Math.sin(a0);
+        for (int k = 0; k < 2; k++) {
+            double spd = randomInRange(rng, Asteroid.vMinFor(child), Asteroid.vMaxFor(child));
+            double ang = rng.nextDouble() * Math.PI * 2;
+            double sign = (k % 2 == 0) ? 1.0 : -1.0;
+            add(child, rng.nextInt(Assets.ROCK_VARIANTS), px, py,
+                Math.cos(ang) * spd + nx * 1.2 * sign + pvx * 0.2,
+                Math.sin(ang) * spd + ny * 1.2 * sign + pvy * 0.2,
+                randomSpin(rng));
+        }
+        return points;
+    }
+
+    /* ===================== Foto para dibujar ===================== */
+
+    /**
+     * Copia en 'out' las rocas de las regiones que tocan la vista (left,top,viewW,viewH)
+     * ampliada en 'margin' px. Las posiciones se llevan al tick actual aunque la
+     * región esté dormida: el movimiento es lineal, así que es exacto.
+     */
+    public void snapshot(ArenaSnapshot out, double left, double top, int viewW, int viewH, int margin) {
+        out.begin(width, height, tick, live, updatedLastTick);
+        int m = Asteroid.MAX_HULL_RADIUS + margin;
+        int c0 = (int) Math.floor((left - m) / REGION), c1 = (int) Math.floor((left + viewW + m) / REGION);
+        int r0 = (int) Math.floor((top - m) / REGION),  r1 = (int) Math.floor((top + viewH + m) / REGION);
+        for (int rr = r0; rr <= r1; rr++) {
+            for (int cc = c0; cc <= c1; cc++) {
+                int idx = Math.floorMod(rr, rows) * cols + Math.floorMod(cc, cols);
+                int[] list = members[idx];
+                for (int k = 0; k < memberCount[idx]; k++) {
+                    int i = list[k];
+                    int dt = tick - lastTick[i];
+                    out.add(wrap(x[i] + vx[i] * dt, width), wrap(y[i] + vy[i] * dt, height),
+                            wrap(rot[i] + spin[i] * dt, 360), shapeOf(i).getImage());
+                }
+            }
+        }
+    }
+
+    /* ===================== Getters ===================== */
+
+    public int getWidth()          { return width; }
+    public int getHeight()         { return height; }
+    public int liveCount()         { return live; }
+    public int regionCount()       { return members.length; }
+    public int updatedLastTick()   { return updatedLastTick; }
+    public int generation(int i)   { return gen[i]; }
+    public double x(int i)         { return x[i]; }
+    public double y(int i)         { return y[i]; }
+
+    /** Diferencia a-b más corta en un toro de periodo 'period'. */
+    public static double wrapDelta(double d, double period) {
+        d = wrap(d, period);
+        return (d > period / 2) ? d - period : d;
+    }
+
+    /* ===================== Almacenamiento ===================== */
+
+    private int add(Asteroid.Size s, int v, double px, double py, double pvx, double pvy, double spinDeg) {
+        int i;
+        if (freeCount > 0) {
+            i = free[--freeCount];
+        } else {
+            if (highWater == capacity) grow();
+            i = highWater++;
+        }
+        x[i] = wrap(px, width); y[i] = wrap(py, height);
+        vx[i] = pvx; vy[i] = pvy;
+        rot[i] = 0; spin[i] = (float) spinDeg;
+        size[i] = (byte) s.ordinal();
+        variant[i] = (byte) v;
+        lastTick[i] = tick;
+        gen[i]++;
+        live++;
+        attach(i, regionOf(x[i], y[i]));
+        return i;
+    }
+
+    private void remove(int i) {
+        detach(i);
+        size[i] = -1;
+        live--;
+        if (freeCount == free.length) free = Arrays.copyOf(free, free.length * 2);
+        free[freeCount++] = i;
+    }
+
+    private void attach(int i, int r) {
+        if (memberCount[r] == members[r].length) members[r] = Arrays.copyOf(members[r], members[r].length * 2);
+        region[i] = r;
+        slot[i] = memberCount[r];
+        members[r][memberCount[r]++] = i;
+    }
+
+    /** Saca la roca de su región (el último de la lista ocupa su lugar). */
+    private void detach(int i) {
+        int r = region[i];
+        int last = members[r][--memberCount[r]];
+        members[r][slot[i]] = last;
+        slot[last] = slot[i];
+    }
+
+    private void allocate(int cap) {
+        capacity = cap;
+        x = new double[cap]; y = new double[cap]; vx = new double[cap]; vy = new double[cap];
+        rot = new float[cap]; spin = new float[cap];
+        size = new byte[cap]; variant = new byte[cap];
+        lastTick = new int[cap]; gen = new int[cap];
+        region = new int[cap]; slot = new int[cap];
+    }
+
+    private void grow() {
+        int cap = capacity * 2;
+        x = Arrays.copyOf(x, cap); y = Arrays.copyOf(y, cap);
+        vx = Arrays.copyOf(vx, cap); vy = Arrays.copyOf(vy, cap);
+        rot = Arrays.copyOf(rot, cap); spin = Arrays.copyOf(spin, cap);
+        size = Arrays.copyOf(size, cap); variant = Arrays.copyOf(variant, cap);
+        lastTick = Arrays.copyOf(lastTick, cap); gen = Arrays.copyOf(gen, cap);
+        region = Arrays.copyOf(region, cap); slot = Arrays.copyOf(slot, cap);
+        capacity = cap;
+    }
+
+    /* ===================== Utilidades ===================== */
+
+    private RockShape shapeOf(int i) {
+        return Assets.rock(Asteroid.SIZES[size[i]], variant[i]);
+    }
+
+    private int regionOf(double px, double py) {
+        int c = Math.min(cols - 1, (int) (px / REGION));
+        int r = Math.min(rows - 1, (int) (py / REGION));
+        return r * cols + c;
+    }
+
+    private double distSq(double ax, double ay, double bx, double by) {
+        double dx = wrapDelta(ax - bx, width), dy = wrapDelta(ay - by, height);
+        return dx*dx + dy*dy;
+    }
+
+    private static int ringDistance(int a, int b, int n) {
+        int d = Math.abs(a - b);
+        return Math.min(d, n - d);
+    }
+
+    private static double wrap(double v, double period) {
+        v %= period;
+        return (v < 0) ? v + period : v;
+    }
+
+    private static double randomSpin(Random rng) {
+        double s = randomInRange(rng, -2.0, 2.0);
+        return (Math.abs(s) < 0.2) ? (s < 0 ? -0.2 : 0.2) : s;
+    }
+
+    private static double randomInRange(Random rng, double a, double b) {
+        return a + rng.nextDouble() * (b - a);
+    }
+}
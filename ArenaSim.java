@@ -0,0 +1,155 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Avanza el ArenaField en un hilo propio, solapado con el resto del frame:
+ * mientras se pinta el frame N (BatchRenderer, HUD, Greenfoot) y empieza el
+ * act del mundo del N+1, este hilo ya calcula el tick N+1 del campo.
+ *
+ * Cada frame:
+ *  1) awaitStep() (AsteroidsWorld.act, antes del act de los actores): espera
+ *     el avance lanzado en el frame anterior. Desde ahí el campo es sólo del
+ *     hilo de Greenfoot (colisiones y divisiones por impactos, en endOfFrame).
+ *  2) launch() (al final de AsteroidsWorld.endOfFrame, tras colisiones y
+ *     eventos): publica una ArenaSnapshot del estado ya resuelto (para pintar)
+ *     y luego avanza el campo un tick, todo en el hilo de la simulación.
+ * BatchRenderer pinta snapshot(), que espera sólo a la foto, no al avance.
+ *
+ * - Doble búfer: las fotos se alternan; la que se pinta en el frame N no se
+ *   vuelve a escribir hasta el launch del frame N+1, cuando ya se pintó.
+ * - El orden de las operaciones sobre el campo es el mismo que en serie: el
+ *   resultado es idéntico con o sin hilo (-Dasteroids.simThread=off lo hace en línea).
+ * - El hilo termina solo tras IDLE_NANOS sin trabajo (pausa, mundo descartado)
+ *   y se vuelve a crear en el siguiente launch. No reserva memoria por frame.
+ */
+public final class ArenaSim {
+
+    /** Margen de la foto alrededor de la vista: la cámara se mueve tras tomarla. */
+    private static final int SNAPSHOT_MARGIN = 64;
+    private static final long IDLE_NANOS = 1_000_000_000L;
+    private static final boolean THREADED =
+        !"off".equalsIgnoreCase(System.getProperty("asteroids.simThread", ""))
+        && Runtime.getRuntime().availableProcessors() > 1;
+
+    private final ArenaField field;
+    private final int viewW, viewH;
+    private final ArenaSnapshot[] snapshots = { new ArenaSnapshot(), new ArenaSnapshot() };
+
+    // Trabajo pedido / hecho (números de frame). Los parámetros se escriben
+    // antes de 'requested' y se leen después: la escritura volátil los publica.
+    private volatile int requested = 0, snapshotted = 0, stepped = 0;
+    private double camCX, camCY, viewLeft, viewTop;
+    private volatile ArenaSnapshot latest = null;
+    private volatile Throwable failure = null;
+
+    private volatile Thread waiter = null;    // hilo de Greenfoot esperando
+    private Thread worker = null;             // protegido por 'this'
+
+    public ArenaSim(ArenaField field, int viewW, int viewH) {
+        this.field = field;
+        this.viewW = viewW;
+        this.viewH = viewH;
+    }
+
+    /**
+     * Lanza el frame siguiente: foto de la vista (left,top) y luego un tick del
+     * campo con la cámara centrada en (camCenterX,camCenterY). Ver ArenaField.update.
+     */
+    public void launch(double camCenterX, double camCenterY, double left, double top) {
+        awaitStep(); // nunca dos frames en vuelo
+        camCX = camCenterX;
+        camCY = camCenterY;
+        viewLeft = left;
+        viewTop = top;
+        if (!THREADED) {
+            requested++;
+            runFrame(requested);
+            return;
+        }
+        synchronized (this) {
+            requested++;
+            if (worker == null) {
+                worker = new Thread(this::workerLoop, "arena-sim");
+                worker.setDaemon(true);
+                worker.start();
+            } else {
+                LockSupport.unpark(worker);
+            }
+        }
+    }
+
+    /** Espera a que termine el avance lanzado; después el campo es de quien llama. */
+    public void awaitStep() {
+        if (stepped != requested) {
+            waiter = Thread.currentThread();   // se anuncia antes de volver a mirar
+            while (stepped != requested) LockSupport.park(this);
+            waiter = null;
+        }
+        rethrow();
+    }
+
+    /** Última foto publicada (espera a la del frame en curso), o null si aún no hay. */
+    public ArenaSnapshot snapshot() {
+        if (snapshotted != requested) {
+            waiter = Thread.currentThread();
+            while (snapshotted != requested) LockSupport.park(this);
+            waiter = null;
+        }
+        rethrow();
+        return latest;
+    }
+
+    /* ===================== Hilo de la simulación ===================== */
+
+    private void workerLoop() {
+        long idleSince = System.nanoTime();
+        while (true) {
+            int next = stepped + 1;
+            if (next - requested <= 0) {
+                runFrame(next);
+                idleSince = System.nanoTime();
+                continue;
+            }
+            synchronized (this) {
+                if (stepped == requested && System.nanoTime() - idleSince > IDLE_NANOS) {
+                    worker = null;   // el próximo launch crea otro
+                    return;
+                }
+            }
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+    }
+
+    private void runFrame(int frame) {
+        try {
+            ArenaSnapshot snap = snapshots[frame & 1];
+            field.snapshot(snap, viewLeft, viewTop, viewW, viewH, SNAPSHOT_MARGIN);
+            latest = snap;
+            snapshotted = frame;
+            wakeWaiter();
+            field.update(camCX, camCY);
+        } catch (Throwable t) {
+            failure = t;
+            snapshotted = frame;
+        }
+        stepped = frame;
+        wakeWaiter();
+    }
+
+    /* ===================== Espera sin reservar memoria ===================== */
+
+    // Quien espera se anuncia en 'waiter' y luego vuelve a mirar la condición;
+    // el hilo de la simulación publica el avance y luego lee 'waiter': alguno ve al otro
+    private void wakeWaiter() {
+        Thread w = waiter;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    private void rethrow() {
+        Throwable t = failure;
+        if (t == null) return;
+        failure = null;
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        throw new IllegalStateException("arena-sim", t);
+    }
+}
@@ -0,0 +1,78 @@
+import greenfoot.*;  // GreenfootImage
+import java.util.Arrays;
+
+/**
+ * Foto de un frame del ArenaField: las rocas alrededor de la vista (posición,
+ * rotación, sprite) y los contadores del campo, tal como estaban al tomarla.
+ * - La llena el hilo de ArenaSim (ArenaField.snapshot) y, una vez publicada,
+ *   nadie la modifica hasta que vuelve a tocarle: hay dos y se alternan.
+ * - BatchRenderer la pinta con la cámara del momento de dibujar; por eso
+ *   incluye un margen alrededor de la vista con la que se tomó.
+ */
+public final class ArenaSnapshot {
+
+    private int count = 0;
+    private double[] x = new double[256], y = new double[256];
+    private float[] rot = new float[256];
+    private GreenfootImage[] sprite = new GreenfootImage[256];
+
+    private int width, height;                // tamaño del toro
+    private int tick, live, updated;
+
+    /* ===================== Llenado (hilo de la simulación) ===================== */
+
+    void begin(int width, int height, int tick, int live, int updated) {
+        this.width = width;
+        this.height = height;
+        this.tick = tick;
+        this.live = live;
+        this.updated = updated;
+        count = 0;
+    }
+
+    void add(double px, double py, double deg, GreenfootImage img) {
+        if (count == x.length) grow();
+        x[count] = px;
+        y[count] = py;
+        rot[count] = (float) deg;
+        sprite[count] = img;
+        count++;
+    }
+
+    /* ===================== Lectura (hilo de Greenfoot) ===================== */
+
+    /** Pinta las rocas que tocan la vista (left,top,viewW,viewH); devuelve cuántas. */
+    public int draw(BatchRenderer out, double left, double top, int viewW, int viewH) {
+        int m = Asteroid.MAX_HULL_RADIUS;
+        int drawn = 0;
+        for (int i = 0; i < count; i++) {
+            double sx = wrap(x[i] - left, width);
+            double sy = wrap(y[i] - top, height);
+            if (sx > width - m) sx -= width;   // justo a la izquierda/arriba de la vista
+            if (sy > height - m) sy -= height;
+            if (sx < -m || sx > viewW + m || sy < -m || sy > viewH + m) continue;
+            out.drawSprite(sprite[i], (int) Math.round(sx), (int) Math.round(sy), Math.round(rot[i]));
+            drawn++;
+        }
+        return drawn;
+    }
+
+    /** Rocas incluidas (las cercanas a la vista, no todas las del campo). */
+    public int size()            { return count; }
+    public int tick()            { return tick; }
+    public int liveCount()       { return live; }
+    public int updatedLastTick() { return updated; }
+
+    private void grow() {
+        int cap = x.length * 2;
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        rot = Arrays.copyOf(rot, cap);
+        sprite = Arrays.copyOf(sprite, cap);
+    }
+
+    private static double wrap(double v, double period) {
+        v %= period;
+        return (v < 0) ? v + period : v;
+    }
+}
@@ -0,0 +1,197 @@
+import greenfoot.*;  // GreenfootImage
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paquete de recursos en un solo archivo indexado: sprites ya renderizados
+ * (rocas con su polígono, OVNIs, nave, balas, chispas y humo con sus niveles
+ * de alpha).
+ * - pack() lo genera a partir de lo que construye Assets (paso fuera de línea).
+ * - open() lo mapea en memoria con FileChannel: abrirlo sólo lee el índice; los
+ *   datos se leen de la caché de páginas del sistema, compartida entre instancias.
+ * - Assets.warmUp lo usa si existe (-Dasteroids.bundle, por defecto assets.bundle)
+ *   y su versión coincide; si no, construye todo como siempre.
+ *
+ * Formato: "ASTB" + versión (int) + nº de entradas (int), luego el índice
+ * (nombre UTF-8 con largo short, tipo byte, desplazamiento int, largo int) y los datos.
+ * Imagen: ancho, alto, transparencia (ints) y píxeles ARGB.
+ * Roca: radio, nº de vértices (ints), vértices (doubles x,y) e imagen.
+ *
+ * Sin sonidos: GreenfootSound sólo reproduce archivos (recibe un nombre y abre
+ * el .wav), así que un PCM ya decodificado en el paquete no tendría quién lo
+ * lea. Los .wav siguen sueltos y Assets los prepara como siempre.
+ *
+ * Uso: java AssetBundle [salida.bundle] o desde Greenfoot: clic derecho → pack("assets.bundle").
+ */
+public final class AssetBundle {
+
+    static final byte[] MAGIC = { 'A', 'S', 'T', 'B' };
+    /** Súbase al cambiar cómo construye Assets cualquier recurso: los paquetes viejos se ignoran. */
+    static final int VERSION = 3;   // 2: sin PCM (nadie lo reproducía); 3: rocas en lienzo a la medida del jitter
+
+    static final byte IMAGE = 1, ROCK = 2;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final Map<String, int[]> index;  // nombre → {tipo, desplazamiento, largo}
+
+    private AssetBundle(Path path, MappedByteBuffer data, Map<String, int[]> index) {
+        this.path = path;
+        this.data = data;
+        this.index = index;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String out = (args.length > 0) ? args[0] : "assets.bundle";
+        System.out.println("Paquete escrito en " + pack(out));
+    }
+
+    /* ===================== Lectura ===================== */
+
+    /** Mapea el paquete y lee su índice; IOException si no es un paquete de esta versión. */
+    public static AssetBundle open(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // sigue válido al cerrar el canal
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.remaining() < 12 || buf.get(i) != MAGIC[i]) throw new IOException("No es un paquete de recursos: " + file);
+        }
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IOException("Versión de paquete " + version + ", se esperaba " + VERSION);
+        int entries = buf.getInt(8);
+
+        Map<String, int[]> index = new HashMap<>(entries * 2);
+        ByteBuffer in = buf.duplicate();
+        in.position(12);
+        for (int e = 0; e < entries; e++) {
+            byte[] name = new byte[in.getShort() & 0xFFFF];
+            in.get(name);
+            int kind = in.get(), offset = in.getInt(), length = in.getInt();
+            if (offset < 0 || length < 0 || (long) offset + length > buf.capacity()) {
+                throw new IOException("Índice corrupto en " + file);
+            }
+            index.put(new String(name, StandardCharsets.UTF_8), new int[] { kind, offset, length });
+        }
+        return new AssetBundle(file, buf, index);
+    }
+
+    public Path path()                 { return path; }
+    public int size()                  { return index.size(); }
+    public boolean contains(String name) { return index.containsKey(name); }
+
+    /** Sprite guardado (copia en memoria propia: GreenfootImage no puede apuntar al mapa). */
+    public GreenfootImage image(String name) {
+        return readImage(entry(name, IMAGE));
+    }
+
+    /** Forma de roca guardada, con su polígono y su sprite. */
+    public RockShape rock(String name) {
+        ByteBuffer in = entry(name, ROCK);
+        int radius = in.getInt();
+        int n = in.getInt();
+        double[] vx = new double[n], vy = new double[n];
+        for (int i = 0; i < n; i++) { vx[i] = in.getDouble(); vy[i] = in.getDouble(); }
+        return RockShape.of(radius, vx, vy, readImage(in));
+    }
+
+    private ByteBuffer entry(String name, byte kind) {
+        int[] e = index.get(name);
+        if (e == null || e[0] != kind) throw new IllegalArgumentException("No está en el paquete: " + name);
+        ByteBuffer in = data.duplicate(); // posición propia: lo leen varios hilos a la vez
+        in.position(e[1]);
+        in.limit(e[1] + e[2]);
+        return in.slice();
+    }
+
+    private static GreenfootImage readImage(ByteBuffer in) {
+        int w = in.getInt(), h = in.getInt(), transparency = in.getInt();
+        int[] argb = new int[w * h];
+        in.asIntBuffer().get(argb);
+        in.position(in.position() + argb.length * 4);
+        GreenfootImage img = new GreenfootImage(w, h);
+        img.getAwtImage().setRGB(0, 0, w, h, argb, 0, w);
+        img.setTransparency(transparency);
+        return img;
+    }
+
+    /* ===================== Escritura ===================== */
+
+    /** Construye (o espera) los recursos de Assets y los escribe en 'file'. Devuelve la ruta. */
+    public static String pack(String file) throws IOException {
+        Path out = Paths.get(file);
+        List<String> names = new ArrayList<>();
+        List<byte[]> blobs = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        Assets.forEachResource(new Assets.ResourceSink() {
+            @Override public void image(String name, GreenfootImage img) {
+                add(name, IMAGE, imageBytes(img));
+            }
+            @Override public void rock(String name, RockShape s) {
+                byte[] img = imageBytes(s.getImage());
+                ByteBuffer b = ByteBuffer.allocate(8 + s.vertexCount() * 16 + img.length);
+                b.putInt(s.getRadius()).putInt(s.vertexCount());
+                for (int i = 0; i < s.vertexCount(); i++) b.putDouble(s.vertexX(i)).putDouble(s.vertexY(i));
+                add(name, ROCK, b.put(img).array());
+            }
+            private void add(String name, byte kind, byte[] blob) {
+                names.add(name);
+                kinds.add(kind);
+                blobs.add(blob);
+            }
+        });
+
+        // Cabecera + índice
+        int indexBytes = 12;
+        for (String n : names) indexBytes += 2 + n.getBytes(StandardCharsets.UTF_8).length + 1 + 4 + 4;
+        int offset = (indexBytes + 7) & ~7;   // datos alineados a 8
+        ByteBuffer head = ByteBuffer.allocate(offset);
+        head.put(MAGIC).putInt(VERSION).putInt(names.size());
+        for (int e = 0; e < names.size(); e++) {
+            byte[] n = names.get(e).getBytes(StandardCharsets.UTF_8);
+            head.putShort((short) n.length).put(n).put(kinds.get(e)).putInt(offset).putInt(blobs.get(e).length);
+            offset += (blobs.get(e).length + 7) & ~7;
+        }
+        head.position(0);
+
+        // Se escribe al lado y se renombra: nadie mapea un paquete a medio escribir
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (head.hasRemaining()) ch.write(head);
+            ByteBuffer pad = ByteBuffer.allocate(8);
+            for (byte[] blob : blobs) {
+                ByteBuffer b = ByteBuffer.wrap(blob);
+                while (b.hasRemaining()) ch.write(b);
+                pad.clear().limit((8 - (blob.length & 7)) & 7);
+                while (pad.hasRemaining()) ch.write(pad);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return out.toString();
+    }
+
+    private static byte[] imageBytes(GreenfootImage img) {
+        BufferedImage awt = img.getAwtImage();
+        int w = awt.getWidth(), h = awt.getHeight();
+        int[] argb = awt.getRGB(0, 0, w, h, null, 0, w);
+        ByteBuffer b = ByteBuffer.allocate(12 + argb.length * 4);
+        b.putInt(w).putInt(h).putInt(img.getTransparency());
+        b.asIntBuffer().put(argb);
+        return b.array();
+    }
+}
@@ -0,0 +1,442 @@
+import greenfoot.*;  // GreenfootImage, GreenfootSound, Color
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catálogo compartido de recursos del juego (sprites y sonidos).
+ * - warmUp() abre las voces de cada sonido y pre-renderiza todas las variantes
+ *   de sprites en paralelo, en un pool de hilos, mientras se ve la pantalla de título.
+ * - progress()/isReady() permiten al mundo mostrar el avance de la carga.
+ * - Los getters esperan a que la carga termine (sólo bloquean si alguien pide
+ *   un recurso antes de tiempo); en juego nunca se construye un sprite.
+ * - Si hay un AssetBundle (-Dasteroids.bundle, por defecto assets.bundle) lo
+ *   mapea y copia de ahí los sprites en vez de construirlos. Los sonidos no van
+ *   en el paquete: GreenfootSound sólo acepta archivos y abre los WAV él mismo.
+ *
+ * Los sprites son compartidos: nadie debe modificarlos (p.ej. setTransparency).
+ * Para desvanecer o parpadear se usan las variantes de alpha ya precalculadas.
+ */
+public final class Assets {
+
+    private Assets() {}
+
+    // --------- Catálogo ---------
+    public static final String[] SOUNDS = {
+        "shoot.wav", "explode.wav", "rock-break.wav", "ufo_shoot.wav", "ufo_explode.wav"
+    };
+    private static final int VOICES_PER_SOUND = 4;     // reproducciones simultáneas por sonido
+    private static final String BUNDLE = System.getProperty("asteroids.bundle", "assets.bundle");
+
+    public static final int ROCK_VARIANTS = 8;         // polígonos distintos por tamaño
+    public static final int FADE_STEPS    = 16;        // niveles de alpha por partícula
+    public static final int SPARK_R_MIN = 2, SPARK_R_MAX = 3;
+    public static final int SMOKE_R_MIN = 5, SMOKE_R_MAX = 10;
+
+    /** Niveles de transparencia del parpadeo de invulnerabilidad de la nave. */
+    public static final int SHIP_ALPHA_OPAQUE = 0, SHIP_ALPHA_DIM = 1, SHIP_ALPHA_BRIGHT = 2;
+    private static final int[] SHIP_ALPHAS = { 255, 110, 230 };
+
+    // --------- Recursos (se escriben sólo durante la precarga) ---------
+    private static final RockShape[][] rocks = new RockShape[Asteroid.Size.values().length][ROCK_VARIANTS];
+    private static final GreenfootImage[] ufos = new GreenfootImage[UFO.Type.values().length];
+    private static final GreenfootImage[][] ship = new GreenfootImage[2][SHIP_ALPHAS.length]; // [thrust][alpha]
+    private static GreenfootImage bullet, enemyBullet;
+    private static final GreenfootImage[][] sparkYellow = new GreenfootImage[SPARK_R_MAX + 1][];
+    private static final GreenfootImage[][] sparkWhite  = new GreenfootImage[SPARK_R_MAX + 1][];
+    private static final GreenfootImage[][] smoke       = new GreenfootImage[SMOKE_R_MAX + 1][];
+
+    private static final GreenfootSound[][] voices = new GreenfootSound[SOUNDS.length][];
+    private static final int[] nextVoice = new int[SOUNDS.length];
+
+    // --------- Estado de la precarga ---------
+    private static final AtomicInteger done = new AtomicInteger();
+    private static volatile int total = 1;
+    private static CountDownLatch latch;
+    private static volatile boolean ready = false;
+    private static volatile AssetBundle bundle;          // null = recursos construidos aquí
+
+    /* ===================== Precarga ===================== */
+
+    /**
+     * Lanza la precarga en paralelo (idempotente). No bloquea: el mundo puede
+     * seguir pintando la pantalla de título y consultar progress().
+     */
+    public static synchronized void warmUp() {
+        if (latch != null) return;
+
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "assets-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Cada tarea escribe en su propia celda: no hace falta más sincronización
+        // que el latch final (happens-before entre countDown y await).
+        AssetBundle b = openBundle();
+        bundle = b;
+        List<Runnable> tasks = new ArrayList<>();
+        if (b != null) {
+            addBundleTasks(b, tasks);
+        } else {
+            addBuildTasks(tasks);
+        }
+
+        total = tasks.size();
+        latch = new CountDownLatch(total);
+        for (Runnable task : tasks) {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Assets: fallo en precarga: " + e);
+                } finally {
+                    done.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        pool.shutdown();
+    }
+
+    /** Tareas de la precarga sin paquete: abrir las voces y dibujar cada sprite. */
+    private static void addBuildTasks(List<Runnable> tasks) {
+        addVoiceTasks(tasks);
+        for (Asteroid.Size size : Asteroid.Size.values()) {
+            for (int v = 0; v < ROCK_VARIANTS; v++) {
+                final int variant = v;
+                tasks.add(() -> rocks[size.ordinal()][variant] =
+                    RockShape.build(Asteroid.radiusFor(size), rockSeed(size, variant)));
+            }
+        }
+        for (UFO.Type type : UFO.Type.values()) {
+            tasks.add(() -> ufos[type.ordinal()] = buildUfo(type));
+        }
+        tasks.add(Assets::buildShip);
+        tasks.add(() -> { bullet = buildBullet(); enemyBullet = buildEnemyBullet(); });
+        for (int r = SPARK_R_MIN; r <= SPARK_R_MAX; r++) {
+            final int rr = r;
+            tasks.add(() -> {
+                sparkYellow[rr] = buildFadeFrames(new Color(255, 240, 160, 255), rr);
+                sparkWhite[rr]  = buildFadeFrames(new Color(255, 255, 255, 255), rr);
+            });
+        }
+        for (int r = SMOKE_R_MIN; r <= SMOKE_R_MAX; r++) {
+            final int rr = r;
+            tasks.add(() -> smoke[rr] = buildFadeFrames(new Color(180, 180, 180, 180), rr));
+        }
+    }
+
+    /** Tareas de la precarga con paquete: copiar cada recurso del mapa (ver forEachResource). */
+    private static void addBundleTasks(AssetBundle b, List<Runnable> tasks) {
+        addVoiceTasks(tasks);
+        for (Asteroid.Size size : Asteroid.Size.values()) {
+            tasks.add(() -> {
+                for (int v = 0; v < ROCK_VARIANTS; v++) rocks[size.ordinal()][v] = b.rock(rockName(size, v));
+            });
+        }
+        tasks.add(() -> {
+            for (UFO.Type type : UFO.Type.values()) ufos[type.ordinal()] = b.image(ufoName(type));
+            for (int t = 0; t < 2; t++) {
+                for (int a = 0; a < SHIP_ALPHAS.length; a++) ship[t][a] = b.image(shipName(t == 1, a));
+            }
+            bullet = b.image("bullet");
+            enemyBullet = b.image("enemy-bullet");
+        });
+        for (int r = SPARK_R_MIN; r <= SPARK_R_MAX; r++) {
+            final int rr = r;
+            tasks.add(() -> {
+                sparkYellow[rr] = readFrames(b, "spark-yellow/" + rr);
+                sparkWhite[rr]  = readFrames(b, "spark-white/" + rr);
+            });
+        }
+        for (int r = SMOKE_R_MIN; r <= SMOKE_R_MAX; r++) {
+            final int rr = r;
+            tasks.add(() -> smoke[rr] = readFrames(b, "smoke/" + rr));
+        }
+    }
+
+    private static void addVoiceTasks(List<Runnable> tasks) {
+        for (int s = 0; s < SOUNDS.length; s++) {
+            final int idx = s;
+            tasks.add(() -> openVoices(idx));
+        }
+    }
+
+    private static GreenfootImage[] readFrames(AssetBundle b, String prefix) {
+        GreenfootImage[] frames = new GreenfootImage[FADE_STEPS];
+        for (int i = 0; i < FADE_STEPS; i++) frames[i] = b.image(prefix + "/" + i);
+        return frames;
+    }
+
+    /** El paquete si existe y es de esta versión; si no, null (y se construye todo). */
+    private static AssetBundle openBundle() {
+        Path file = Paths.get(BUNDLE);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            return AssetBundle.open(file);
+        } catch (IOException e) {
+            System.err.println("Assets: se ignora el paquete " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Paquete del que salieron los recursos, o null si se construyeron. */
+    public static AssetBundle bundle() { return bundle; }
+
+    /* ===================== Recorrido (para AssetBundle.pack) ===================== */
+
+    /** Recibe cada recurso con su nombre en el paquete. */
+    interface ResourceSink {
+        void image(String name, GreenfootImage img);
+        void rock(String name, RockShape shape);
+    }
+
+    /** Espera la precarga y entrega todos los recursos (los mismos nombres que lee addBundleTasks). */
+    static void forEachResource(ResourceSink sink) {
+        awaitReady();
+        for (Asteroid.Size size : Asteroid.Size.values()) {
+            for (int v = 0; v < ROCK_VARIANTS; v++) sink.rock(rockName(size, v), rocks[size.ordinal()][v]);
+        }
+        for (UFO.Type type : UFO.Type.values()) sink.image(ufoName(type), ufos[type.ordinal()]);
+        for (int t = 0; t < 2; t++) {
+            for (int a = 0; a < SHIP_ALPHAS.length; a++) sink.image(shipName(t == 1, a), ship[t][a]);
+        }
+        sink.image("bullet", bullet);
+        sink.image("enemy-bullet", enemyBullet);
+        for (int r = SPARK_R_MIN; r <= SPARK_R_MAX; r++) {
+            for (int i = 0; i < FADE_STEPS; i++) {
+                sink.image("spark-yellow/" + r + "/" + i, sparkYellow[r][i]);
+                sink.image("spark-white/" + r + "/" + i, sparkWhite[r][i]);
+            }
+        }
+        for (int r = SMOKE_R_MIN; r <= SMOKE_R_MAX; r++) {
+            for (int i = 0; i < FADE_STEPS; i++) sink.image("smoke/" + r + "/" + i, smoke[r][i]);
+        }
+    }
+
+    private static String rockName(Asteroid.Size size, int v)  { return "rock/" + size + "/" + v; }
+    private static String ufoName(UFO.Type type)               { return "ufo/" + type; }
+    private static String shipName(boolean thrust, int alpha)  { return "ship/" + (thrust ? "thrust" : "idle") + "/" + alpha; }
+
+    /** Avance de la precarga (0..1). */
+    public static float progress() {
+        return Math.min(1f, done.get() / (float) total);
+    }
+
+    /** true cuando todos los recursos están listos (no bloquea). */
+    public static boolean isReady() {
+        if (ready) return true;
+        CountDownLatch l = latch;
+        if (l != null && l.getCount() == 0) ready = true;
+        return ready;
+    }
+
+    /** Espera a que termine la precarga (la inicia si nadie lo hizo). */
+    private static void awaitReady() {
+        if (ready) return;
+        warmUp();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        ready = true;
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /* ===================== Getters ===================== */
+
+    /** Semilla fija por (tamaño, variante): las formas son reproducibles. */
+    static long rockSeed(Asteroid.Size size, int variant) {
+        return 0x5EEDL * 31 + size.ordinal() * 1009L + variant;
+    }
+
+    public static RockShape rock(Asteroid.Size size, int variant) {
+        awaitReady();
+        return rocks[size.ordinal()][variant];
+    }
+
+    public static GreenfootImage ufo(UFO.Type type) {
+        awaitReady();
+        return ufos[type.ordinal()];
+    }
+
+    /** Sprite de la nave con o sin llama, en uno de los niveles SHIP_ALPHA_*. */
+    public static GreenfootImage ship(boolean thrust, int alphaLevel) {
+        awaitReady();
+        return ship[thrust ? 1 : 0][alphaLevel];
+    }
+
+    public static GreenfootImage bullet()      { awaitReady(); return bullet; }
+    public static GreenfootImage enemyBullet() { awaitReady(); return enemyBullet; }
+
+    /** Fotogramas de desvanecido (alpha decreciente) de una chispa. */
+    public static GreenfootImage[] spark(boolean yellow, int radius) {
+        awaitReady();
+        int r = Math.max(SPARK_R_MIN, Math.min(SPARK_R_MAX, radius));
+        return yellow ? sparkYellow[r] : sparkWhite[r];
+    }
+
+    /** Fotogramas de desvanecido (alpha decreciente) de una bocanada de humo. */
+    public static GreenfootImage[] smoke(int radius) {
+        awaitReady();
+        return smoke[Math.max(SMOKE_R_MIN, Math.min(SMOKE_R_MAX, radius))];
+    }
+
+    /* ===================== Sonido ===================== */
+
+    /**
+     * Reemplazo de Greenfoot.playSound: usa voces ya abiertas durante la precarga
+     * (rotando entre varias para permitir solapamiento).
+     */
+    public static void playSound(String file) {
+        int idx = soundIndex(file);
+        if (idx < 0 || !isReady()) {
+            Greenfoot.playSound(file); // recurso desconocido o aún cargando
+            return;
+        }
+        GreenfootSound[] vs = voices[idx];
+        if (vs == null) return;
+        int start = nextVoice[idx];
+        for (int i = 0; i < vs.length; i++) {
+            GreenfootSound v = vs[(start + i) % vs.length];
+            if (!v.isPlaying()) {
+                v.play();
+                nextVoice[idx] = (start + i + 1) % vs.length;
+                return;
+            }
+        }
+        // Todas sonando: reinicia la más antigua
+        GreenfootSound oldest = vs[start];
+        oldest.stop();
+        oldest.play();
+        nextVoice[idx] = (start + 1) % vs.length;
+    }
+
+    static int soundIndex(String file) {
+        for (int i = 0; i < SOUNDS.length; i++) {
+            if (SOUNDS[i].equals(file)) return i;
+        }
+        return -1;
+    }
+
+    /** Abre las voces de Greenfoot del sonido y las "ceba" en silencio. */
+    private static void openVoices(int idx) {
+        String file = SOUNDS[idx];
+        GreenfootSound[] vs = new GreenfootSound[VOICES_PER_SOUND];
+        for (int i = 0; i < vs.length; i++) {
+            GreenfootSound s = new GreenfootSound(file);
+            s.setVolume(0);
+            s.play();
+            s.stop();
+            s.setVolume(100);
+            vs[i] = s;
+        }
+        voices[idx] = vs;
+    }
+
+    /* ===================== Sprites ===================== */
+
+    private static GreenfootImage buildUfo(UFO.Type type) {
+        // Saucer simple: disco + cúpula; SMALL más compacto
+        boolean small = (type == UFO.Type.SMALL);
+        int w = small ? 28 : 40;
+        int h = small ? 14 : 18;
+
+        GreenfootImage img = new GreenfootImage(w, h);
+        img.setColor(new Color(190, 190, 190));
+        img.fillOval(0, h/3, w-1, h-1);             // plato
+        img.setColor(new Color(230, 230, 230));
+        img.fillOval(w/4, 0, w/2, h/2);             // cúpula
+        img.setColor(new Color(120, 120, 120));
+        img.drawOval(0, h/3, w-1, h-1);
+        img.drawOval(w/4, 0, w/2, h/2);
+        return img;
+    }
+
+    private static void buildShip() {
+        // Triángulo apuntando a la derecha (rot 0) para que el heading coincida con getRotation()
+        GreenfootImage base = new GreenfootImage(40, 40);
+        base.setColor(new Color(255, 255, 255));
+        int cx = 20, cy = 20;
+        int[] xs = { cx + 18, cx - 12, cx - 12 };
+        int[] ys = { cy,      cy - 8,   cy + 8  };
+        base.drawPolygon(xs, ys, 3);
+        base.drawLine(cx - 5, cy - 4, cx - 5, cy + 4); // cabina
+        // contorno más visible
+        base.setColor(new Color(200, 200, 200));
+        base.drawOval(cx-16, cy-12, 8, 8); // detalle decorativo
+
+        GreenfootImage thrust = new GreenfootImage(base); // copia
+        // llama trasera
+        thrust.setColor(new Color(255, 180, 60));
+        thrust.fillPolygon(
+            new int[]{cx - 12, cx - 20, cx - 12},
+            new int[]{cy - 5,  cy,      cy + 5},
+            3
+        );
+
+        // Variantes de alpha para el parpadeo (así nadie toca la imagen compartida)
+        for (int a = 0; a < SHIP_ALPHAS.length; a++) {
+            GreenfootImage b = new GreenfootImage(base);
+            b.setTransparency(SHIP_ALPHAS[a]);
+            GreenfootImage t = new GreenfootImage(thrust);
+            t.setTransparency(SHIP_ALPHAS[a]);
+            ship[0][a] = b;
+            ship[1][a] = t;
+        }
+    }
+
+    private static GreenfootImage buildBullet() {
+        // Pequeño óvalo brillante
+        int r = 4;
+        GreenfootImage img = new GreenfootImage(2*r, 2*r);
+        img.setColor(new Color(255, 255, 255));
+        img.fillOval(0, 0, 2*r-1, 2*r-1);
+        // Halo leve
+        img.setColor(new Color(255, 255, 255, 120));
+        img.drawOval(0, 0, 2*r-1, 2*r-1);
+        return img;
+    }
+
+    private static GreenfootImage buildEnemyBullet() {
+        // Rojo tenue para diferenciar de la bala del jugador
+        int r = 3;
+        GreenfootImage img = new GreenfootImage(2*r, 2*r);
+        img.setColor(new Color(255, 80, 80));
+        img.fillOval(0, 0, 2*r-1, 2*r-1);
+        return img;
+    }
+
+    /** Círculo con halo, en FADE_STEPS niveles de alpha (índice 0 = opaco). */
+    private static GreenfootImage[] buildFadeFrames(Color color, int radius) {
+        int d = Math.max(2, radius * 2);
+        GreenfootImage base = new GreenfootImage(d, d);
+        base.setColor(color);
+        base.fillOval(0, 0, d-1, d-1);
+        // halo suave
+        base.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 80));
+        base.drawOval(0, 0, d-1, d-1);
+
+        GreenfootImage[] frames = new GreenfootImage[FADE_STEPS];
+        for (int i = 0; i < FADE_STEPS; i++) {
+            GreenfootImage f = new GreenfootImage(base);
+            f.setTransparency(255 * (FADE_STEPS - i) / FADE_STEPS);
+            frames[i] = f;
+        }
+        return frames;
+    }
+}
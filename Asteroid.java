@@ -3,21 +3,28 @@ import java.util.Random;
 
 /**
  * Asteroide con tres tamaños (L/M/S):
- * - Movimiento con velocidad aleatoria y rotación.
+ * - Movimiento con velocidad aleatoria y rotación (escalada por el WaveDirector).
  * - Wrapping toroidal.
  * - División al recibir impacto de Bullet (L->2M, M->2S, S->nada).
  * - Asigna puntos al destruirse (L=20, M=50, S=100).
  *
+ * - Casco poligonal para colisiones precisas (ver Collision): los vértices
+ *   de la forma se rotan sólo cuando alguien los consulta.
+ *
  * Contratos:
- *  - Bullet: al colisionar llama a asteroid.onHitBy(this).
+ *  - Bullet: al colisionar publica GameEvents.rockHit; al drenar la cola el
+ *    mundo llama a asteroid.onHitBy(bala) una sola vez por roca.
  *  - AsteroidsWorld: expone addScore(int) y rng() para coherencia de aleatoriedad.
  */
-public class Asteroid extends Actor {
+public class Asteroid extends SpriteActor {
 
     public static enum Size { LARGE, MEDIUM, SMALL }
+    static final Size[] SIZES = Size.values(); // copia única (values() clona el array)
 
     // --------- Parámetros por tamaño (ajustables) ---------
     private static final int   R_L = 46, R_M = 28, R_S = 16;           // radio aprox (px)
+    /** Radio máximo de casco de cualquier roca (jitter hasta 1.15 * R_L). */
+    public static final int    MAX_HULL_RADIUS = (int) Math.ceil(R_L * 1.15) + 1;
     private static final double VMIN_L = 1.2,  VMAX_L = 2.0;           // px/frame
     private static final double VMIN_M = 1.8,  VMAX_M = 2.8;
     private static final double VMIN_S = 2.3,  VMAX_S = 3.5;
@@ -33,14 +40,25 @@ public class Asteroid extends Actor {
     private double rotSpeed;     // velocidad angular (grados/frame)
     private int radius;          // para colisiones simples y sprites
 
-    // --------- Visual ---------
-    private GreenfootImage sprite;
+    // --------- Visual (forma compartida, pre-renderizada por Assets) ---------
+    private RockShape shape;
+
+    // --------- Casco rotado (cache; relativo al centro) ---------
+    private final double[] hullX, hullY;
+    private int hullRotation = -1;       // rotación con la que se calculó el cache
 
     public Asteroid(Size size) {
+        this(size, (int) (Math.random() * Assets.ROCK_VARIANTS));
+    }
+
+    /** @param variant índice de polígono pre-renderizado (0..Assets.ROCK_VARIANTS-1) */
+    public Asteroid(Size size, int variant) {
         this.size = size;
-        this.radius = (size == Size.LARGE) ? R_L : (size == Size.MEDIUM ? R_M : R_S);
-        buildSprite();      // crea el polígono rocoso
-        setImage(sprite);
+        this.radius = radiusFor(size);
+        this.shape = Assets.rock(size, Math.floorMod(variant, Assets.ROCK_VARIANTS));
+        this.hullX = new double[shape.vertexCount()];
+        this.hullY = new double[shape.vertexCount()];
+        setImage(shape.getImage());
     }
 
     @Override
@@ -52,8 +70,8 @@ public class Asteroid extends Actor {
         AsteroidsWorld world = (AsteroidsWorld) w;
         Random rng = world.rng();
 
-        // Velocidad aleatoria según tamaño
-        double spd = randomInRange(rng, vMinFor(size), vMaxFor(size));
+        // Velocidad aleatoria según tamaño (más rápida en oleadas altas)
+        double spd = randomInRange(rng, vMinFor(size), vMaxFor(size)) * world.director().rockSpeedScale();
         double ang = randomInRange(rng, 0, Math.PI * 2);
         this.vx = Math.cos(ang) * spd;
         this.vy = Math.sin(ang) * spd;
@@ -83,7 +101,10 @@ public class Asteroid extends Actor {
 
     /* ================== Lógica de impacto ================== */
 
-    /** Llamado por Bullet al colisionar. */
+    /**
+     * Resuelve el impacto de una bala (lo llama GameEvents al drenar la cola).
+     * @param b bala que impactó (puede ser null: sin vector de impacto)
+     */
     public void onHitBy(Bullet b) {
         AsteroidsWorld world = (AsteroidsWorld) getWorld();
         if (world == null) return;
@@ -91,21 +112,20 @@ public class Asteroid extends Actor {
         // 1) Sumar puntos
         world.addScore(pointsFor(size));
 
-        // 2) Dividir si corresponde
+        // 2) Dividir si corresponde (los fragmentos se publican como eventos)
         if (size == Size.LARGE) {
-            spawnChildren(Size.MEDIUM, 2, b);
+            spawnChildren(world, Size.MEDIUM, 2, b);
         } else if (size == Size.MEDIUM) {
-            spawnChildren(Size.SMALL, 2, b);
+            spawnChildren(world, Size.SMALL, 2, b);
         }
         // 3) Remover este asteroide
         world.removeObject(this);
 
         // (Opcional: sonido/partículas)
-        Greenfoot.playSound("rock-break.wav"); // si tienes el audio
+        world.events().sound("rock-break.wav"); // si tienes el audio
     }
 
-    private void spawnChildren(Size childSize, int count, Bullet source) {
-        AsteroidsWorld world = (AsteroidsWorld) getWorld();
+    private void spawnChildren(AsteroidsWorld world, Size childSize, int count, Bullet source) {
         Random rng = world.rng();
 
         // Vector del impacto para darles impulso de separación
@@ -118,11 +138,11 @@ public class Asteroid extends Actor {
 
         // Crea hijos con pequeña variación angular
         for (int i = 0; i < count; i++) {
-            Asteroid child = new Asteroid(childSize);
-            world.addObject(child, (int)Math.round(x), (int)Math.round(y));
+            int variant = rng.nextInt(Assets.ROCK_VARIANTS);
 
             // Velocidad base aleatoria del hijo en su rango
-            double baseSpd = randomInRange(rng, vMinFor(childSize), vMaxFor(childSize));
+            double baseSpd = randomInRange(rng, vMinFor(childSize), vMaxFor(childSize))
+                             * world.director().rockSpeedScale();
             double baseAng = randomInRange(rng, 0, Math.PI * 2);
             double bvx = Math.cos(baseAng) * baseSpd;
             double bvy = Math.sin(baseAng) * baseSpd;
@@ -132,12 +152,22 @@ public class Asteroid extends Actor {
             double jx = nx * SPLIT_IMPULSE * sign;
             double jy = ny * SPLIT_IMPULSE * sign;
 
-            child.setVelocity(bvx + jx + this.vx * 0.2,  // hereda un poco de la velocidad madre
-                              bvy + jy + this.vy * 0.2);
-            child.randomizeRotation(world.rng());
+            world.events().spawnRock(childSize, variant, x, y,
+                                     bvx + jx + this.vx * 0.2,  // hereda un poco de la velocidad madre
+                                     bvy + jy + this.vy * 0.2);
         }
     }
 
+    /** Crea un fragmento ya con su velocidad (lo llama GameEvents al resolver SPAWN_ROCK). */
+    static Asteroid spawnFragment(AsteroidsWorld world, Size size, int variant,
+                                  double x, double y, double vx, double vy) {
+        Asteroid child = new Asteroid(size, variant);
+        world.addObject(child, (int)Math.round(x), (int)Math.round(y));
+        child.setVelocity(vx, vy);
+        child.randomizeRotation(world.rng());
+        return child;
+    }
+
     /* ================== Movimiento y utilidades ================== */
 
     private void wrapAround() {
@@ -164,7 +194,7 @@ public class Asteroid extends Actor {
         if (Math.abs(rotSpeed) < 0.2) rotSpeed = (rotSpeed < 0 ? -0.2 : 0.2);
     }
 
-    private static double vMinFor(Size s) {
+    static double vMinFor(Size s) {
         switch (s) {
             case LARGE:  return VMIN_L;
             case MEDIUM: return VMIN_M;
@@ -172,7 +202,7 @@ public class Asteroid extends Actor {
         }
     }
 
-    private static double vMaxFor(Size s) {
+    static double vMaxFor(Size s) {
         switch (s) {
             case LARGE:  return VMAX_L;
             case MEDIUM: return VMAX_M;
@@ -180,7 +210,16 @@ public class Asteroid extends Actor {
         }
     }
 
-    private static int pointsFor(Size s) {
+    /** Radio nominal (px) de cada tamaño; también lo usa Assets para las formas. */
+    static int radiusFor(Size s) {
+        switch (s) {
+            case LARGE:  return R_L;
+            case MEDIUM: return R_M;
+            default:     return R_S;
+        }
+    }
+
+    static int pointsFor(Size s) {
         switch (s) {
             case LARGE:  return PTS_L;
             case MEDIUM: return PTS_M;
@@ -192,47 +231,30 @@ public class Asteroid extends Actor {
         return a + rng.nextDouble() * (b - a);
     }
 
-    /* ================== Visual (polígono “rocoso”) ================== */
-
-    private void buildSprite() {
-        // Imagen cuadrada con tamaño acorde al radio
-        int sz = radius * 2 + 2;
-        GreenfootImage img = new GreenfootImage(sz, sz);
-
-        // Polígono dentado: N vértices con jitter radial
-        int verts = Math.max(8, (int) Math.round(radius / 2.5)); // más grande => más vértices
-        int cx = sz / 2, cy = sz / 2;
-
-        int[] xs = new int[verts];
-        int[] ys = new int[verts];
-
-        // Semilla simple: usar Math.random aquí no afecta la coherencia del juego
-        for (int i = 0; i < verts; i++) {
-            double t = (2 * Math.PI * i) / verts;
-            double jitter = 0.75 + Math.random() * 0.4; // 0.75..1.15
-            double r = radius * jitter;
-            xs[i] = (int) Math.round(cx + Math.cos(t) * r);
-            ys[i] = (int) Math.round(cy + Math.sin(t) * r);
+    /* ================== Casco poligonal ================== */
+
+    /** Rota los vértices de la forma a la rotación actual (sólo si cambió). */
+    void updateHull() {
+        int rot = getRotation();
+        if (rot == hullRotation) return;
+        hullRotation = rot;
+        double rad = Math.toRadians(rot);
+        double c = Math.cos(rad), s = Math.sin(rad);
+        for (int i = 0; i < hullX.length; i++) {
+            double lx = shape.vertexX(i), ly = shape.vertexY(i);
+            hullX[i] = lx * c - ly * s;
+            hullY[i] = lx * s + ly * c;
         }
-
-        // Relleno + contorno
-        img.setColor(new Color(200, 200, 200));
-        img.fillPolygon(xs, ys, verts);
-        img.setColor(new Color(140, 140, 140));
-        img.drawPolygon(xs, ys, verts);
-
-        // Sombras simples
-        img.setColor(new Color(255, 255, 255, 30));
-        img.drawLine(cx, cy, cx + radius, cy); // brillo
-        img.setColor(new Color(0, 0, 0, 40));
-        img.drawLine(cx, cy, cx - radius, cy); // sombra
-
-        this.sprite = img;
     }
 
+    int    hullSize()    { return hullX.length; }
+    double hullX(int i)  { return hullX[i]; }
+    double hullY(int i)  { return hullY[i]; }
+
     /* ================== Getters útiles ================== */
     public Size getSizeType() { return size; }
     public int  getRadius()   { return radius; }
+    public RockShape getShape() { return shape; }
     public double getVX()     { return vx; }
     public double getVY()     { return vy; }
 }
@@ -1,20 +1,35 @@
 import greenfoot.*;           // World, Actor, GreenfootImage, Greenfoot
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
+import java.util.function.IntSupplier;
+import java.util.concurrent.atomic.AtomicReference;
 import java.awt.Color;
 
 /**
  * Mundo principal del juego Asteroids.
  * - Mantiene estado global: puntaje, vidas, oleada, inicio/fin de juego.
- * - Genera oleadas de asteroides con aparición segura respecto al jugador.
+ * - Genera oleadas de asteroides con aparición segura respecto al jugador; el
+ *   WaveDirector mantiene acotado el número de entidades vivas.
  * - Muestra HUD con score/vidas/oleada e instrucciones.
- * - Maneja respawn y reinicio.
+ * - Maneja respawn y reinicio; cooperativo local (startCoop) y modo arena (startArena).
+ * - Un tick: act (lógica del mundo y TimerWheel), el act de los actores y
+ *   endOfFrame (colisiones y GameEvents, desde CollisionPass).
+ * - Lleva un registro de actores vivos y pools de balas/partículas para que el
+ *   tick en régimen estable no reserve memoria (ver AllocationProbe).
+ *
+ * Entrada, telemetría, métricas, caja negra, sonido, fondo y opciones de
+ * pantalla llegan en un WorldServices (standalone en Greenfoot, hosted en
+ * SessionHost); el mundo no distingue de dónde vienen.
  *
  * Requiere (siguientes pasos):
  *  - class PlayerShip extends Actor
  *  - class Asteroid extends Actor con enum Size { LARGE, MEDIUM, SMALL }
  */
-public class AsteroidsWorld extends World {
+public class AsteroidsWorld extends World implements TimerWheel.Listener {
 
     // --- Dimensiones del mundo ---
     public static final int WIDTH  = 900;
@@ -23,41 +38,210 @@ public class AsteroidsWorld extends World {
 
     // --- Estado de juego ---
     private boolean gameStarted = false;
+    private boolean startRequested = false;     // ENTER: la partida empieza al principio del próximo act
     private boolean waveClearedBanner = false;
 
     private int score = 0;
     private int lives = 3;
     private int wave  = 0;
 
-    // Retraso para lanzar la siguiente oleada (en frames)
+    // Retraso para lanzar la siguiente oleada (en frames); corre en la TimerWheel
     private int nextWaveDelayFrames = 0;
+    private int waveTimer = TimerWheel.NONE;
+
+    // Aviso corto al pie de la pantalla (clip guardado...): otros hilos lo dejan
+    // en pendingNotice y act lo muestra; se borra solo (TIMER_NOTICE)
+    private static final int NOTICE_FRAMES = 180;
+    private final AtomicReference<String> pendingNotice = new AtomicReference<>();
+    private int noticeTimer = TimerWheel.NONE;
+    private boolean waveDue = false;            // venció: la oleada sale en el próximo act
 
-    // RNG
-    private final Random rng = new Random();
+    // RNG (la semilla se guarda con la entrada grabada: ver recordInput / replay)
+    private long seed = new Random().nextLong();
+    private final Random rng = new Random(seed);
+    private boolean recordPending = false;      // recordInput: se graba desde el próximo startGame
+
+    // Director de oleadas: cuota, refuerzos, OVNIs y tope de entidades vivas
+    private final WaveDirector director = new WaveDirector();
 
     // Parámetros de balance (ajustables)
-    private int   baseLargeAsteroids = 5;      // L en oleada 1
-    private float waveBudgetFactor   = 1.25f;  // crecimiento de presupuesto por oleada
     private int   safeSpawnRadius    = 140;    // radio seguro alrededor del Player
     private int   respawnDelayFrames = 45;     // frames antes de respawnear Player
 
-    // Control de respawn
-    private int respawnTimer = 0;
+    // Jugadores: naves en juego (una por puesto) y respawn pendiente de cada puesto
+    private int playerCount = Math.max(1, Math.min(PlayerControls.MAX_PLAYERS,
+                                                   Integer.getInteger("asteroids.players", 1)));
+    private int slots = 1;                       // puestos de la partida en curso
+    private final PlayerShip[] ships = new PlayerShip[PlayerControls.MAX_PLAYERS];
+    private final int[] respawnTimers = new int[PlayerControls.MAX_PLAYERS];   // handles de TimerWheel
+    private final boolean[] respawnDue = new boolean[PlayerControls.MAX_PLAYERS];
+    private PlayerControls scriptedControls = null;   // != null: naves sin teclado (setInputScript)
+
+    // Precarga de recursos (último % mostrado en la pantalla de título)
+    private int shownLoadPercent = -1;
+
+    // --- Registro de actores vivos (evita getObjects en cada frame) ---
+    private final List<Actor>    actors    = new ArrayList<>();
+    private int actorHoles;   // bajas pendientes de compactar en 'actors'
+    private final List<Asteroid> asteroids = new ArrayList<>();
+    private final List<Bullet>   bullets   = new ArrayList<>();
+    private final List<EnemyBullet> enemyBullets = new ArrayList<>();
+    private final List<UFO>      ufos      = new ArrayList<>();
+    private final List<PlayerShip> players = new ArrayList<>();
+    private int particleCount = 0;
+
+    // --- Pools de actores de vida corta (se devuelven al sacarlos del mundo) ---
+    private final ActorPool<Bullet>      bulletPool      = new ActorPool<>(Bullet::new, 16);
+    private final ActorPool<EnemyBullet> enemyBulletPool = new ActorPool<>(EnemyBullet::new, 16);
+    private final ActorPool<Particle>    particlePool    = new ActorPool<>(Particle::new, 256);
+
+    // Resultado de la última búsqueda de posición segura (evita devolver int[])
+    private int spawnX, spawnY;
+
+    // Últimos valores pintados en el HUD / mensajes (sólo se redibuja al cambiar)
+    private int hudScore = -1, hudLives = -1, hudWave = -1;
+    private boolean gameOverShown = false;
+
+    // Telemetría de la sesión y reloj de ticks
+    private final Telemetry telemetry;
+    private final Metrics metrics;
+    private InputQueue input;
+    private static final int KEY_ENTER = InputQueue.keyIndex("enter"), KEY_F3 = InputQueue.keyIndex("f3"),
+                             KEY_F9 = InputQueue.keyIndex("f9"), KEY_F10 = InputQueue.keyIndex("f10");
+    private int tick = 0;
+    private long lastActNanos = 0;
+    private long lastFrameNanos = 0;     // duración del último frame (act a act)
+    private long actEndNanos = 0;        // fin del act anterior (0 = recién empezado o tras una pausa)
+    private final FlightRecorder flight; // caja negra: vuelca los segundos antes de un tirón
+
+    // Fondo ya pintado que da WorldServices (null = el propio) y tope de partículas
+    private final boolean sound;
+    private final GreenfootImage backdrop;
+    private int particleLimit = Integer.MAX_VALUE;
+    private boolean waveActive = false;  // hay una oleada en curso (para registrar WAVE_CLEAR)
+
+    // Temporizadores de todo el juego (avanza al final de act; tipos del mundo abajo)
+    private final TimerWheel timers = new TimerWheel(512);
+    private static final int TIMER_WAVE = 0, TIMER_NOTICE = 1, TIMER_RESPAWN = 2;  // RESPAWN + puesto
+
+    // Eventos de juego diferidos (se resuelven una vez por tick, en endOfFrame)
+    private final GameEvents events = new GameEvents(this, 256);
+
+    // Colisiones: una pasada por tick (rejilla + matriz de pares), publica en events
+    private final CollisionSystem collisions = new CollisionSystem(this, WIDTH, HEIGHT);
+
+    // Trabajo cosmético de a trozos, con presupuesto por frame (-Dasteroids.workBudgetUs)
+    private final SpawnScheduler scheduler = new SpawnScheduler(Integer.getInteger("asteroids.workBudgetUs", 2000));
+
+    // Copia de la lista de actores para step() (se reutiliza entre ciclos)
+    private Actor[] stepBuffer = new Actor[64];
+
+    // Dibujo por lotes (null = cada actor lo compone Greenfoot, como siempre)
+    private BatchRenderer batchRenderer = null;
+
+    // Resolución interna del dibujo por lotes, en % (la simulación sigue a tamaño completo)
+    private int renderScale = 100;
+    private Starfield starfield;          // el fondo sorteado (se pinta a cualquier escala)
+    private GreenfootImage scaledBackground = null;   // el fondo a renderScale (null al 100 %)
+
+    // Overlay de rendimiento (F3); oculto = fuera del mundo
+    private PerfOverlay perfOverlay = null;
+    private final CollisionPass collisionPass = new CollisionPass();
+    private boolean perfVisible = false;
+    private boolean perfKeyDown = false;
+
+    // Captura de clips (null = apagada); F9 guarda los últimos segundos, F10 graba
+    private static final int CAPTURE_FPS = 60, CAPTURE_SECONDS = 20;
+    private FrameCapture capture = null;
+    private boolean saveKeyDown = false, recordKeyDown = false;
+
+    // Transmisión a espectadores (null = apagada)
+    private SpectatorServer spectators = null;
+
+    // Modo arena: campo de rocas de muchas pantallas y cámara que sigue a la nave
+    private int arenaRocks = Integer.getInteger("asteroids.arena", 0); // 0 = juego clásico
+    private ArenaField arena = null;
+    private ArenaSim arenaSim = null;    // avanza 'arena' solapado con el resto del frame
+    private double camX = 0, camY = 0;   // esquina superior izquierda de la vista (coords. de arena)
 
     public AsteroidsWorld() {
+        this(WorldServices.standalone());
+    }
+
+    /** Con lo que den los servicios (p.ej. WorldServices.hosted para SessionHost). */
+    AsteroidsWorld(WorldServices services) {
         // bounded=false (warp visual “infinito” más cómodo para Asteroids)
         super(WIDTH, HEIGHT, CELL, false);
+        Assets.warmUp(); // sonidos y sprites en paralelo mientras se ve el título
+        input = services.input;
+        telemetry = services.telemetry;
+        metrics = services.metrics;
+        flight = services.flight;
+        sound = services.sound;
+        backdrop = services.backdrop;
+        // Actores, luego colisiones y eventos (CollisionPass); BatchRenderer y HUD al final
+        setActOrder(SpriteActor.class, CollisionPass.class);
+        setPaintOrder(PerfOverlay.class, HUD.class, SpriteActor.class, BatchRenderer.class);
         buildStarfieldBackground();
         drawTitleScreen();
+        addObject(collisionPass, 0, 0);
+        if (services.batchRendering) setBatchRendering(true);
+        if (services.renderScale < 100) setRenderScale(services.renderScale);
+        if (services.capture) setCapture(true);
+        if (services.spectatorPort > 0) setSpectatorPort(services.spectatorPort);
     }
 
     @Override
     public void act() {
+        // Antes del tick, como startCoop desde fuera: la partida grabada empieza
+        // igual venga de ENTER o de una llamada (ver recordInput)
+        if (startRequested) {
+            startRequested = false;
+            startGame();
+        }
+        tick++;
+        compactActors();   // las bajas del frame anterior
+        long now = System.nanoTime();
+        if (gameStarted && lastActNanos != 0) {
+            lastFrameNanos = now - lastActNanos;
+            log(Telemetry.FRAME_TIME, (int) Math.min(Integer.MAX_VALUE, lastFrameNanos / 1000), 0);
+            metrics.tick(lastFrameNanos);
+        }
+        long outside = (actEndNanos != 0) ? now - actEndNanos : 0;
+        flight.beginFrame(now, (gameStarted && lastActNanos != 0) ? lastFrameNanos : 0, outside,
+                          (batchRenderer != null) ? batchRenderer.getRenderNanos() : 0);
+        lastActNanos = now;
+        input.beginFrame(tick, now);   // eventos de teclado desde el act anterior
+
+        // F3: overlay de rendimiento (flanco de subida)
+        boolean f3 = input.isDown(KEY_F3);
+        if (f3 && !perfKeyDown) togglePerfOverlay();
+        perfKeyDown = f3;
+
+        // F9: guardar los últimos segundos; F10: grabar / dejar de grabar
+        boolean f9 = input.isDown(KEY_F9);
+        if (f9 && !saveKeyDown) saveClip();
+        saveKeyDown = f9;
+        boolean f10 = input.isDown(KEY_F10);
+        if (f10 && !recordKeyDown) toggleRecording();
+        recordKeyDown = f10;
+        String notice = pendingNotice.getAndSet(null);
+        if (notice != null) showNotice(notice);
+
         if (!gameStarted) {
+            // La pantalla de título tiene tiempo de sobra: adelanta el trabajo pendiente
+            scheduler.run();
+            // Mientras se precargan recursos, sólo se actualiza el progreso
+            if (shownLoadPercent < 100) {
+                updateLoadingProgress();
+                actEndNanos = System.nanoTime();
+                return;
+            }
             // Espera a que el usuario presione ENTER para comenzar/reiniciar
-            if (Greenfoot.isKeyDown("enter")) {
-                startGame();
+            if (input.isDown(KEY_ENTER)) {
+                startRequested = true;
             }
+            actEndNanos = System.nanoTime();
             return;
         }
 
@@ -67,91 +251,332 @@ public class AsteroidsWorld extends World {
         // Respawn del jugador si está pendiente
         tickRespawn();
 
-        // Si no quedan asteroides, preparar siguiente oleada
-        if (getObjects(Asteroid.class).isEmpty() && respawnTimer == 0) {
-            if (nextWaveDelayFrames == 0) {
-                waveClearedBanner = true;
-                nextWaveDelayFrames = 60; // ~1 segundo a 60 FPS
-                showCenteredMessage("¡Oleada despejada!", 40);
-            } else {
-                nextWaveDelayFrames--;
+        // Modo arena: el campo avanzó en el hilo de ArenaSim; se espera a que termine
+        // (desde aquí es sólo de este hilo hasta el launch del final). Sin oleadas.
+        if (arena != null) {
+            arenaSim.awaitStep();
+        } else {
+            // Refuerzos y OVNIs a mitad de oleada (sin pasar del presupuesto de vivos)
+            director.tick(this);
+        }
+
+        // Si no quedan asteroides ni refuerzos por llegar, preparar siguiente oleada
+        boolean waveDone = arena == null && asteroids.isEmpty() && director.isExhausted();
+        if (waveActive && waveDone) {
+            waveActive = false;
+            log(Telemetry.WAVE_CLEAR, wave, 0);
+        }
+        if (waveDone && !respawnPending()) {
+            if (!waveDue && waveTimer == TimerWheel.NONE) {
                 if (nextWaveDelayFrames == 0) {
-                    clearCenterMessage();
-                    waveClearedBanner = false;
-                    spawnNextWave();
+                    waveClearedBanner = true;
+                    nextWaveDelayFrames = 60; // ~1 segundo a 60 FPS
+                    showCenteredMessage("¡Oleada despejada!", 40);
+                    waveTimer = timers.schedule(this, TIMER_WAVE, nextWaveDelayFrames);
+                    // El cartel deja el frame casi vacío: rotaciones de la oleada que viene
+                    if (batchRenderer != null) scheduler.submit(batchRenderer.warmUp());
+                } else if (nextWaveDelayFrames > 1) {
+                    // Quedaba cuenta pendiente: este act ya descuenta uno
+                    waveTimer = timers.schedule(this, TIMER_WAVE, nextWaveDelayFrames - 1);
+                } else {
+                    waveDue = true;
                 }
             }
+            if (waveDue) {
+                waveDue = false;
+                nextWaveDelayFrames = 0;
+                clearCenterMessage();
+                waveClearedBanner = false;
+                spawnNextWave();
+            }
         }
 
         // Reinicio rápido: si Game Over, ENTER para reiniciar
-        if (lives <= 0 && getObjects(PlayerShip.class).isEmpty()) {
-            showCenteredMessage("GAME OVER — ENTER para reiniciar", 36);
-            if (Greenfoot.isKeyDown("enter")) {
-                startGame();
+        if (lives <= 0 && players.isEmpty()) {
+            if (!gameOverShown) {
+                gameOverShown = true;
+                showCenteredMessage("GAME OVER — ENTER para reiniciar", 36);
+            }
+            if (input.isDown(KEY_ENTER)) {
+                startRequested = true;
             }
         }
 
+        flight.mark(FlightRecorder.GAME);
+
+        // Vencimientos del tick: TTL, recargas, respawn... (antes del act de los actores)
+        timers.advance();
+        flight.mark(FlightRecorder.TIMERS);
+        // Sigue en endOfFrame, después de que los actores se movieron
+    }
+
+    /**
+     * Segunda mitad del frame, desde CollisionPass: los actores ya se movieron,
+     * así los contactos son los de este frame (sin un tick de retraso).
+     */
+    void endOfFrame() {
+        if (!gameStarted) return;
+        flight.mark(FlightRecorder.GAME);   // el act de los actores
+
+        // Todos los contactos del tick en una pasada (con las posiciones recién movidas)
+        collisions.run();
+        flight.mark(FlightRecorder.COLLISIONS);
+
+        // Impactos, muertes, fragmentos, partículas y sonidos publicados
+        events.drain();
+        flight.mark(FlightRecorder.EVENTS);
+
+        metrics.live(asteroids.size(), bullets.size(), particleCount, ufos.size(), enemyBullets.size(), wave);
+
+        // Foto del tick para los espectadores (el servidor la codifica y envía en su hilo)
+        if (spectators != null) spectators.publish(this);
+        flight.mark(FlightRecorder.PUBLISH);
+
+        // Trabajo cosmético pendiente, hasta agotar el presupuesto del frame
+        scheduler.run();
+        flight.mark(FlightRecorder.SCHEDULER);
+
+        // Foto del campo ya resuelto para pintar este frame, y el tick siguiente en paralelo
+        if (arenaSim != null) {
+            arenaSim.launch(camX + WIDTH / 2.0, camY + HEIGHT / 2.0, camX, camY);
+        }
+        flight.mark(FlightRecorder.GAME);
+        flight.endFrame(this);
+        actEndNanos = System.nanoTime();
+    }
+
+    /**
+     * Greenfoot vuelve a correr (Run tras una pausa): el primer frame no se mide,
+     * si no la pausa entera contaría como un tirón (métricas, telemetría, caja negra).
+     */
+    @Override
+    public void started() {
+        lastActNanos = 0;
+        actEndNanos = 0;
     }
 
     /* ===================== Ciclo de vida del juego ===================== */
 
-    /** Comienza/Resetea una partida nueva. */
-    private void startGame() {
+    /**
+     * Comienza/Resetea una partida nueva. Si se pidió recordInput, la grabación
+     * empieza aquí, con el RNG de vuelta en la semilla.
+     */
+    void startGame() {
+        if (recordPending) {
+            recordPending = false;
+            rng.setSeed(seed);
+            input.setRecording(true, seed);
+        }
+        startRequested = false;
         gameStarted = true;
+        gameOverShown = false;
         waveClearedBanner = false;
         score = 0;
-        lives = 3;
+        slots = (arenaRocks > 0) ? 1 : playerCount; // la cámara del modo arena sigue a una sola nave
+        lives = 3 * slots;
         wave  = 0;
         nextWaveDelayFrames = 0;
-        respawnTimer = 0;
 
         // Limpia todo lo que hubiera
+        events.clear();
         removeObjects(getObjects(Actor.class));
+        timers.clear();   // los actores ya cancelaron los suyos; quedan los del mundo
+        waveTimer = TimerWheel.NONE;
+        waveDue = false;
+        if (noticeTimer != TimerWheel.NONE) clearNotice();
+        Arrays.fill(respawnTimers, TimerWheel.NONE);
+        Arrays.fill(respawnDue, false);
         buildStarfieldBackground();
         clearCenterMessage();
+        addObject(collisionPass, 0, 0);
+        if (batchRenderer != null) addObject(batchRenderer, WIDTH / 2, HEIGHT / 2);
+        if (perfVisible) addPerfOverlay();
 
-        // Crea jugador y primera oleada
-        spawnPlayerSafely();
+        // Instancias listas de antemano para que el primer combate no reserve memoria
+        bulletPool.prefill(16);
+        enemyBulletPool.prefill(16);
+        particlePool.prefill(256);
+
+        // Modo arena: campo nuevo con la nave en el centro de la vista; sin oleadas
+        if (arenaSim != null) arenaSim.awaitStep(); // el campo viejo no debe seguir en uso
+        arenaSim = null;
+        if (arenaRocks > 0) {
+            camX = camY = 0;
+            arena = ArenaField.generate(arenaRocks, WIDTH, HEIGHT, rng,
+                                        WIDTH / 2.0, HEIGHT / 2.0, safeSpawnRadius);
+            arenaSim = new ArenaSim(arena, WIDTH, HEIGHT);
+            arenaSim.launch(camX + WIDTH / 2.0, camY + HEIGHT / 2.0, camX, camY); // primer tick
+            setBatchRendering(true); // el campo sólo se ve a través del BatchRenderer
+            spawnPlayerSafely(0);
+            return;
+        }
+        arena = null;
+
+        // Crea jugadores y primera oleada
+        for (int slot = 0; slot < slots; slot++) spawnPlayerSafely(slot);
         spawnNextWave();
     }
 
-    /** Avanza contador de respawn del jugador (si aplica). */
+    /** Reaparece los puestos cuyo respawn venció (si aplica). */
     private void tickRespawn() {
-        if (respawnTimer > 0) {
-            respawnTimer--;
-            if (respawnTimer == 0 && lives > 0 && getObjects(PlayerShip.class).isEmpty()) {
-                spawnPlayerSafely();
+        for (int slot = 0; slot < slots; slot++) {
+            if (respawnDue[slot]) {
+                respawnDue[slot] = false;
+                if (lives > 0 && ships[slot] == null) spawnPlayerSafely(slot);
             }
         }
     }
 
-    /** Lanza la siguiente oleada en función del número de oleada y presupuesto. */
+    private boolean respawnPending() {
+        for (int slot = 0; slot < slots; slot++) {
+            if (respawnPending(slot)) return true;
+        }
+        return false;
+    }
+
+    private boolean respawnPending(int slot) {
+        return respawnTimers[slot] != TimerWheel.NONE || respawnDue[slot];
+    }
+
+    /** Vencimientos de los temporizadores del mundo (ver TimerWheel). */
+    @Override
+    public void onTimer(int kind) {
+        if (kind == TIMER_WAVE) {
+            waveTimer = TimerWheel.NONE;
+            nextWaveDelayFrames = 0;
+            waveDue = true;
+        } else if (kind == TIMER_NOTICE) {
+            clearNotice();
+        } else {
+            int slot = kind - TIMER_RESPAWN;
+            respawnTimers[slot] = TimerWheel.NONE;
+            respawnDue[slot] = true;
+        }
+    }
+
+    /**
+     * Lanza la siguiente oleada. El director decide cuántas rocas entran de
+     * inmediato; el resto llega como refuerzos mientras haya presupuesto.
+     */
     private void spawnNextWave() {
         wave++;
-        // Presupuesto crece por oleada (L ~2 pts, M ~1 pt, S ~0.5 pt), aquí simplificado
-        int budget = Math.max(1, Math.round((float)baseLargeAsteroids * (float)Math.pow(waveBudgetFactor, wave - 1)));
-
-        // En oleadas bajas: más L; luego mezcla. S se generará al destruir L y M.
-        int numLarge = Math.max(3, budget);
-        for (int i = 0; i < numLarge; i++) {
+        int opening = director.beginWave(wave, rng);
+        for (int i = 0; i < opening; i++) {
             spawnAsteroidSafely(Asteroid.Size.LARGE);
         }
+        waveActive = true;
+        log(Telemetry.WAVE_START, wave, opening);
 
         showCenteredMessage("Oleada " + wave, 32);
         nextWaveDelayFrames = 45;
         waveClearedBanner = true;
-        
-                // Dentro de AsteroidsWorld.spawnNextWave()
-        if (rng.nextDouble() < 0.15) { // 15% de probabilidad por oleada
-            UFO.Type type = (wave >= 4 && rng.nextBoolean()) ? UFO.Type.SMALL : UFO.Type.LARGE;
-            double acc   = (type == UFO.Type.SMALL) ? 0.65 + 0.1*wave : 0.30 + 0.07*wave;
-            acc = Math.min(0.95, acc);
-            UFO ufo = new UFO(type, acc);
-            // Lo agregamos justo fuera de pantalla para que "entre"
-            int y = 40 + rng.nextInt(getHeight() - 80);
-            int x = rng.nextBoolean() ? -1 : getWidth() + 1; // bordes
-            addObject(ufo, x, y);
-        }        
+
+        if (rng.nextDouble() < director.openingUfoChance()) {
+            spawnUfo();
+        }
+    }
+
+    /**
+     * Comienza una partida en modo arena: un toro de muchas pantallas con
+     * 'rocks' asteroides (p.ej. 50000) y cámara que sigue a la nave.
+     * También se activa con -Dasteroids.arena=N. Con 0 vuelve al juego clásico.
+     */
+    public void startArena(int rocks) {
+        arenaRocks = Math.max(0, rocks);
+        startGame();
+    }
+
+    /**
+     * Comienza una partida cooperativa con 'players' naves (1..4) en el mismo
+     * teclado; ver PlayerControls.forPlayer. También con -Dasteroids.players=N.
+     */
+    public void startCoop(int players) {
+        playerCount = Math.max(1, Math.min(PlayerControls.MAX_PLAYERS, players));
+        startGame();
+    }
+
+    /**
+     * Recentra la vista en la nave: la cámara avanza lo que se movió la nave y
+     * todos los actores (en coordenadas de pantalla) se desplazan al revés.
+     * Lo llama el BatchRenderer justo antes de pintar.
+     */
+    void followCamera() {
+        PlayerShip player = getPlayer();
+        if (arena == null || player == null) return;
+        double dx = player.getX() - WIDTH / 2.0;
+        double dy = player.getY() - HEIGHT / 2.0;
+        if (dx == 0 && dy == 0) return;
+        camX = wrapCoord(camX + dx, arena.getWidth());
+        camY = wrapCoord(camY + dy, arena.getHeight());
+        compactActors();
+        for (int i = 0; i < actors.size(); i++) {
+            Actor a = actors.get(i);
+            if (a instanceof SpriteActor) ((SpriteActor) a).scrollBy(-dx, -dy);
+        }
+    }
+
+    private static double wrapCoord(double v, double period) {
+        v %= period;
+        return (v < 0) ? v + period : v;
+    }
+
+    /**
+     * Las naves que aparezcan desde ahora (también al reaparecer) leen sus
+     * acciones de 'buttons' (máscara de PlayerControls) en vez del teclado; null
+     * vuelve al teclado. Para herramientas sin interfaz (p.ej. FrameFuzzer).
+     */
+    void setInputScript(IntSupplier buttons) {
+        scriptedControls = (buttons != null) ? PlayerControls.scripted(buttons) : null;
+    }
+
+    /**
+     * Cambia la entrada del juego (la anterior deja de escuchar el teclado).
+     * Para repetir una partida grabada, replay.
+     */
+    void setInput(InputQueue in) {
+        if (in == input) return;
+        input.close();
+        input = in;
+    }
+
+    /**
+     * Graba la próxima partida: desde su startGame (ENTER, startCoop...) con la
+     * semilla del mundo y los ticks contados desde ahí; input().recorded()
+     * devuelve la grabación para replay. La pantalla de título (cuánto tardó
+     * la carga, cuándo se apretó ENTER) no forma parte de la grabación.
+     */
+    void recordInput() {
+        recordPending = true;
+    }
+
+    /**
+     * Repite una partida grabada con recordInput en este mundo recién creado:
+     * empieza la partida ya (sin título ni carga), con la misma semilla, y los
+     * eventos llegan en los mismos ticks desde el comienzo. El modo de juego
+     * (startCoop, startArena) se elige antes, como en el mundo grabado.
+     */
+    void replay(InputQueue.Recording r) {
+        if (tick != 0) throw new IllegalStateException("Se repite desde el primer act");
+        seed = r.seed();
+        setInput(InputQueue.replay(r));
+        recordPending = false;
+        rng.setSeed(seed);
+        startGame();
+    }
+
+    /** Refuerzo a mitad de oleada (lo pide el WaveDirector). */
+    void spawnReinforcement() {
+        spawnAsteroidSafely(Asteroid.Size.LARGE);
+    }
+
+    /** Crea un OVNI justo fuera de pantalla para que "entre" (tipo y precisión según la oleada). */
+    void spawnUfo() {
+        UFO.Type type = director.ufoType(rng);
+        UFO ufo = new UFO(type, director.ufoAccuracy(type));
+        int y = 40 + rng.nextInt(getHeight() - 80);
+        int x = rng.nextBoolean() ? -1 : getWidth() + 1; // bordes
+        addObject(ufo, x, y);
+        log(Telemetry.UFO_SPAWN, type.ordinal(), 0);
     }
 
     /* ========================= API pública (desde actores) ========================= */
@@ -159,102 +584,116 @@ public class AsteroidsWorld extends World {
     /** Suma puntos (llamar desde Asteroid/UFO al destruirse). */
     public void addScore(int points) {
         score = Math.max(0, score + points);
+        log(Telemetry.SCORE, points, score);
+        metrics.scored(points);
     }
 
     /**
-     * Llamar cuando el jugador pierde una vida (p.ej., PlayerShip al explotar).
-     * El mundo gestiona respawn o game over.
+     * Llamar cuando una nave pierde una vida (PlayerShip al explotar, antes de salir).
+     * El mundo gestiona respawn o game over. Las vidas son del equipo e incluyen
+     * las naves en juego: el puesto reaparece sólo si sobra una vida para él.
      */
-    public void loseLife() {
+    public void loseLife(PlayerShip ship) {
         if (lives <= 0) return; // ya estaba en game over
         lives--;
-        if (lives > 0) {
-            respawnTimer = respawnDelayFrames;
+        log(Telemetry.LIFE_LOST, lives, 0);
+        metrics.lifeLost();
+        int reserved = 0;       // vidas ocupadas por las otras naves (en juego o por reaparecer)
+        for (int slot = 0; slot < slots; slot++) {
+            if (slot == ship.getSlot()) continue;
+            if (ships[slot] != null || respawnPending(slot)) reserved++;
+        }
+        if (lives > reserved) {
+            respawnTimers[ship.getSlot()] = timers.schedule(this, TIMER_RESPAWN + ship.getSlot(), respawnDelayFrames);
             showCenteredMessage("¡Has perdido una vida!", 32);
-        } else {
+        } else if (lives <= 0) {
             // Fin del juego
-            respawnTimer = 0;
             showCenteredMessage("GAME OVER — ENTER para reiniciar", 36);
         }
     }
 
     /* ========================= Spawns seguros ========================= */
 
-    /** Crea el jugador en el centro o en la posición segura más cercana. */
-    private void spawnPlayerSafely() {
+    /** Crea la nave del puesto 'slot' en una posición segura respecto a las demás naves. */
+    private void spawnPlayerSafely(int slot) {
         int cx = WIDTH / 2;
         int cy = HEIGHT / 2;
 
         // Intenta el centro; si no es seguro, busca otra posición
-        int[] pos = findSafeSpawnPosition(cx, cy, safeSpawnRadius);
-        PlayerShip ship = new PlayerShip();
-        addObject(ship, pos[0], pos[1]);
+        findSafeSpawnPosition(cx, cy, safeSpawnRadius);
+        PlayerControls controls = (scriptedControls != null) ? scriptedControls
+                                : (slots == 1) ? PlayerControls.solo() : PlayerControls.forPlayer(slot);
+        PlayerShip ship = new PlayerShip(slot, controls);
+        addObject(ship, spawnX, spawnY);
         clearCenterMessage();
     }
 
-    /** Crea un asteroide del tamaño dado en una posición segura respecto al Player. */
+    /** Crea un asteroide del tamaño dado en una posición segura respecto a las naves. */
     private void spawnAsteroidSafely(Asteroid.Size size) {
         // Intentar esquinas y bordes alejados del jugador
-        int[][] candidates = new int[][] {
-            {rng.nextInt(WIDTH), 0},
-            {rng.nextInt(WIDTH), HEIGHT-1},
-            {0, rng.nextInt(HEIGHT)},
-            {WIDTH-1, rng.nextInt(HEIGHT)},
-            {rng.nextInt(WIDTH), rng.nextInt(HEIGHT)} // extra
-        };
-
-        int[] pos = null;
-        for (int[] c : candidates) {
-            if (isSafeFromPlayer(c[0], c[1], safeSpawnRadius)) {
-                pos = c;
-                break;
-            }
-        }
-        if (pos == null) {
+        int topX = rng.nextInt(WIDTH), bottomX = rng.nextInt(WIDTH);
+        int leftY = rng.nextInt(HEIGHT), rightY = rng.nextInt(HEIGHT);
+        int extraX = rng.nextInt(WIDTH), extraY = rng.nextInt(HEIGHT);
+
+        if (!trySpawnAt(topX, 0)
+            && !trySpawnAt(bottomX, HEIGHT-1)
+            && !trySpawnAt(0, leftY)
+            && !trySpawnAt(WIDTH-1, rightY)
+            && !trySpawnAt(extraX, extraY)) {
             // Búsqueda aleatoria con límite de intentos
-            pos = findSafeSpawnPosition(rng.nextInt(WIDTH), rng.nextInt(HEIGHT), safeSpawnRadius);
+            findSafeSpawnPosition(rng.nextInt(WIDTH), rng.nextInt(HEIGHT), safeSpawnRadius);
         }
 
-        Asteroid a = new Asteroid(size);
-        addObject(a, pos[0], pos[1]);
+        Asteroid a = new Asteroid(size, rng.nextInt(Assets.ROCK_VARIANTS));
+        addObject(a, spawnX, spawnY);
+    }
+
+    /** Si (x,y) es seguro lo deja en spawnX/spawnY y devuelve true. */
+    private boolean trySpawnAt(int x, int y) {
+        if (!isSafeFromPlayers(x, y, safeSpawnRadius)) return false;
+        spawnX = x;
+        spawnY = y;
+        return true;
     }
 
-    /** Devuelve si (x,y) está a una distancia segura del jugador actual. */
-    private boolean isSafeFromPlayer(int x, int y, int radius) {
-        List<PlayerShip> players = getObjects(PlayerShip.class);
-        if (players.isEmpty()) return true; // si no hay player, es seguro
-        PlayerShip p = players.get(0);
-        int dx = x - p.getX();
-        int dy = y - p.getY();
-        return (dx*dx + dy*dy) >= (radius * radius);
+    /** Devuelve si (x,y) está a una distancia segura de todas las naves en juego. */
+    private boolean isSafeFromPlayers(int x, int y, int radius) {
+        for (int i = 0; i < players.size(); i++) { // como mucho MAX_PLAYERS
+            PlayerShip p = players.get(i);
+            int dx = x - p.getX();
+            int dy = y - p.getY();
+            if ((dx*dx + dy*dy) < (radius * radius)) return false;
+        }
+        return true; // si no hay naves, es seguro
     }
 
     /**
      * Busca una posición segura alrededor de (seedX,seedY) probando varias muestras.
-     * Si no encuentra, devuelve la última probada.
+     * Si no encuentra, deja la última probada. El resultado queda en spawnX/spawnY.
      */
-    private int[] findSafeSpawnPosition(int seedX, int seedY, int radius) {
+    private void findSafeSpawnPosition(int seedX, int seedY, int radius) {
         int attempts = 80;
         int bestX = seedX;
         int bestY = seedY;
         for (int i = 0; i < attempts; i++) {
             int x = rng.nextInt(WIDTH);
             int y = rng.nextInt(HEIGHT);
-            if (isSafeFromPlayer(x, y, radius)) {
-                return new int[]{x, y};
+            if (isSafeFromPlayers(x, y, radius)) {
+                spawnX = x; spawnY = y;
+                return;
             }
             bestX = x; bestY = y;
         }
-        return new int[]{bestX, bestY};
+        spawnX = bestX; spawnY = bestY;
     }
 
     /* ========================= HUD y UI ========================= */
 
     private void drawHUD() {
-        // Bordes superiores
-        showText("Puntaje: " + score, 90, 20);
-        showText("Vidas: " + lives,   90, 40);
-        showText("Oleada: " + wave,   90, 60);
+        // Bordes superiores (sólo al cambiar: evita concatenar y repintar cada frame)
+        if (score != hudScore) { hudScore = score; showText("Puntaje: " + score, 90, 20); }
+        if (lives != hudLives) { hudLives = lives; showText("Vidas: " + lives,   90, 40); }
+        if (wave  != hudWave)  { hudWave  = wave;  showText("Oleada: " + wave,   90, 60); }
 
         // Mensajes del centro se dibujan con showCenteredMessage/clearCenterMessage
         // Nota: showText reasigna por coordenadas; no necesita limpiar manual.
@@ -262,11 +701,37 @@ public class AsteroidsWorld extends World {
 
     private void drawTitleScreen() {
         buildStarfieldBackground();
-        showCenteredMessage("ASTEROIDS\nENTER para comenzar", 42);
+        updateLoadingProgress();
         // Limpia HUD
         showText("", 90, 20);
         showText("", 90, 40);
         showText("", 90, 60);
+        hudScore = hudLives = hudWave = -1;
+    }
+
+    /** Muestra el avance de la precarga (sólo redibuja cuando cambia el %). */
+    private void updateLoadingProgress() {
+        int percent = Assets.isReady() ? 100 : Math.min(99, (int) (Assets.progress() * 100));
+        if (percent == shownLoadPercent) return;
+        shownLoadPercent = percent;
+        clearCenterMessage();
+        if (percent < 100) {
+            showCenteredMessage("ASTEROIDS\nCargando... " + percent + "%", 42);
+        } else {
+            showCenteredMessage("ASTEROIDS\nENTER para comenzar", 42);
+        }
+    }
+
+    /** Aviso al pie de la pantalla por NOTICE_FRAMES frames (sólo el hilo del juego). */
+    private void showNotice(String msg) {
+        showText(msg, WIDTH / 2, HEIGHT - 20);
+        if (noticeTimer != TimerWheel.NONE) timers.cancel(noticeTimer);
+        noticeTimer = timers.schedule(this, TIMER_NOTICE, NOTICE_FRAMES);
+    }
+
+    private void clearNotice() {
+        noticeTimer = TimerWheel.NONE;
+        showText("", WIDTH / 2, HEIGHT - 20);
     }
 
     private void showCenteredMessage(String msg, int fontSize) {
@@ -294,47 +759,362 @@ public class AsteroidsWorld extends World {
 
     /* ========================= Fondo (estrellas) ========================= */
 
+    /**
+     * Sortea un fondo nuevo. Si ya hay uno en pantalla, el nuevo se pinta de a
+     * trozos en el SpawnScheduler y lo reemplaza al terminar (pintarlo entero
+     * costaba decenas de ms en un solo frame); si no, se pinta ya.
+     */
     private void buildStarfieldBackground() {
-        GreenfootImage bg = new GreenfootImage(WIDTH, HEIGHT);
-        bg.setColor(greenfoot.Color.BLACK);
-        bg.fill();
+        Starfield field = Starfield.generate(rng, WIDTH, HEIGHT);   // se sortea igual: mismo RNG
+        starfield = field;
+        if (backdrop != null) {
+            if (getBackground() != backdrop) setBackground(backdrop);
+            return;
+        }
+        if (getBackground() == null || !gameStarted) {
+            setBackground(field.paint(100));
+            scaledBackground = (renderScale < 100) ? field.paint(renderScale) : null;
+            return;
+        }
+        Starfield.Painter full = field.painter(100);
+        Starfield.Painter scaled = (renderScale < 100) ? field.painter(renderScale) : null;
+        int scale = renderScale;
+        scheduler.submitFirst(() -> {
+            if (starfield != field) return true;                 // ya se sorteó otro
+            if (!full.step() || (scaled != null && !scaled.step())) return false;
+            setBackground(full.image());
+            if (renderScale == scale) scaledBackground = (scaled != null) ? scaled.image() : null;
+            return true;
+        });
+    }
 
-        // Estrellas
-        int stars = 420;
-        for (int i = 0; i < stars; i++) {
-            int x = rng.nextInt(WIDTH);
-            int y = rng.nextInt(HEIGHT);
-            int b = 150 + rng.nextInt(106); // brillo 150-255
-            bg.setColor(greenfoot.Color.WHITE);
-            bg.drawRect(x, y, 1, 1);
-            // Algunas estrellas más grandes
-            if (rng.nextFloat() < 0.07f) {
-                bg.drawRect(x+1, y, 1, 1);
+    /* ========================= Registro de actores y pools ========================= */
+
+    @Override
+    public void addObject(Actor object, int x, int y) {
+        boolean isNew = (object.getWorld() != this);
+        super.addObject(object, x, y);
+        if (isNew) register(object);
+    }
+
+    @Override
+    public void removeObject(Actor object) {
+        if (object == null || object.getWorld() != this) return;
+        super.removeObject(object);
+        unregister(object);
+    }
+
+    @Override
+    public void removeObjects(Collection<? extends Actor> objects) {
+        for (Actor a : objects) removeObject(a);
+    }
+
+    private void register(Actor a) {
+        if (a == batchRenderer || a == perfOverlay || a == collisionPass) return;   // no son entidades del juego
+        if (a instanceof SpriteActor) {
+            SpriteActor s = (SpriteActor) a;
+            s.setBatched(batchRenderer != null);
+            s.paintSlot = actors.size();
+        }
+        actors.add(a);
+        if (a instanceof Asteroid)         addKind(asteroids, (Asteroid) a);
+        else if (a instanceof Bullet)      addBullet((Bullet) a);
+        else if (a instanceof Particle)    particleCount++;
+        else if (a instanceof EnemyBullet) addKind(enemyBullets, (EnemyBullet) a);
+        else if (a instanceof UFO)         addKind(ufos, (UFO) a);
+        else if (a instanceof PlayerShip)  addPlayer((PlayerShip) a);
+    }
+
+    private static <T extends SpriteActor> void addKind(List<T> list, T a) {
+        a.kindSlot = list.size();
+        list.add(a);
+    }
+
+    /**
+     * Baja O(1) de una lista por tipo: el último ocupa el hueco. Estas listas no
+     * tienen orden que respetar (el de pintado vive en 'actors').
+     */
+    private static <T extends SpriteActor> void removeKind(List<T> list, T a) {
+        int i = a.kindSlot, last = list.size() - 1;
+        T moved = list.remove(last);
+        if (i != last) {
+            list.set(i, moved);
+            moved.kindSlot = i;
+        }
+    }
+
+    private void addBullet(Bullet b) {
+        addKind(bullets, b);
+        if (b.getOwner() instanceof PlayerShip) ((PlayerShip) b.getOwner()).bulletAdded();
+    }
+
+    private void addPlayer(PlayerShip p) {
+        players.add(p);
+        ships[p.getSlot()] = p;
+    }
+
+    private void unregister(Actor a) {
+        if (a == batchRenderer || a == perfOverlay || a == collisionPass) return;
+        // 'actors' es el orden de pintado: se deja un hueco y se compacta una
+        // vez por frame (compactActors) en vez de correr la cola en cada baja.
+        actors.set((a instanceof SpriteActor) ? ((SpriteActor) a).paintSlot : actors.indexOf(a), null);
+        actorHoles++;
+        if (a instanceof SpriteActor) ((SpriteActor) a).stopTimers(timers);
+        if (a instanceof Asteroid) {
+            removeKind(asteroids, (Asteroid) a);
+        } else if (a instanceof Bullet) {
+            Bullet b = (Bullet) a;
+            removeKind(bullets, b);
+            if (b.getOwner() instanceof PlayerShip) ((PlayerShip) b.getOwner()).bulletRemoved();
+            bulletPool.release(b);
+        } else if (a instanceof Particle) {
+            particleCount--;
+            particlePool.release((Particle) a);
+        } else if (a instanceof EnemyBullet) {
+            removeKind(enemyBullets, (EnemyBullet) a);
+            enemyBulletPool.release((EnemyBullet) a);
+        } else if (a instanceof UFO) {
+            removeKind(ufos, (UFO) a);
+        } else if (a instanceof PlayerShip) {
+            players.remove(a);   // como mucho MAX_PLAYERS y getPlayer() depende del orden
+            PlayerShip p = (PlayerShip) a;
+            if (ships[p.getSlot()] == p) ships[p.getSlot()] = null;
+        }
+    }
+
+    /**
+     * Cierra los huecos que dejaron las bajas en 'actors' en una sola pasada,
+     * sin cambiar el orden de los que quedan (y sin reservar memoria).
+     */
+    private void compactActors() {
+        if (actorHoles == 0) return;
+        int n = actors.size(), w = 0;
+        for (int r = 0; r < n; r++) {
+            Actor a = actors.get(r);
+            if (a == null) continue;
+            if (w != r) {
+                actors.set(w, a);
+                if (a instanceof SpriteActor) ((SpriteActor) a).paintSlot = w;
             }
+            w++;
+        }
+        for (int i = n - 1; i >= w; i--) actors.remove(i);   // desde el final: O(1) cada una
+        actorHoles = 0;
+    }
+
+    /**
+     * Avanza un ciclo completo sin la interfaz de Greenfoot, en el mismo orden:
+     * primero el act() del mundo, luego el de cada actor vivo y la CollisionPass.
+     * Lo usan las herramientas de diagnóstico (p.ej. AllocationProbe).
+     */
+    void step() {
+        act();
+        compactActors();
+        int n = actors.size();
+        if (stepBuffer.length < n) stepBuffer = new Actor[Math.max(n, stepBuffer.length * 2)];
+        for (int i = 0; i < n; i++) stepBuffer[i] = actors.get(i);
+        for (int i = 0; i < n; i++) {
+            Actor a = stepBuffer[i];
+            stepBuffer[i] = null;
+            if (a.getWorld() == this) a.act(); // pudo salir durante este ciclo
+        }
+        if (collisionPass.getWorld() == this) collisionPass.act();
+        if (batchRenderer != null && batchRenderer.getWorld() == this) batchRenderer.act();
+        if (perfOverlay != null && perfOverlay.getWorld() == this) perfOverlay.act();
+    }
+
+    /**
+     * Activa/desactiva el dibujo por lotes: todas las entidades se pintan en un
+     * solo lienzo (BatchRenderer) en vez de un actor por imagen.
+     */
+    public void setBatchRendering(boolean on) {
+        if (on == (batchRenderer != null)) return;
+        if (on) {
+            batchRenderer = new BatchRenderer(WIDTH, HEIGHT);
+            addObject(batchRenderer, WIDTH / 2, HEIGHT / 2);
+            scheduler.submit(batchRenderer.warmUp());
+        } else {
+            setCapture(false);   // captura el lienzo por lotes: sin él no hay qué capturar
+            BatchRenderer old = batchRenderer;
+            batchRenderer = null;   // antes de volver al 100 %: sin renderer no se encola warmUp
+            super.removeObject(old);
+            old.setScale(100);      // suelta las rotaciones de la escala reducida
+            setRenderScale(100);
+        }
+        compactActors();
+        for (int i = 0; i < actors.size(); i++) {
+            Actor a = actors.get(i);
+            if (a instanceof SpriteActor) ((SpriteActor) a).setBatched(on);
         }
+    }
 
-        // Nebulosidad ligera
-        for (int i = 0; i < 12; i++) {
-            int cx = rng.nextInt(WIDTH);
-            int cy = rng.nextInt(HEIGHT);
-            int rad = 80 + rng.nextInt(140);
-            int alpha = 20 + rng.nextInt(30);
-            greenfoot.Color haze = new greenfoot.Color(120 + rng.nextInt(80), 120 + rng.nextInt(80), 200, alpha);
-            drawFilledCircle(bg, cx, cy, rad, haze);
+    public boolean isBatchRendering() { return batchRenderer != null; }
+
+    /**
+     * Dibuja a 'percent' % de la resolución (p.ej. 50 o 75) y escala al tamaño de
+     * la ventana: sprites, fondo y partículas se pintan ya reducidos. Cambia
+     * nitidez por frames en equipos donde pintar píxeles es el cuello de botella.
+     * Sólo existe en el dibujo por lotes (lo activa); 100 = resolución completa.
+     */
+    public void setRenderScale(int percent) {
+        percent = Math.max(25, Math.min(100, percent));
+        if (percent == renderScale) return;
+        renderScale = percent;
+        if (percent < 100) setBatchRendering(true);
+        scaledBackground = (percent < 100 && starfield != null) ? starfield.paint(percent) : null;
+        if (batchRenderer != null) {
+            batchRenderer.setScale(percent);
+            scheduler.submit(batchRenderer.warmUp());
         }
+    }
 
-        setBackground(bg);
+    public int getRenderScale() { return renderScale; }
+
+    /** Fondo a la resolución interna del dibujo por lotes (el de siempre al 100 %). */
+    GreenfootImage renderBackground() {
+        return (scaledBackground != null) ? scaledBackground : getBackground();
     }
 
-    /** Utilidad: círculo relleno (pincel barato para nebulosas). */
-    private void drawFilledCircle(GreenfootImage img, int cx, int cy, int r, greenfoot.Color col) {
-        img.setColor(col);
-        for (int y = -r; y <= r; y++) {
-            int span = (int)Math.sqrt(r*r - y*y);
-            img.drawLine(cx - span, cy + y, cx + span, cy + y);
+    /**
+     * Activa/desactiva la captura de clips. Captura el lienzo del BatchRenderer,
+     * así que también activa el dibujo por lotes (el HUD de texto no sale en el clip).
+     */
+    public void setCapture(boolean on) {
+        if (on == (capture != null)) return;
+        if (on) {
+            setBatchRendering(true);
+            capture = FrameCapture.open(WIDTH, HEIGHT, CAPTURE_FPS, CAPTURE_SECONDS);
+        } else {
+            capture.close();
+            capture = null;
         }
     }
 
+    /** Guarda los últimos segundos capturados en captures/ (en segundo plano). */
+    public void saveClip() {
+        if (capture == null) return;
+        capture.saveLast().whenComplete((path, error) -> {
+            if (error != null) {
+                System.err.println("FrameCapture: no se pudo guardar el clip (" + error + ")");
+                pendingNotice.set("No se pudo guardar el clip");
+            } else {
+                pendingNotice.set("Clip guardado en " + path);
+            }
+        });
+    }
+
+    /** Empieza o termina una grabación en captures/ (enciende la captura si hace falta). */
+    public void toggleRecording() {
+        setCapture(true);
+        if (capture.isRecording()) {
+            capture.stopRecording().thenAccept(path -> pendingNotice.set("Grabación guardada en " + path));
+            return;
+        }
+        try {
+            capture.startRecording();
+        } catch (IOException e) {
+            System.err.println("FrameCapture: no se pudo grabar (" + e + ")");
+            pendingNotice.set("No se pudo grabar");
+            return;
+        }
+        pendingNotice.set("Grabando... (F10 para terminar)");
+    }
+
+    /** Captura de clips en curso, o null (la usa BatchRenderer al terminar cada frame). */
+    public FrameCapture frameCapture() { return capture; }
+
+    /** Transmite la partida a espectadores en 'port' (0 = dejar de transmitir). */
+    public void setSpectatorPort(int port) {
+        if (spectators != null) {
+            spectators.close();
+            spectators = null;
+        }
+        if (port > 0) spectators = SpectatorServer.open(WIDTH, HEIGHT, port);
+    }
+
+    /** Servidor de espectadores, o null si no se transmite. */
+    public SpectatorServer spectatorServer() { return spectators; }
+
+    /** Muestra/oculta el overlay de rendimiento (también con F3). */
+    public void togglePerfOverlay() {
+        perfVisible = !perfVisible;
+        if (perfVisible) {
+            addPerfOverlay();
+        } else if (perfOverlay != null) {
+            super.removeObject(perfOverlay);
+        }
+    }
+
+    private void addPerfOverlay() {
+        if (perfOverlay == null) perfOverlay = new PerfOverlay();
+        addObject(perfOverlay, WIDTH - 140, 113);
+    }
+
+    /** Duración del último frame (ns, de act a act). */
+    public long getLastFrameNanos() { return lastFrameNanos; }
+
+    /** Registra un evento de telemetría en el tick actual (no bloquea ni reserva memoria). */
+    public void log(int type, int a, int b) {
+        telemetry.record(type, tick, a, b);
+    }
+
+    /** Ticks (llamadas a act) desde que se creó el mundo. */
+    public int getTick() { return tick; }
+
+    /** Campo del modo arena, o null en el juego clásico. Sólo durante act (ver ArenaSim). */
+    public ArenaField arena()  { return arena; }
+    /** Última foto del campo del modo arena para pintar, o null. */
+    public ArenaSnapshot arenaSnapshot() { return (arenaSim != null) ? arenaSim.snapshot() : null; }
+    /** Esquina superior izquierda de la vista en coordenadas de arena. */
+    public double cameraX()    { return camX; }
+    public double cameraY()    { return camY; }
+
+    /** Director de oleadas (velocidad de rocas, OVNIs, refuerzos). */
+    public WaveDirector director() { return director; }
+
+    /** Temporizadores del juego: vencen en el tick pedido y llaman a su Listener. */
+    public TimerWheel timers() { return timers; }
+
+    /** Cola de eventos de juego: los actores publican, el mundo resuelve en endOfFrame. */
+    public GameEvents events() { return events; }
+    public Metrics metrics()   { return metrics; }
+    public InputQueue input()  { return input; }
+    public FlightRecorder flightRecorder() { return flight; }
+
+    /** Todas las entidades vivas en orden de alta (sólo lectura; recorrer por índice). */
+    public List<Actor>    actors()    { compactActors(); return actors; }
+    /** Asteroides vivos (sólo lectura; recorrer por índice). */
+    public List<Asteroid> asteroids() { return asteroids; }
+    /** Balas del jugador vivas (sólo lectura; recorrer por índice). */
+    public List<Bullet>   bullets()   { return bullets; }
+    /** Balas enemigas vivas (sólo lectura; recorrer por índice). */
+    public List<EnemyBullet> enemyBullets() { return enemyBullets; }
+    /** OVNIs vivos (sólo lectura; recorrer por índice). */
+    public List<UFO>      ufos()      { return ufos; }
+    /** Detección de colisiones del mundo (diagnóstico: pares y contactos por tick). */
+    public CollisionSystem collisions() { return collisions; }
+    /** Primera nave en juego (la que sigue la cámara), o null si no hay ninguna. */
+    public PlayerShip getPlayer()     { return players.isEmpty() ? null : players.get(0); }
+    /** Naves en juego (sólo lectura; recorrer por índice). */
+    public List<PlayerShip> players() { return players; }
+
+    public int getBulletCount()      { return bullets.size(); }
+    public int getUfoCount()         { return ufos.size(); }
+    public int getEnemyBulletCount() { return enemyBullets.size(); }
+    public int getParticleCount()    { return particleCount; }
+
+    /** Tope de partículas vivas (memoria de una sesión de SessionHost); las demás no se crean. */
+    public void setParticleLimit(int limit) { particleLimit = Math.max(0, limit); }
+    public int getParticleLimit()           { return particleLimit; }
+    public boolean hasParticleRoom()        { return particleCount < particleLimit; }
+
+    /** ¿Reproduce sonidos? (según WorldServices; las sesiones de SessionHost no) */
+    public boolean hasSound() { return sound; }
+
+    public ActorPool<Bullet>      bulletPool()      { return bulletPool; }
+    public ActorPool<EnemyBullet> enemyBulletPool() { return enemyBulletPool; }
+    public ActorPool<Particle>    particlePool()    { return particlePool; }
+
     /* ========================= Utilidades generales ========================= */
 
     public int getScore() { return score; }
@@ -343,4 +1123,6 @@ public class AsteroidsWorld extends World {
 
     /** Acceso al RNG del mundo (para actores que quieran variabilidad coherente). */
     public Random rng() { return rng; }
+    /** Semilla con la que se creó el RNG (la que guarda una grabación). */
+    public long seed()  { return seed; }
 }
@@ -1,32 +1,40 @@
 import greenfoot.*; // Actor, World, GreenfootImage, Greenfoot
+
 /**
  * Proyectil del jugador (o de otras entidades si se desea).
  * - Movimiento rectilíneo uniforme con posición subpíxel.
  * - Wrapping toroidal.
- * - TTL (time-to-live) y autodestrucción.
+ * - TTL (time-to-live) y autodestrucción: un temporizador de la TimerWheel del mundo.
  * - Breve "muzzle grace" inicial para no colisionar con su dueño.
  *
  * Contratos con otras clases:
- *  - Asteroid: debe implementar public void onHitBy(Bullet b)
- *              (se encargará de dividirse/otorgar puntos y removerse).
- *  - El mundo es AsteroidsWorld, pero esta clase no depende de detalles del mundo.
+ *  - Asteroid: CollisionSystem publica GameEvents.rockHit (o fieldHit en modo
+ *              arena); el mundo resuelve después (división, puntos, retirar roca y bala).
+ *  - AsteroidsWorld: reutiliza instancias vía su pool de balas (ver reset).
  */
-public class Bullet extends Actor {
+public class Bullet extends SpriteActor implements TimerWheel.Listener {
+
+    /** Radio de colisión (px), igual al del sprite. */
+    public static final int HIT_RADIUS = 4;
 
     // ----- Estado dinámico (dobles para precisión) -----
     private double x, y;
     private double vx, vy;
 
     // ----- Ciclo de vida -----
-    private final int ttlFrames;     // vida útil en frames (~72 ≈ 1.2s @60FPS)
-    private int ageFrames = 0;
+    private int ttlFrames;           // vida útil en frames (~72 ≈ 1.2s @60FPS)
+    private TimerWheel timers;       // la del mundo (la edad se mide con su reloj)
+    private int bornTick;            // tick de la rueda al entrar al mundo
+    private int ttlTimer = TimerWheel.NONE;
     private final int muzzleGrace = 6; // frames de gracia para no golpear al owner
 
     // ----- Propiedad -----
-    private final Actor owner;       // quien disparó (para ignorar colisión inicial)
+    private Actor owner;             // quien disparó (para ignorar colisión inicial)
 
-    // ----- Visual -----
-    private GreenfootImage sprite;
+    /** Instancia "vacía" para el pool; se configura con reset antes de usarla. */
+    public Bullet() {
+        setImage(Assets.bullet()); // sprite compartido
+    }
 
     /**
      * @param vx px/frame en X
@@ -35,18 +43,39 @@ public class Bullet extends Actor {
      * @param owner referencia al actor que disparó (puede ser null)
      */
     public Bullet(double vx, double vy, int ttlFrames, Actor owner) {
+        this();
+        reset(vx, vy, ttlFrames, owner);
+    }
+
+    /** (Re)inicializa la bala para un nuevo disparo (mismos parámetros que el constructor). */
+    public Bullet reset(double vx, double vy, int ttlFrames, Actor owner) {
         this.vx = vx;
         this.vy = vy;
         this.ttlFrames = ttlFrames > 0 ? ttlFrames : Integer.MAX_VALUE;
         this.owner = owner;
-        buildSprite();
-        setImage(sprite);
+        return this;
     }
 
     @Override
     protected void addedToWorld(World w) {
         this.x = getX();
         this.y = getY();
+        timers = ((AsteroidsWorld) w).timers();
+        bornTick = timers.now();
+        if (ttlFrames != Integer.MAX_VALUE) ttlTimer = timers.schedule(this, 0, ttlFrames);
+    }
+
+    /** Venció el TTL. */
+    @Override
+    public void onTimer(int kind) {
+        ttlTimer = TimerWheel.NONE;
+        if (getWorld() != null) getWorld().removeObject(this);
+    }
+
+    @Override
+    void stopTimers(TimerWheel timers) {
+        timers.cancel(ttlTimer);
+        ttlTimer = TimerWheel.NONE;
     }
 
     @Override
@@ -54,33 +83,19 @@ public class Bullet extends Actor {
         // 1) Avance físico
         x += vx;
         y += vy;
-        wrapAround();
+        if (!wrapAround()) return; // en modo arena, al salir de la vista se retira
         setLocation((int)Math.round(x), (int)Math.round(y));
 
-        // 2) Colisiones (tras breve gracia)
-        if (ageFrames > muzzleGrace) {
-            Actor a = getOneIntersectingObject(Asteroid.class);
-            if (a != null) {
-                // Delegar la lógica de destrucción/puntaje al asteroide
-                ((Asteroid)a).onHitBy(this);
-                // Remover la bala (si aún existe en el mundo)
-                if (getWorld() != null) getWorld().removeObject(this);
-                return;
-            }
-        }
-
-        // 3) TTL
-        ageFrames++;
-        if (ageFrames >= ttlFrames) {
-            if (getWorld() != null) getWorld().removeObject(this);
-        }
+        // 2) Las colisiones las detecta CollisionSystem (tras la gracia inicial, ver isArmed)
+        // 3) El TTL vence en la TimerWheel (onTimer)
     }
 
     /* =================== Utilidades =================== */
 
-    private void wrapAround() {
+    /** Envuelve en los bordes; devuelve false si la bala salió del mundo (modo arena). */
+    private boolean wrapAround() {
         World w = getWorld();
-        if (w == null) return;
+        if (w == null) return false;
         int W = w.getWidth();
         int H = w.getHeight();
 
@@ -90,22 +105,25 @@ public class Bullet extends Actor {
         if (y < 0)      { y += H; wrapped = true; }
         if (y >= H)     { y -= H; wrapped = true; }
 
+        if (wrapped && ((AsteroidsWorld) w).arena() != null) {
+            w.removeObject(this); // la vista es una ventana del arena, no un toro
+            return false;
+        }
         if (wrapped) setLocation((int)Math.round(x), (int)Math.round(y));
+        return true;
     }
 
-    private void buildSprite() {
-        // Pequeño óvalo brillante
-        int r = 4;
-        sprite = new GreenfootImage(2*r, 2*r);
-        sprite.setColor(new Color(255, 255, 255));
-        sprite.fillOval(0, 0, 2*r-1, 2*r-1);
-        // Halo leve
-        sprite.setColor(new Color(255, 255, 255, 120));
-        sprite.drawOval(0, 0, 2*r-1, 2*r-1);
+    @Override
+    void scrollBy(double dx, double dy) {
+        x += dx; y += dy;
+        setLocation((int)Math.round(x), (int)Math.round(y));
     }
 
+
     /* =================== Getters útiles =================== */
     public double getVX() { return vx; }
     public double getVY() { return vy; }
     public Actor getOwner() { return owner; }
+    /** ¿Pasó la gracia inicial? Antes no colisiona (para no golpear a su dueño). */
+    public boolean isArmed() { return timers.now() - bornTick > muzzleGrace; }
 }
@@ -0,0 +1,164 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.imageio.ImageIO;
+
+/**
+ * Conversor fuera de línea de clips de FrameCapture (.clip) a una secuencia PNG.
+ * - Descomprime en orden (cada frame XOR depende del anterior) y reparte la
+ *   codificación PNG entre todos los núcleos; cada archivo se escribe con FileChannel.
+ * - Nombres frame-00000.png, ... en el orden del clip; el tick de cada uno va en
+ *   ticks.csv (los huecos son frames descartados al capturar).
+ *
+ * Uso: java ClipExporter captures/clip-XXXX.clip [directorio]
+ * o desde Greenfoot: clic derecho → toPng("captures/clip-XXXX.clip").
+ */
+public final class ClipExporter {
+
+    private ClipExporter() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java ClipExporter <clip> [directorio]");
+            return;
+        }
+        Path in = Paths.get(args[0]);
+        Path out = (args.length > 1) ? Paths.get(args[1]) : dirFor(in);
+        int n = export(in, out);
+        System.out.println(n + " frames escritos en " + out);
+    }
+
+    /** Exporta el clip junto a él (mismo nombre sin extensión) y devuelve el directorio. */
+    public static String toPng(String clipFile) throws IOException {
+        Path in = Paths.get(clipFile);
+        Path out = dirFor(in);
+        export(in, out);
+        return out.toString();
+    }
+
+    /** Escribe un PNG por frame en 'dir'; devuelve cuántos. */
+    public static int export(Path clip, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> pending = new ArrayList<>();
+        StringBuilder ticks = new StringBuilder("frame,tick\n");
+        int frames = 0;
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(clip)))) {
+            byte[] magic = new byte[FrameCapture.MAGIC.length];
+            data.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != FrameCapture.MAGIC[i]) throw new IOException("No es un clip: " + clip);
+            }
+            int version = data.readInt();
+            if (version != FrameCapture.VERSION) throw new IOException("Versión no soportada: " + version);
+            int w = data.readInt(), h = data.readInt();
+            data.readInt();   // fps (informativo)
+
+            int[] prev = new int[w * h];
+            byte[] pixels = new byte[w * h * 4];
+            Inflater inflater = new Inflater();
+            while (true) {
+                int tick;
+                try {
+                    tick = data.readInt();
+                } catch (EOFException end) {
+                    break;
+                }
+                boolean key = data.readByte() != 0;
+                byte[] packed = new byte[data.readInt()];
+                data.readFully(packed);
+                if (frames == 0 && !key) throw new IOException("El clip no empieza en un frame completo");
+
+                inflate(inflater, packed, pixels);
+                int[] cur = new int[w * h];   // propio de la tarea PNG
+                ByteBuffer.wrap(pixels).asIntBuffer().get(cur);
+                if (!key) for (int i = 0; i < cur.length; i++) cur[i] ^= prev[i];
+                prev = cur;
+
+                Path png = dir.resolve(String.format("frame-%05d.png", frames));
+                pending.add(pool.submit(() -> writePng(png, cur, w, h)));
+                ticks.append(frames).append(',').append(tick).append('\n');
+                frames++;
+                // No más de unos pocos frames decodificados esperando a su PNG
+                if (pending.size() >= threads * 2) await(pending.remove(0));
+            }
+            inflater.end();
+            for (Future<?> f : pending) await(f);
+        } finally {
+            pool.shutdown();
+        }
+        Files.write(dir.resolve("ticks.csv"), ticks.toString().getBytes(StandardCharsets.UTF_8));
+        return frames;
+    }
+
+    private static void inflate(Inflater inflater, byte[] packed, byte[] out) throws IOException {
+        inflater.reset();
+        inflater.setInput(packed);
+        try {
+            int len = 0;
+            while (len < out.length && !inflater.finished()) {
+                int n = inflater.inflate(out, len, out.length - len);
+                if (n == 0 && inflater.needsInput()) break;
+                len += n;
+            }
+            if (len != out.length) throw new IOException("Frame corrupto (" + len + " de " + out.length + " bytes)");
+        } catch (DataFormatException e) {
+            throw new IOException("Frame corrupto", e);
+        }
+    }
+
+    private static void writePng(Path png, int[] argb, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, w, h, argb, 0, w);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * 1024);
+        try {
+            ImageIO.write(img, "png", bytes);
+            ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+            try (FileChannel ch = FileChannel.open(png, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (b.hasRemaining()) ch.write(b);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(Future<?> f) throws IOException {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido", e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof UncheckedIOException) throw ((UncheckedIOException) c).getCause();
+            throw new IOException(c);
+        }
+    }
+
+    private static Path dirFor(Path clip) {
+        String name = clip.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return clip.resolveSibling((dot > 0) ? name.substring(0, dot) : name + "-png");
+    }
+}
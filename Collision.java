@@ -0,0 +1,285 @@
+/**
+ * Pruebas de colisión precisas contra el casco poligonal de un Asteroid.
+ * - Primero un descarte barato por círculos (radio del casco + radio de la consulta).
+ * - Luego la prueba exacta: círculo-vs-polígono (balas) o triángulo-vs-polígono (nave).
+ *
+ * Todo se calcula relativo al centro del asteroide, con sus vértices ya rotados
+ * (Asteroid.updateHull sólo rota cuando la rotación cambió). No reserva memoria.
+ *
+ * Las variantes "Shape" sirven para rocas que no son actores (ArenaField): en vez
+ * de rotar el polígono, llevan la consulta al espacio local de la forma.
+ */
+public final class Collision {
+
+    // Consultas hechas desde el arranque (diagnóstico para PerfOverlay; no sincronizado)
+    private static long queries = 0;
+    private static boolean counting = true;   // SessionHost lo apaga antes de arrancar sus hilos
+
+    private Collision() {}
+
+    /** Total de consultas de colisión hechas (el overlay calcula la diferencia por tick). */
+    public static long queryCount() { return queries; }
+
+    /**
+     * Con muchos mundos en paralelo el contador compartido no dice nada y cada
+     * consulta escribiría la misma línea de caché desde todos los núcleos.
+     */
+    static void setCounting(boolean on) { counting = on; }
+
+    /** ¿El círculo (px,py,r) toca el casco de la roca? */
+    public static boolean circleHitsRock(double px, double py, double r, Asteroid rock) {
+        if (counting) queries++;
+        double cx = px - rock.getX();
+        double cy = py - rock.getY();
+
+        // 1) Descarte por círculos
+        double reach = rock.getShape().getHullRadius() + r;
+        if (cx*cx + cy*cy > reach*reach) return false;
+
+        // 2) Centro dentro del polígono, o algún borde a distancia <= r
+        rock.updateHull();
+        int n = rock.hullSize();
+        if (pointInHull(cx, cy, rock)) return true;
+        double r2 = r * r;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (segmentDistSq(cx, cy, rock.hullX(j), rock.hullY(j), rock.hullX(i), rock.hullY(i)) <= r2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ¿El triángulo (coords. de mundo) toca el casco de la roca?
+     * @param tx,ty tres vértices del triángulo
+     * @param tr    radio envolvente del triángulo respecto a (tcx,tcy), para el descarte
+     */
+    public static boolean triangleHitsRock(double[] tx, double[] ty, double tcx, double tcy,
+                                           double tr, Asteroid rock) {
+        if (counting) queries++;
+        double ox = rock.getX(), oy = rock.getY();
+
+        // 1) Descarte por círculos
+        double dx = tcx - ox, dy = tcy - oy;
+        double reach = rock.getShape().getHullRadius() + tr;
+        if (dx*dx + dy*dy > reach*reach) return false;
+
+        rock.updateHull();
+        int n = rock.hullSize();
+
+        // 2) Algún vértice del triángulo dentro del polígono
+        for (int k = 0; k < 3; k++) {
+            if (pointInHull(tx[k] - ox, ty[k] - oy, rock)) return true;
+        }
+        // 3) Polígono dentro del triángulo (basta con un vértice)
+        if (pointInTriangle(rock.hullX(0) + ox, rock.hullY(0) + oy, tx, ty)) return true;
+
+        // 4) Cruce de aristas
+        for (int k = 0, m = 2; k < 3; m = k++) {
+            double ax = tx[m] - ox, ay = ty[m] - oy;
+            double bx = tx[k] - ox, by = ty[k] - oy;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                if (segmentsCross(ax, ay, bx, by,
+                                  rock.hullX(j), rock.hullY(j), rock.hullX(i), rock.hullY(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** ¿El círculo (px,py,r) toca el triángulo (coords. de mundo) de centro (tcx,tcy) y radio envolvente tr? */
+    public static boolean circleHitsTriangle(double px, double py, double r,
+                                             double[] tx, double[] ty,
+                                             double tcx, double tcy, double tr) {
+        if (counting) queries++;
+        double dx = px - tcx, dy = py - tcy;
+        double reach = tr + r;
+        if (dx*dx + dy*dy > reach*reach) return false;
+
+        if (pointInTriangle(px, py, tx, ty)) return true;
+        double r2 = r * r;
+        for (int k = 0, m = 2; k < 3; m = k++) {
+            if (segmentDistSq(px, py, tx[m], ty[m], tx[k], ty[k]) <= r2) return true;
+        }
+        return false;
+    }
+
+    /**
+     * ¿El círculo toca una forma en (ox,oy) con rotación rotDeg? Coordenadas de mundo.
+     */
+    public static boolean circleHitsShape(double px, double py, double r,
+                                          RockShape shape, double ox, double oy, double rotDeg) {
+        if (counting) queries++;
+        double dx = px - ox, dy = py - oy;
+        double reach = shape.getHullRadius() + r;
+        if (dx*dx + dy*dy > reach*reach) return false;
+
+        // Rotación inversa: el punto pasa al espacio local de la forma
+        double rad = Math.toRadians(rotDeg);
+        double c = Math.cos(rad), s = Math.sin(rad);
+        double lx =  dx * c + dy * s;
+        double ly = -dx * s + dy * c;
+
+        if (pointInShape(lx, ly, shape)) return true;
+        int n = shape.vertexCount();
+        double r2 = r * r;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (segmentDistSq(lx, ly, shape.vertexX(j), shape.vertexY(j),
+                              shape.vertexX(i), shape.vertexY(i)) <= r2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ¿El triángulo (coords. de mundo) toca una forma en (ox,oy) con rotación rotDeg?
+     * Misma prueba que triangleHitsRock, hecha en el espacio local de la forma.
+     */
+    public static boolean triangleHitsShape(double[] tx, double[] ty, double tcx, double tcy, double tr,
+                                            RockShape shape, double ox, double oy, double rotDeg) {
+        if (counting) queries++;
+        double dx = tcx - ox, dy = tcy - oy;
+        double reach = shape.getHullRadius() + tr;
+        if (dx*dx + dy*dy > reach*reach) return false;
+
+        double rad = Math.toRadians(rotDeg);
+        double c = Math.cos(rad), s = Math.sin(rad);
+        double ax = (tx[0] - ox) * c + (ty[0] - oy) * s, ay = -(tx[0] - ox) * s + (ty[0] - oy) * c;
+        double bx = (tx[1] - ox) * c + (ty[1] - oy) * s, by = -(tx[1] - ox) * s + (ty[1] - oy) * c;
+        double qx = (tx[2] - ox) * c + (ty[2] - oy) * s, qy = -(tx[2] - ox) * s + (ty[2] - oy) * c;
+
+        if (pointInShape(ax, ay, shape) || pointInShape(bx, by, shape) || pointInShape(qx, qy, shape)) {
+            return true;
+        }
+        if (pointInTriangle(shape.vertexX(0), shape.vertexY(0), ax, ay, bx, by, qx, qy)) return true;
+
+        int n = shape.vertexCount();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double vx0 = shape.vertexX(j), vy0 = shape.vertexY(j);
+            double vx1 = shape.vertexX(i), vy1 = shape.vertexY(i);
+            if (segmentsCross(ax, ay, bx, by, vx0, vy0, vx1, vy1)
+                || segmentsCross(bx, by, qx, qy, vx0, vy0, vx1, vy1)
+                || segmentsCross(qx, qy, ax, ay, vx0, vy0, vx1, vy1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Distancia a lo largo del rayo (x0,y0)+(ux,uy)*t, con (ux,uy) unitario, a la que
+     * entra en el casco de la roca centrada en (ox,oy); -1 si no lo toca antes de maxT.
+     * Si el origen ya está dentro devuelve 0.
+     */
+    public static double rayHitsRock(double x0, double y0, double ux, double uy, double maxT,
+                                     Asteroid rock, double ox, double oy) {
+        if (counting) queries++;
+        double px = x0 - ox, py = y0 - oy;                 // origen relativo al centro
+        double hr = rock.getShape().getHullRadius();
+        double tc = rayHitsCircle(px, py, ux, uy, maxT, 0, 0, hr);
+        if (tc < 0) return -1;                             // ni siquiera toca el círculo envolvente
+
+        rock.updateHull();
+        if (pointInHull(px, py, rock)) return 0;
+        double best = -1;
+        int n = rock.hullSize();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double ax = rock.hullX(j), ay = rock.hullY(j);
+            double ex = rock.hullX(i) - ax, ey = rock.hullY(i) - ay;
+            double den = ux * ey - uy * ex;
+            if (den == 0) continue;                        // paralelo a la arista
+            double wx = ax - px, wy = ay - py;
+            double t = (wx * ey - wy * ex) / den;          // a lo largo del rayo
+            double s = (wx * uy - wy * ux) / den;          // a lo largo de la arista
+            if (t >= 0 && t <= maxT && s >= 0 && s <= 1 && (best < 0 || t < best)) best = t;
+        }
+        return best;
+    }
+
+    /** Igual que rayHitsRock para un círculo (cx,cy,r); -1 si no lo toca antes de maxT. */
+    public static double rayHitsCircle(double x0, double y0, double ux, double uy, double maxT,
+                                       double cx, double cy, double r) {
+        double fx = x0 - cx, fy = y0 - cy;
+        double c = fx*fx + fy*fy - r*r;
+        if (c <= 0) return 0;                              // origen dentro
+        double b = fx * ux + fy * uy;
+        if (b > 0) return -1;                              // se aleja
+        double disc = b*b - c;
+        if (disc < 0) return -1;
+        double t = -b - Math.sqrt(disc);
+        return (t <= maxT) ? t : -1;
+    }
+
+    /* ================== Primitivas ================== */
+
+    /** Punto en polígono (regla par-impar) sobre el casco relativo de la roca. */
+    private static boolean pointInHull(double px, double py, Asteroid rock) {
+        boolean inside = false;
+        int n = rock.hullSize();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = rock.hullX(i), yi = rock.hullY(i);
+            double xj = rock.hullX(j), yj = rock.hullY(j);
+            if ((yi > py) != (yj > py)
+                && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /** Punto en polígono (regla par-impar) sobre los vértices locales de la forma. */
+    private static boolean pointInShape(double px, double py, RockShape shape) {
+        boolean inside = false;
+        int n = shape.vertexCount();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = shape.vertexX(i), yi = shape.vertexY(i);
+            double xj = shape.vertexX(j), yj = shape.vertexY(j);
+            if ((yi > py) != (yj > py)
+                && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean pointInTriangle(double px, double py, double[] tx, double[] ty) {
+        return pointInTriangle(px, py, tx[0], ty[0], tx[1], ty[1], tx[2], ty[2]);
+    }
+
+    private static boolean pointInTriangle(double px, double py, double ax, double ay,
+                                           double bx, double by, double cx, double cy) {
+        double d1 = cross(ax, ay, bx, by, px, py);
+        double d2 = cross(bx, by, cx, cy, px, py);
+        double d3 = cross(cx, cy, ax, ay, px, py);
+        boolean neg = (d1 < 0) || (d2 < 0) || (d3 < 0);
+        boolean pos = (d1 > 0) || (d2 > 0) || (d3 > 0);
+        return !(neg && pos);
+    }
+
+    /** Distancia² de (px,py) al segmento a-b. */
+    private static double segmentDistSq(double px, double py, double ax, double ay, double bx, double by) {
+        double ex = bx - ax, ey = by - ay;
+        double len2 = ex*ex + ey*ey;
+        double t = (len2 > 0) ? ((px - ax) * ex + (py - ay) * ey) / len2 : 0;
+        if (t < 0) t = 0; else if (t > 1) t = 1;
+        double qx = ax + ex * t - px;
+        double qy = ay + ey * t - py;
+        return qx*qx + qy*qy;
+    }
+
+    private static boolean segmentsCross(double ax, double ay, double bx, double by,
+                                         double cx, double cy, double dx, double dy) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0) != (d2 > 0)) && ((d3 > 0) != (d4 > 0));
+    }
+
+    /** Producto cruz de (b-a) x (p-a). */
+    private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Capas de colisión: cada entidad del juego pertenece a una sola.
+ * Qué capas chocan entre sí (y qué pasa) lo declara CollisionSystem con un CollisionMatrix.
+ */
+public enum CollisionLayer {
+    SHIP,          // PlayerShip (triángulo)
+    ROCK,          // Asteroid (casco poligonal)
+    BULLET,        // Bullet del jugador (círculo)
+    ENEMY_BULLET,  // EnemyBullet (círculo)
+    UFO;           // UFO (círculo)
+
+    static final CollisionLayer[] ALL = values(); // copia única (values() clona el array)
+
+    /** Bit de la capa para las máscaras de consulta (p. ej. CollisionSystem.raycast). */
+    public int bit() { return 1 << ordinal(); }
+}
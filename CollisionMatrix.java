@@ -0,0 +1,50 @@
+import java.util.Arrays;
+
+/**
+ * Tabla declarativa de pares de capas que colisionan y su respuesta.
+ * - pair(a, b, respuesta) registra el par en ambos sentidos; la respuesta
+ *   siempre recibe los índices en el orden declarado (a, b).
+ * - El orden de declaración es también la prioridad al resolver: los contactos
+ *   de un par declarado antes se resuelven antes en el mismo tick.
+ */
+public final class CollisionMatrix {
+
+    /** Respuesta a un contacto; a y b son índices de entidad en el CollisionSystem. */
+    public interface Response {
+        void onContact(CollisionSystem system, int a, int b);
+    }
+
+    private static final int N = CollisionLayer.ALL.length;
+
+    private final int[][] rule = new int[N][N];           // índice de regla, -1 = no chocan
+    private final boolean[][] swapped = new boolean[N][N]; // true si (fila, columna) es (b, a)
+    private Response[] responses = new Response[8];
+    private int count = 0;
+
+    public CollisionMatrix() {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) rule[i][j] = -1;
+        }
+    }
+
+    /** Declara que las capas a y b chocan y qué hacer cuando ocurre. */
+    public CollisionMatrix pair(CollisionLayer a, CollisionLayer b, Response response) {
+        if (rule[a.ordinal()][b.ordinal()] >= 0) {
+            throw new IllegalArgumentException("Par repetido: " + a + " / " + b);
+        }
+        if (count == responses.length) responses = Arrays.copyOf(responses, count * 2);
+        responses[count] = response;
+        rule[a.ordinal()][b.ordinal()] = count;
+        rule[b.ordinal()][a.ordinal()] = count;
+        swapped[b.ordinal()][a.ordinal()] = (a != b);
+        count++;
+        return this;
+    }
+
+    /** Regla para (capa de i, capa de j), o -1 si no chocan. */
+    int ruleFor(int layerI, int layerJ)           { return rule[layerI][layerJ]; }
+    /** ¿La regla espera (j, i) en vez de (i, j)? */
+    boolean isSwapped(int layerI, int layerJ)      { return swapped[layerI][layerJ]; }
+    Response response(int rule)                    { return responses[rule]; }
+    int ruleCount()                                { return count; }
+}
@@ -0,0 +1,20 @@
+import greenfoot.*;  // Actor, GreenfootImage
+
+/**
+ * Actor invisible que cierra la lógica del frame: actúa justo después de todos
+ * los SpriteActor (setActOrder en AsteroidsWorld) y le pide al mundo las
+ * colisiones y el drenado de eventos (AsteroidsWorld.endOfFrame).
+ * Así los contactos se ven con las posiciones ya movidas de este frame y un
+ * impacto se resuelve en el mismo tick, no en el siguiente.
+ */
+public class CollisionPass extends Actor {
+
+    public CollisionPass() {
+        setImage((GreenfootImage) null);
+    }
+
+    @Override
+    public void act() {
+        ((AsteroidsWorld) getWorld()).endOfFrame();
+    }
+}
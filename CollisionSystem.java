@@ -0,0 +1,437 @@
+import greenfoot.*;  // Actor
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Colisiones de todo el tick en una sola pasada (la ejecuta AsteroidsWorld.endOfFrame,
+ * después del act de todos los actores: ve las posiciones ya movidas del tick).
+ * 1) Recoge las entidades del registro del mundo, cada una en su CollisionLayer.
+ * 2) Fase amplia: rejilla uniforme de CELL px; cada entidad entra en las celdas
+ *    que toca su círculo envolvente. Un par se reporta sólo en la celda que
+ *    contiene la esquina de la intersección de sus cajas, así sale una vez.
+ * 3) Fase precisa según la forma de cada capa (círculo, casco, triángulo).
+ * 4) Los contactos se ordenan por (regla, entidad a, entidad b) y se resuelven
+ *    en ese orden con la respuesta declarada en MATRIX, que publica GameEvents.
+ *
+ * La rejilla queda armada hasta el siguiente run(): raycast la recorre (DDA) para
+ * miras y armas de rayo, y nearest la recorre en anillos para elegir blanco,
+ * durante el act de los actores del tick siguiente y con las posiciones de su inicio.
+ *
+ * Ningún actor busca colisiones por su cuenta. No reserva memoria en régimen estable.
+ */
+public final class CollisionSystem {
+
+    /**
+     * Lado de celda de referencia. El lado real se ajusta para que las celdas
+     * cubran el mundo exacto (900/8 = 112.5), así el rayo cruza los bordes sin huecos.
+     */
+    public static final int CELL = 128;
+
+    // --------- Qué choca con qué (el orden es la prioridad) ---------
+    private static final CollisionMatrix MATRIX = new CollisionMatrix()
+        .pair(CollisionLayer.BULLET,       CollisionLayer.UFO,  CollisionSystem::bulletHitsUfo)
+        .pair(CollisionLayer.BULLET,       CollisionLayer.ROCK, CollisionSystem::bulletHitsRock)
+        .pair(CollisionLayer.UFO,          CollisionLayer.ROCK, CollisionSystem::ufoHitsRock)
+        .pair(CollisionLayer.ENEMY_BULLET, CollisionLayer.SHIP, CollisionSystem::enemyBulletHitsShip)
+        .pair(CollisionLayer.UFO,          CollisionLayer.SHIP, CollisionSystem::ufoHitsShip)
+        .pair(CollisionLayer.SHIP,         CollisionLayer.ROCK, CollisionSystem::shipHitsRock);
+
+    private static final int SHIP = CollisionLayer.SHIP.ordinal();
+    private static final int ROCK = CollisionLayer.ROCK.ordinal();
+    private static final int BULLET = CollisionLayer.BULLET.ordinal();
+
+    private final AsteroidsWorld world;
+    private final int width, height;
+    private final int cols, rows;
+    private final double cellW, cellH;
+
+    // --------- Entidades del tick (arrays paralelos) ---------
+    private Actor[] ent = new Actor[128];
+    private int[] layer = new int[128];
+    private int[] ex = new int[128], ey = new int[128];
+    private int[] er = new int[128];              // radio de la forma (fase precisa)
+    private int[] eb = new int[128];              // radio envolvente + 1 px de redondeo (fase amplia)
+    private boolean[] spent = new boolean[128];   // ya resolvió su contacto en este tick
+    private int[] seen = new int[128];            // última consulta de rayo que probó la entidad
+    private int count = 0;
+
+    // --------- Rejilla (listas enlazadas en arrays) ---------
+    private final int[] cellHead, cellTail;
+    private int[] nodeEntity = new int[512], nodeNext = new int[512];
+    private int nodes = 0;
+
+    // --------- Contactos del tick ---------
+    private long[] contacts = new long[64];
+    private int contactCount = 0;
+
+    // Diagnóstico (PerfOverlay)
+    private int pairsTested = 0;
+    private int lastContacts = 0;
+    private int rayStamp = 0;
+
+    public CollisionSystem(AsteroidsWorld world, int width, int height) {
+        this.world = world;
+        this.width = width;
+        this.height = height;
+        this.cols = (width + CELL - 1) / CELL;
+        this.rows = (height + CELL - 1) / CELL;
+        this.cellW = (double) width / cols;
+        this.cellH = (double) height / rows;
+        this.cellHead = new int[cols * rows];
+        this.cellTail = new int[cols * rows];
+    }
+
+    /** Detecta y resuelve (publica) todos los contactos del tick. */
+    public void run() {
+        gather();
+        broadphase();
+        Arrays.sort(contacts, 0, contactCount);  // orden determinista: regla, a, b
+        for (int k = 0; k < contactCount; k++) {
+            long c = contacts[k];
+            int rule = (int) (c >>> 42);
+            int a = (int) ((c >>> 21) & 0x1FFFFF);
+            int b = (int) (c & 0x1FFFFF);
+            MATRIX.response(rule).onContact(this, a, b);
+        }
+        if (world.arena() != null) arenaPass(world.arena());
+        clear();
+    }
+
+    /* ===================== 1) Recolección ===================== */
+
+    private void gather() {
+        for (int i = 0; i < count; i++) ent[i] = null; // los del tick anterior (raycast)
+        count = 0;
+        List<PlayerShip> ships = world.players();
+        for (int i = 0; i < ships.size(); i++) add(ships.get(i), CollisionLayer.SHIP, (int) Math.ceil(PlayerShip.HULL_REACH));
+        List<Asteroid> rocks = world.asteroids();
+        for (int i = 0; i < rocks.size(); i++) {
+            Asteroid r = rocks.get(i);
+            add(r, CollisionLayer.ROCK, (int) Math.ceil(r.getShape().getHullRadius()));
+        }
+        List<Bullet> bullets = world.bullets();
+        for (int i = 0; i < bullets.size(); i++) add(bullets.get(i), CollisionLayer.BULLET, Bullet.HIT_RADIUS);
+        List<EnemyBullet> enemy = world.enemyBullets();
+        for (int i = 0; i < enemy.size(); i++) add(enemy.get(i), CollisionLayer.ENEMY_BULLET, EnemyBullet.HIT_RADIUS);
+        List<UFO> ufos = world.ufos();
+        for (int i = 0; i < ufos.size(); i++) add(ufos.get(i), CollisionLayer.UFO, ufos.get(i).hitRadius());
+    }
+
+    private void add(Actor a, CollisionLayer l, int radius) {
+        if (count == ent.length) growEntities();
+        ent[count] = a;
+        layer[count] = l.ordinal();
+        ex[count] = a.getX();
+        ey[count] = a.getY();
+        er[count] = radius;
+        eb[count] = radius + 1;   // las formas usan posición subpíxel; la rejilla, enteros
+        spent[count] = false;
+        seen[count] = 0;
+        count++;
+    }
+
+    /* ===================== 2) Fase amplia ===================== */
+
+    private void broadphase() {
+        Arrays.fill(cellHead, -1);
+        nodes = 0;
+        pairsTested = 0;
+        for (int i = 0; i < count; i++) {
+            int c0 = cellX(ex[i] - eb[i]), c1 = cellX(ex[i] + eb[i]);
+            int r0 = cellY(ey[i] - eb[i]), r1 = cellY(ey[i] + eb[i]);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r * cols + c;
+                    // Se inserta al final para que la lista quede en orden de recolección
+                    if (nodes == nodeEntity.length) growNodes();
+                    nodeEntity[nodes] = i;
+                    nodeNext[nodes] = -1;
+                    if (cellHead[cell] < 0) cellHead[cell] = nodes;
+                    else nodeNext[cellTail[cell]] = nodes;
+                    cellTail[cell] = nodes;
+                    nodes++;
+                }
+            }
+        }
+
+        for (int cell = 0; cell < cellHead.length; cell++) {
+            for (int p = cellHead[cell]; p >= 0; p = nodeNext[p]) {
+                int i = nodeEntity[p];
+                for (int q = nodeNext[p]; q >= 0; q = nodeNext[q]) {
+                    testPair(cell, i, nodeEntity[q]);
+                }
+            }
+        }
+    }
+
+    private void testPair(int cell, int i, int j) {
+        int rule = MATRIX.ruleFor(layer[i], layer[j]);
+        if (rule < 0) return;
+
+        // Cajas envolventes: sin intersección no hay contacto; con ella, sólo
+        // la celda que contiene su esquina superior izquierda reporta el par
+        int ix = Math.max(ex[i] - eb[i], ex[j] - eb[j]);
+        int iy = Math.max(ey[i] - eb[i], ey[j] - eb[j]);
+        if (ix > Math.min(ex[i] + eb[i], ex[j] + eb[j])) return;
+        if (iy > Math.min(ey[i] + eb[i], ey[j] + eb[j])) return;
+        if (cellY(iy) * cols + cellX(ix) != cell) return;
+
+        int dx = ex[i] - ex[j], dy = ey[i] - ey[j], reach = eb[i] + eb[j];
+        if (dx*dx + dy*dy > reach*reach) return;
+
+        pairsTested++;
+        if (!overlaps(i, j)) return;
+
+        boolean swap = MATRIX.isSwapped(layer[i], layer[j]);
+        int a = swap ? j : i, b = swap ? i : j;
+        if (contactCount == contacts.length) contacts = Arrays.copyOf(contacts, contactCount * 2);
+        contacts[contactCount++] = ((long) rule << 42) | ((long) a << 21) | b;
+    }
+
+    /* ===================== 3) Fase precisa ===================== */
+
+    /** Prueba exacta según la forma de cada capa (círculo, casco, triángulo). */
+    private boolean overlaps(int i, int j) {
+        if (layer[j] == ROCK || (layer[j] == SHIP && layer[i] != ROCK)) { int t = i; i = j; j = t; }
+        // Ahora, si hay roca, está en i; si no, la nave (si la hay) está en i
+        if (layer[i] == ROCK) {
+            Asteroid rock = (Asteroid) ent[i];
+            if (layer[j] == SHIP) return ((PlayerShip) ent[j]).touchesRock(rock);
+            return Collision.circleHitsRock(ent[j].getX(), ent[j].getY(), er[j], rock);
+        }
+        if (layer[i] == SHIP) {
+            return ((PlayerShip) ent[i]).isHitByCircle(ent[j].getX(), ent[j].getY(), er[j]);
+        }
+        // Círculo contra círculo
+        int dx = ex[i] - ex[j], dy = ey[i] - ey[j], reach = er[i] + er[j];
+        return dx*dx + dy*dy <= reach*reach;
+    }
+
+    /* ===================== 4) Respuestas ===================== */
+
+    private static void bulletHitsUfo(CollisionSystem s, int bullet, int ufo) {
+        Bullet b = (Bullet) s.ent[bullet];
+        if (!b.isArmed() || !(b.getOwner() instanceof PlayerShip)) return;
+        if (!s.spend(bullet, ufo)) return;
+        s.world.events().ufoKilled((UFO) s.ent[ufo], b);
+    }
+
+    private static void bulletHitsRock(CollisionSystem s, int bullet, int rock) {
+        Bullet b = (Bullet) s.ent[bullet];
+        if (!b.isArmed()) return;
+        if (!s.spend(bullet, rock)) return;   // una bala, una roca; una roca, una bala
+        s.world.events().rockHit((Asteroid) s.ent[rock], b);
+    }
+
+    private static void ufoHitsRock(CollisionSystem s, int ufo, int rock) {
+        if (!s.spend(ufo, rock)) return;
+        s.world.events().ufoCrash((UFO) s.ent[ufo], (Asteroid) s.ent[rock]);
+    }
+
+    private static void enemyBulletHitsShip(CollisionSystem s, int bullet, int ship) {
+        if (!s.spend(bullet, ship)) return;
+        s.world.events().shipHit((PlayerShip) s.ent[ship], s.ent[bullet]);
+    }
+
+    private static void ufoHitsShip(CollisionSystem s, int ufo, int ship) {
+        if (!s.spend(ufo, ship)) return;
+        s.world.events().shipHit((PlayerShip) s.ent[ship], null);
+        s.world.events().ufoRammed((UFO) s.ent[ufo], (PlayerShip) s.ent[ship]);
+    }
+
+    private static void shipHitsRock(CollisionSystem s, int ship, int rock) {
+        if (s.spent[ship]) return;           // la roca sigue: puede chocar con otra cosa
+        s.spent[ship] = true;
+        s.world.events().shipHit((PlayerShip) s.ent[ship], null);
+    }
+
+    /** Marca ambas entidades como resueltas; false si alguna ya lo estaba. */
+    private boolean spend(int a, int b) {
+        if (spent[a] || spent[b]) return false;
+        spent[a] = spent[b] = true;
+        return true;
+    }
+
+    /** Modo arena: balas y nave contra el ArenaField (que tiene su propia rejilla de regiones). */
+    private void arenaPass(ArenaField field) {
+        double camX = world.cameraX(), camY = world.cameraY();
+        for (int i = 0; i < count; i++) {
+            if (spent[i]) continue;
+            if (layer[i] == BULLET) {
+                Bullet b = (Bullet) ent[i];
+                if (!b.isArmed()) continue;
+                int k = field.hitCircle(b.getX() + camX, b.getY() + camY, Bullet.HIT_RADIUS);
+                if (k >= 0) {
+                    spent[i] = true;
+                    world.events().fieldHit(k, field.generation(k), b);
+                }
+            } else if (layer[i] == SHIP) {
+                PlayerShip p = (PlayerShip) ent[i];
+                if (p.touchesField(field, camX, camY)) {
+                    spent[i] = true;
+                    world.events().shipHit(p, null);
+                }
+            }
+        }
+    }
+
+    /* ===================== Consulta de rayo ===================== */
+
+    /**
+     * Entidades de las capas de layerMask que cruza el segmento desde (x0,y0) en
+     * dirección (dirX,dirY) con longitud maxDist, ordenadas por distancia de entrada.
+     * - El rayo envuelve los bordes como los actores: al salir por un lado sigue por
+     *   el opuesto. Se parte en tramos dentro de la pantalla y cada tramo recorre la
+     *   rejilla celda a celda (DDA), así sólo prueba lo que hay en su camino.
+     * - Rocas contra su casco; el resto contra su círculo (la nave, con su alcance).
+     * - Guarda como mucho out.capacity() impactos; lleno, corta en cuanto ninguna
+     *   celda pendiente puede dar uno más cercano.
+     * - Usa las posiciones del inicio del tick (las de run()) y omite las entidades
+     *   que ya salieron del mundo. Las rocas del ArenaField no están en la rejilla.
+     *
+     * @return out.size()
+     */
+    public int raycast(double x0, double y0, double dirX, double dirY, double maxDist,
+                       int layerMask, RayHits out) {
+        out.clear();
+        double len = Math.hypot(dirX, dirY);
+        if (len == 0 || maxDist <= 0 || count == 0) return 0;
+        double ux = dirX / len, uy = dirY / len;
+
+        double px = wrap(x0, width), py = wrap(y0, height);
+        double t0 = 0;                                   // distancia recorrida al inicio del tramo
+        while (t0 < maxDist && !out.isSettledBefore(t0)) {
+            // Largo del tramo hasta el borde de pantalla por el que sale
+            double tx = (ux > 0) ? (width - px) / ux : (ux < 0) ? -px / ux : Double.POSITIVE_INFINITY;
+            double ty = (uy > 0) ? (height - py) / uy : (uy < 0) ? -py / uy : Double.POSITIVE_INFINITY;
+            double seg = Math.min(Math.min(tx, ty), maxDist - t0);
+
+            if (++rayStamp == 0) { Arrays.fill(seen, 0); rayStamp = 1; }
+            traverse(px, py, ux, uy, seg, t0, layerMask, out);
+
+            // Siguiente tramo: el punto de salida, envuelto al lado opuesto
+            t0 += seg;
+            px = wrap(px + ux * seg, width);
+            py = wrap(py + uy * seg, height);
+            if (seg == tx && ux > 0) px = 0;  else if (seg == tx) px = Math.nextDown((double) width);
+            if (seg == ty && uy > 0) py = 0;  else if (seg == ty) py = Math.nextDown((double) height);
+        }
+        return out.size();
+    }
+
+    /** DDA de un tramo que está dentro de la pantalla (Amanatides-Woo). */
+    private void traverse(double px, double py, double ux, double uy, double seg, double t0,
+                          int layerMask, RayHits out) {
+        int c = cellX(px), r = cellY(py);
+        int stepC = (ux > 0) ? 1 : -1, stepR = (uy > 0) ? 1 : -1;
+        double dtC = (ux != 0) ? cellW / Math.abs(ux) : Double.POSITIVE_INFINITY;
+        double dtR = (uy != 0) ? cellH / Math.abs(uy) : Double.POSITIVE_INFINITY;
+        double nextC = (ux > 0) ? ((c + 1) * cellW - px) / ux : (ux < 0) ? (c * cellW - px) / ux : Double.POSITIVE_INFINITY;
+        double nextR = (uy > 0) ? ((r + 1) * cellH - py) / uy : (uy < 0) ? (r * cellH - py) / uy : Double.POSITIVE_INFINITY;
+
+        double cellEnter = 0;
+        while (true) {
+            // El punto de entrada de cualquier impacto cae en una celda que la entidad
+            // ocupa: si ya hay bastantes antes de esta celda, no puede haber otro mejor
+            if (out.isSettledBefore(t0 + cellEnter)) return;
+            for (int p = cellHead[r * cols + c]; p >= 0; p = nodeNext[p]) {
+                testRay(nodeEntity[p], px, py, ux, uy, seg, t0, layerMask, out);
+            }
+            cellEnter = Math.min(nextC, nextR);
+            if (cellEnter > seg) return;
+            if (nextC < nextR) { c += stepC; nextC += dtC; if (c < 0 || c >= cols) return; }
+            else               { r += stepR; nextR += dtR; if (r < 0 || r >= rows) return; }
+        }
+    }
+
+    private void testRay(int i, double px, double py, double ux, double uy, double seg, double t0,
+                         int layerMask, RayHits out) {
+        if ((layerMask & (1 << layer[i])) == 0 || seen[i] == rayStamp) return;
+        seen[i] = rayStamp;                   // ocupa varias celdas: se prueba una vez por tramo
+        if (ent[i].getWorld() != world) return;
+        double t = (layer[i] == ROCK)
+            ? Collision.rayHitsRock(px, py, ux, uy, seg, (Asteroid) ent[i], ex[i], ey[i])
+            : Collision.rayHitsCircle(px, py, ux, uy, seg, ex[i], ey[i], er[i]);
+        if (t >= 0) out.offer(ent[i], layer[i], t0 + t); // si ya salió en un tramo previo, se ignora
+    }
+
+    private static double wrap(double v, int size) {
+        v %= size;
+        return (v < 0) ? v + size : v;
+    }
+
+    /* ===================== Consulta del más cercano ===================== */
+
+    /**
+     * Entidad de las capas de layerMask cuyo centro está más cerca de (x,y), o null.
+     * - Recorre la rejilla en anillos de celdas alrededor de (x,y) y corta en cuanto
+     *   ningún anillo pendiente puede tener un centro más cercano: el costo depende
+     *   de lo que hay cerca, no de cuántas entidades hay en la capa.
+     * - Distancia directa (sin envolver los bordes), como apuntan los OVNIs.
+     * - Mismas posiciones y reglas que raycast (inicio del tick, omite las que salieron).
+     */
+    public Actor nearest(double x, double y, int layerMask) {
+        if (count == 0) return null;
+        int c = cellX(x), r = cellY(y);
+        double ring = Math.min(cellW, cellH);   // distancia mínima que agrega cada anillo
+        int maxRing = Math.max(Math.max(c, cols - 1 - c), Math.max(r, rows - 1 - r));
+        int best = -1;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        for (int k = 0; k <= maxRing; k++) {
+            for (int rr = r - k; rr <= r + k; rr++) {
+                if (rr < 0 || rr >= rows) continue;
+                boolean edgeRow = (rr == r - k || rr == r + k);
+                for (int cc = c - k; cc <= c + k; cc += edgeRow ? 1 : 2 * k) {
+                    if (cc < 0 || cc >= cols) continue;
+                    int cell = rr * cols + cc;
+                    for (int p = cellHead[cell]; p >= 0; p = nodeNext[p]) {
+                        int i = nodeEntity[p];
+                        if ((layerMask & (1 << layer[i])) == 0) continue;
+                        // Ocupa varias celdas: cuenta sólo en la de su centro
+                        if (cellY(ey[i]) * cols + cellX(ex[i]) != cell) continue;
+                        if (ent[i].getWorld() != world) continue;
+                        double dx = ex[i] - x, dy = ey[i] - y;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 < bestD2) { bestD2 = d2; best = i; }
+                    }
+                    if (k == 0) break;
+                }
+            }
+            // Todo centro fuera de los anillos 0..k está a más de k*ring de (x,y)
+            if (best >= 0 && bestD2 <= (k * ring) * (k * ring)) break;
+        }
+        return (best >= 0) ? ent[best] : null;
+    }
+
+    /* ===================== Utilidades ===================== */
+
+    /** Pares que llegaron a la fase precisa en el último tick. */
+    public int pairsTestedLastTick() { return pairsTested; }
+    /** Contactos confirmados en el último tick. */
+    public int contactsLastTick()    { return lastContacts; }
+
+    private void clear() {
+        lastContacts = contactCount;
+        contactCount = 0;
+        // Entidades y rejilla quedan para raycast; gather() las suelta en el próximo tick
+    }
+
+    private int cellX(double x) { return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellW))); }
+    private int cellY(double y) { return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellH))); }
+
+    private void growEntities() {
+        int cap = ent.length * 2;
+        ent = Arrays.copyOf(ent, cap);
+        layer = Arrays.copyOf(layer, cap);
+        ex = Arrays.copyOf(ex, cap); ey = Arrays.copyOf(ey, cap);
+        er = Arrays.copyOf(er, cap); eb = Arrays.copyOf(eb, cap);
+        spent = Arrays.copyOf(spent, cap);
+        seen = Arrays.copyOf(seen, cap);
+    }
+
+    private void growNodes() {
+        int cap = nodeEntity.length * 2;
+        nodeEntity = Arrays.copyOf(nodeEntity, cap);
+        nodeNext = Arrays.copyOf(nodeNext, cap);
+    }
+}
@@ -2,30 +2,57 @@ import greenfoot.*;
 
 /**
  * Bala enemiga (disparada por el UFO u otros enemigos).
- * - Movimiento rectilíneo, wrapping y TTL.
- * - Daña al PlayerShip al impacto (notifica al mundo).
+ * - Movimiento rectilíneo, wrapping y TTL (temporizador de la TimerWheel del mundo).
+ * - Daña al PlayerShip al impacto (CollisionSystem publica GameEvents.shipHit).
+ * - Reutilizable: AsteroidsWorld la devuelve a su pool al sacarla (ver reset).
  */
-public class EnemyBullet extends Actor {
+public class EnemyBullet extends SpriteActor implements TimerWheel.Listener {
+
+    /** Radio de colisión (px), igual al del sprite. */
+    public static final int HIT_RADIUS = 3;
 
     private double x, y, vx, vy;
-    private final int ttlFrames;
-    private int age = 0;
-    private final Actor owner;
-    private GreenfootImage sprite;
+    private int ttlFrames;
+    private int ttlTimer = TimerWheel.NONE;
+    private Actor owner;
 
     public EnemyBullet(double vx, double vy, int ttlFrames, Actor owner) {
+        this();
+        reset(vx, vy, ttlFrames, owner);
+    }
+
+    /** Instancia "vacía" para el pool; se configura con reset antes de usarla. */
+    public EnemyBullet() {
+        setImage(Assets.enemyBullet()); // sprite compartido
+    }
+
+    /** (Re)inicializa la bala (mismos parámetros que el constructor). */
+    public EnemyBullet reset(double vx, double vy, int ttlFrames, Actor owner) {
         this.vx = vx;
         this.vy = vy;
         this.ttlFrames = ttlFrames > 0 ? ttlFrames : Integer.MAX_VALUE;
         this.owner = owner;
-        buildSprite();
-        setImage(sprite);
+        return this;
     }
 
     @Override
     protected void addedToWorld(World w) {
         this.x = getX();
         this.y = getY();
+        if (ttlFrames != Integer.MAX_VALUE) ttlTimer = ((AsteroidsWorld) w).timers().schedule(this, 0, ttlFrames);
+    }
+
+    /** Venció el TTL. */
+    @Override
+    public void onTimer(int kind) {
+        ttlTimer = TimerWheel.NONE;
+        if (getWorld() != null) getWorld().removeObject(this);
+    }
+
+    @Override
+    void stopTimers(TimerWheel timers) {
+        timers.cancel(ttlTimer);
+        ttlTimer = TimerWheel.NONE;
     }
 
     @Override
@@ -35,30 +62,6 @@ public class EnemyBullet extends Actor {
         y += vy;
         wrapAround();
         setLocation((int)Math.round(x), (int)Math.round(y));
-
-        // Colisión con el jugador
-        Actor p = getOneIntersectingObject(PlayerShip.class);
-        if (p != null) {
-            AsteroidsWorld world = (AsteroidsWorld) getWorld();
-            if (world != null) {
-                world.loseLife();
-            }
-            if (getWorld() != null) getWorld().removeObject(this);
-            
-            if (p.getWorld() != null) { 
-                Particles.spawnExplosion(getWorld(), p.getX(), p.getY(), 16);
-                p.getWorld().removeObject(p); // PlayerShip se quita aquí
-                Greenfoot.playSound("explode.wav"); // opcional
-            }
-            return;
-            
-        }
-
-        // TTL
-        age++;
-        if (age >= ttlFrames && getWorld() != null) {
-            getWorld().removeObject(this);
-        }
     }
 
     private void wrapAround() {
@@ -70,13 +73,5 @@ public class EnemyBullet extends Actor {
         if (y >= H) y -= H;
     }
 
-    private void buildSprite() {
-        // Rojo tenue para diferenciar de la bala del jugador
-        int r = 3;
-        sprite = new GreenfootImage(2*r, 2*r);
-        sprite.setColor(new Color(255, 80, 80));
-        sprite.fillOval(0, 0, 2*r-1, 2*r-1);
-    }
-
     public Actor getOwner() { return owner; }
 }
@@ -0,0 +1,303 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Caja negra de la partida: guarda siempre los últimos segundos en memoria y,
+ * cuando un tick se pasa del umbral, los vuelca a disco para verlos después
+ * (FlightRecording / FlightReplay).
+ * - Por frame: contadores del mundo, desglose de tiempos del act (ver PHASES),
+ *   bytes reservados por el hilo del juego y todas las entidades con la misma
+ *   codificación que SpectatorServer (dos ints cada una).
+ * - Todo va a un ring de ints reservado al abrir: grabar no reserva memoria ni
+ *   toma locks (~2 µs por frame con cientos de entidades). Si un frame no entra,
+ *   se pisan los más viejos.
+ * - Pico: frame (act a act) por encima de -Dasteroids.flightRecorder=ms y de 4
+ *   veces el frame típico (media móvil; así no salta con Greenfoot a poca
+ *   velocidad). Sigue POST_FRAMES frames más, cambia al ring de repuesto y un
+ *   hilo propio escribe el congelado; mientras escribe, los picos no vuelcan.
+ *
+ * Apagado por defecto (cuesta dos rings de 2 MB y un hilo): se enciende con
+ * -Dasteroids.flightRecorder=on (umbral 50 ms) o =ms con otro umbral.
+ * Los archivos van a flights/.
+ */
+public final class FlightRecorder {
+
+    // --------- Desglose de tiempos (µs; índices en el frame) ---------
+    public static final int FRAME = 0;       // act a act
+    public static final int OUTSIDE = 1;     // fin del frame anterior → este act: pintado de Greenfoot, espera
+    public static final int RENDER = 2;      // BatchRenderer del frame anterior (dentro de OUTSIDE)
+    public static final int GAME = 3;        // respawn, director, oleadas y el act de los actores (arena: espera de ArenaSim)
+    public static final int COLLISIONS = 4;
+    public static final int EVENTS = 5;
+    public static final int TIMERS = 6;
+    public static final int PUBLISH = 7;     // métricas y espectadores
+    public static final int SCHEDULER = 8;   // trabajo cosmético (SpawnScheduler)
+    static final String[] PHASES = { "frame", "outside", "render", "game", "collisions", "events",
+                                     "timers", "publish", "scheduler" };
+
+    // --------- Cabecera de cada frame (ints) ---------
+    static final int TICK = 0, SCORE = 1, WAVE = 2, LIVES = 3, ENTITIES = 4, ROCKS = 5, BULLETS = 6,
+                     PARTICLES = 7, UFOS = 8, ENEMY_BULLETS = 9, PLAYERS = 10, ALLOC_BYTES = 11;
+    static final int TIMES = 12;                            // PHASES.length ints desde aquí
+    static final int HEADER_INTS = TIMES + PHASES.length;
+    static final String[] COUNTERS = { "tick", "score", "wave", "lives", "entities", "rocks", "bullets",
+                                       "particles", "ufos", "enemy_bullets", "players", "alloc_bytes" };
+
+    static final byte[] MAGIC = { 'A', 'S', 'T', 'F' };
+    static final int VERSION = 1;
+
+    static final int FRAMES = 300;                          // ~5 s a 60 FPS
+    static final int POST_FRAMES = 30;                      // frames que se siguen grabando tras el pico
+    private static final int ARENA = 1 << 19;               // ints por ring (2 MB)
+    private static final int MAX_ENTITIES = SpectatorServer.MAX_ENTITIES;
+    private static final long COOLDOWN_FRAMES = 600;        // entre volcados
+
+    /** Grabador apagado. */
+    public static final FlightRecorder DISABLED = new FlightRecorder();
+
+    private static FlightRecorder current;                  // uno por JVM
+
+    /** Ring de frames sobre un arreglo de ints. */
+    private static final class Ring {
+        final int[] data = new int[ARENA];
+        final int[] offset = new int[FRAMES], length = new int[FRAMES];
+        long written = 0;     // frames escritos en total
+        int valid = 0;        // cuántos de los últimos siguen enteros
+        int pos = 0;          // siguiente int libre
+        int triggerTick;
+
+        void reset() { written = 0; valid = 0; pos = 0; }
+
+        /** Reserva espacio contiguo para un frame de hasta 'max' ints y descarta lo que pise. */
+        int reserve(int max) {
+            if (pos + max > ARENA) pos = 0;
+            int end = pos + max;
+            while (valid > 0) {
+                int oldest = (int) ((written - valid) % FRAMES);
+                int o = offset[oldest];
+                if (o + length[oldest] <= pos || o >= end) break;
+                valid--;
+            }
+            if (valid == FRAMES) valid--;
+            return pos;
+        }
+
+        void commit(int start, int len) {
+            int slot = (int) (written % FRAMES);
+            offset[slot] = start;
+            length[slot] = len;
+            written++;
+            valid++;
+            pos = start + len;
+        }
+    }
+
+    private final int width, height;
+    private final long thresholdNanos;
+    private Ring active, spare;                              // spare == null: el escritor lo tiene
+    private final AtomicReference<Ring> toWrite = new AtomicReference<>();
+    private final AtomicReference<Ring> written = new AtomicReference<>();
+    private final com.sun.management.ThreadMXBean alloc;     // null = la JVM no mide reservas por hilo
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile File lastDump;
+
+    // --------- Frame en curso (hilo del juego) ---------
+    private final long[] times = new long[PHASES.length];
+    private long mark, lastAlloc = -1, typicalNanos = 0;
+    private long dumpAtTick = -1, nextAllowedTick = 0;
+    private int triggerTick;
+
+    private FlightRecorder() {
+        width = height = 0;
+        thresholdNanos = 0;
+        alloc = null;
+        writer = null;
+    }
+
+    private FlightRecorder(int width, int height, long thresholdNanos) {
+        this.width = width;
+        this.height = height;
+        this.thresholdNanos = thresholdNanos;
+        this.active = new Ring();
+        this.spare = new Ring();
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean a = null;
+        if (mx instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) mx).isThreadAllocatedMemorySupported()) {
+            a = (com.sun.management.ThreadMXBean) mx;
+            a.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.alloc = a;
+        this.running = true;
+        this.writer = new Thread(this::writerLoop, "flight-writer");
+        this.writer.setDaemon(true);
+        this.writer.setPriority(Thread.MIN_PRIORITY);
+        this.writer.start();
+    }
+
+    /**
+     * Abre el grabador (cierra el anterior, si lo había). Nunca falla: sin
+     * -Dasteroids.flightRecorder=on|ms (o con un valor inválido) devuelve DISABLED.
+     */
+    public static synchronized FlightRecorder open(int width, int height) {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        String prop = System.getProperty("asteroids.flightRecorder", "off");
+        if ("off".equalsIgnoreCase(prop)) return DISABLED;
+        if ("on".equalsIgnoreCase(prop)) prop = "50";
+        try {
+            current = new FlightRecorder(width, height, Math.max(1, Long.parseLong(prop.trim())) * 1_000_000L);
+            return current;
+        } catch (NumberFormatException e) {
+            System.err.println("FlightRecorder: desactivado (umbral inválido: " + prop + ")");
+            return DISABLED;
+        }
+    }
+
+    public boolean isEnabled() { return writer != null; }
+
+    /** Último volcado escrito (null si todavía no hubo). */
+    public File lastDump() { return lastDump; }
+
+    /* ===================== Hilo del juego ===================== */
+
+    /**
+     * Principio del act del mundo.
+     * @param frameNanos   act a act (0 = no se midió, p.ej. tras una pausa)
+     * @param outsideNanos desde el fin del act anterior
+     * @param renderNanos  lo que tardó el BatchRenderer en el frame anterior (0 si no hay)
+     */
+    public void beginFrame(long now, long frameNanos, long outsideNanos, long renderNanos) {
+        if (writer == null) return;
+        for (int i = 0; i < times.length; i++) times[i] = 0;
+        times[FRAME] = frameNanos;
+        times[OUTSIDE] = outsideNanos;
+        times[RENDER] = renderNanos;
+        mark = now;
+    }
+
+    /** Suma a 'phase' lo que pasó desde la marca anterior. */
+    public void mark(int phase) {
+        if (writer == null) return;
+        long now = System.nanoTime();
+        times[phase] += now - mark;
+        mark = now;
+    }
+
+    /** Fin de la lógica del frame (endOfFrame): graba el frame y decide si hay que volcar. */
+    public void endFrame(AsteroidsWorld world) {
+        if (writer == null) return;
+        Ring written = this.written.getAndSet(null);
+        if (written != null) spare = written;                // el escritor lo devolvió
+
+        long bytes = 0;
+        if (alloc != null) {
+            long now = alloc.getCurrentThreadAllocatedBytes();
+            bytes = (lastAlloc < 0) ? 0 : now - lastAlloc;
+            lastAlloc = now;
+        }
+
+        Ring r = active;
+        int start = r.reserve(HEADER_INTS + 2 * MAX_ENTITIES);
+        int[] d = r.data;
+        int n = SpectatorServer.encode(world.actors(), d, start + HEADER_INTS, MAX_ENTITIES);
+        d[start + TICK] = world.getTick();
+        d[start + SCORE] = world.getScore();
+        d[start + WAVE] = world.getWave();
+        d[start + LIVES] = world.getLives();
+        d[start + ENTITIES] = n;
+        d[start + ROCKS] = world.asteroids().size();
+        d[start + BULLETS] = world.getBulletCount();
+        d[start + PARTICLES] = world.getParticleCount();
+        d[start + UFOS] = world.getUfoCount();
+        d[start + ENEMY_BULLETS] = world.getEnemyBulletCount();
+        d[start + PLAYERS] = world.players().size();
+        d[start + ALLOC_BYTES] = (int) Math.min(Integer.MAX_VALUE, bytes);
+        for (int i = 0; i < times.length; i++) d[start + TIMES + i] = (int) Math.min(Integer.MAX_VALUE, times[i] / 1000);
+        r.commit(start, HEADER_INTS + 2 * n);
+
+        // ¿Pico? (el frame típico se sigue aunque no se vuelque)
+        int tick = world.getTick();
+        long ft = times[FRAME];
+        if (ft > 0) {
+            boolean spike = typicalNanos > 0 && ft > thresholdNanos && ft > 4 * typicalNanos;
+            typicalNanos = (typicalNanos == 0) ? ft : typicalNanos + (ft - typicalNanos) / 32;
+            if (spike && dumpAtTick < 0 && tick >= nextAllowedTick && spare != null) {
+                dumpAtTick = tick + POST_FRAMES;
+                triggerTick = tick;
+            }
+        }
+        if (dumpAtTick >= 0 && tick >= dumpAtTick) {
+            dumpAtTick = -1;
+            nextAllowedTick = tick + COOLDOWN_FRAMES;
+            r.triggerTick = triggerTick;
+            active = spare;
+            active.reset();
+            spare = null;
+            toWrite.set(r);
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /** Deja de grabar; un volcado en curso termina igual. */
+    public void close() {
+        if (writer == null || !running) return;
+        running = false;
+        LockSupport.unpark(writer);
+    }
+
+    /* ===================== Escritor (hilo propio) ===================== */
+
+    private void writerLoop() {
+        while (running || toWrite.get() != null) {
+            Ring r = toWrite.getAndSet(null);
+            if (r == null) {
+                LockSupport.parkNanos(this, 100_000_000L);
+                continue;
+            }
+            try {
+                lastDump = write(r);   // sin aviso por consola: ver lastDump / FlightReplay
+            } catch (IOException | SecurityException e) {
+                System.err.println("FlightRecorder: no se pudo volcar (" + e + ")");
+            }
+            written.set(r);
+        }
+    }
+
+    /**
+     * Formato: "ASTF" + versión, ancho, alto, umbral (µs), tick del pico, ints de
+     * cabecera, nº de fases, nº de frames (ints); luego cada frame: largo y sus ints.
+     */
+    private File write(Ring r) throws IOException {
+        File dir = new File("flights");
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("No se pudo crear " + dir);
+        File file = new File(dir, "flight-" + System.currentTimeMillis() + "-t" + r.triggerTick + ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt((int) (thresholdNanos / 1000));
+            out.writeInt(r.triggerTick);
+            out.writeInt(HEADER_INTS);
+            out.writeInt(PHASES.length);
+            out.writeInt(r.valid);
+            for (long f = r.written - r.valid; f < r.written; f++) {
+                int slot = (int) (f % FRAMES);
+                int o = r.offset[slot], len = r.length[slot];
+                out.writeInt(len);
+                for (int i = 0; i < len; i++) out.writeInt(r.data[o + i]);
+            }
+        }
+        return file;
+    }
+}
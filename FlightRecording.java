@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Un volcado de FlightRecorder ya cargado: frames con contadores, tiempos por
+ * fase y entidades (misma codificación que SpectatorServer).
+ * - Lo usa FlightReplay para verlo frame a frame.
+ * - toCsv / main: una fila por frame con contadores y tiempos (µs), para
+ *   ver qué fase se disparó en el pico.
+ *
+ * Uso: java FlightRecording flights/flight-XXXX.bin [salida.csv]
+ * o desde Greenfoot: clic derecho → toCsv("flights/flight-XXXX.bin").
+ */
+public final class FlightRecording {
+
+    private final int width, height, thresholdMicros, triggerTick, headerInts;
+    private final int[][] frames;
+
+    private FlightRecording(int width, int height, int thresholdMicros, int triggerTick, int headerInts, int[][] frames) {
+        this.width = width;
+        this.height = height;
+        this.thresholdMicros = thresholdMicros;
+        this.triggerTick = triggerTick;
+        this.headerInts = headerInts;
+        this.frames = frames;
+    }
+
+    public static FlightRecording load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+            byte[] magic = new byte[FlightRecorder.MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != FlightRecorder.MAGIC[i]) throw new IOException("No es un volcado de FlightRecorder: " + file);
+            }
+            int version = in.readInt();
+            if (version != FlightRecorder.VERSION) throw new IOException("Versión no soportada: " + version);
+            int width = in.readInt(), height = in.readInt();
+            int threshold = in.readInt(), trigger = in.readInt();
+            int headerInts = in.readInt(), phases = in.readInt();
+            if (headerInts != FlightRecorder.HEADER_INTS || phases != FlightRecorder.PHASES.length) {
+                throw new IOException("Cabecera de frame distinta (" + headerInts + " ints, " + phases + " fases)");
+            }
+            int[][] frames = new int[in.readInt()][];
+            for (int f = 0; f < frames.length; f++) {
+                int len = in.readInt();
+                if (len < headerInts || len > headerInts + 2 * SpectatorServer.MAX_ENTITIES) {
+                    throw new IOException("Frame " + f + " corrupto (" + len + " ints)");
+                }
+                int[] d = new int[len];
+                for (int i = 0; i < len; i++) d[i] = in.readInt();
+                frames[f] = d;
+            }
+            return new FlightRecording(width, height, threshold, trigger, headerInts, frames);
+        }
+    }
+
+    /** El volcado más nuevo de flights/ (null si no hay). */
+    public static File latest() {
+        File[] files = new File("flights").listFiles((d, name) -> name.startsWith("flight-") && name.endsWith(".bin"));
+        if (files == null || files.length == 0) return null;
+        File best = files[0];
+        for (File f : files) if (f.lastModified() > best.lastModified()) best = f;
+        return best;
+    }
+
+    public int width()           { return width; }
+    public int height()          { return height; }
+    public int thresholdMicros() { return thresholdMicros; }
+    public int triggerTick()     { return triggerTick; }
+    public int frames()          { return frames.length; }
+
+    /** Frame del pico (o el primero, si el ring ya no lo tenía). */
+    public int triggerFrame() {
+        for (int f = 0; f < frames.length; f++) if (tick(f) == triggerTick) return f;
+        return 0;
+    }
+
+    public int tick(int f)                 { return frames[f][FlightRecorder.TICK]; }
+    /** Contador de la cabecera (FlightRecorder.SCORE, ROCKS, ALLOC_BYTES...). */
+    public int counter(int f, int index)   { return frames[f][index]; }
+    /** Tiempo de una fase (FlightRecorder.FRAME, COLLISIONS...) en µs. */
+    public int micros(int f, int phase)    { return frames[f][FlightRecorder.TIMES + phase]; }
+
+    public int count(int f)                { return frames[f][FlightRecorder.ENTITIES]; }
+    public int kind(int f, int i)          { return frames[f][headerInts + 2 * i] >>> 24; }
+    public int variant(int f, int i)       { return (frames[f][headerInts + 2 * i] >>> 16) & 0xFF; }
+    public int rotation(int f, int i)      { return (short) frames[f][headerInts + 2 * i]; }
+    public int x(int f, int i)             { return frames[f][headerInts + 2 * i + 1] >> 16; }
+    public int y(int f, int i)             { return (short) frames[f][headerInts + 2 * i + 1]; }
+
+    /* ===================== CSV ===================== */
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java FlightRecording <flight.bin> [salida.csv]");
+            return;
+        }
+        Path in = Paths.get(args[0]);
+        Path out = (args.length > 1) ? Paths.get(args[1]) : csvPathFor(in);
+        FlightRecording rec = load(in.toFile());
+        rec.writeCsv(out);
+        int f = rec.triggerFrame();
+        System.out.println(rec.frames() + " frames; pico en el tick " + rec.triggerTick() + ": "
+                           + rec.micros(f, FlightRecorder.FRAME) + " µs (umbral " + rec.thresholdMicros() + " µs)");
+        System.out.println("CSV escrito en " + out);
+    }
+
+    /** Convierte el volcado y devuelve la ruta del CSV (junto al .bin). */
+    public static String toCsv(String binFile) throws IOException {
+        Path in = Paths.get(binFile);
+        Path out = csvPathFor(in);
+        load(in.toFile()).writeCsv(out);
+        return out.toString();
+    }
+
+    public void writeCsv(Path out) throws IOException {
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            csv.println("# threshold_us=" + thresholdMicros + " trigger_tick=" + triggerTick + " size=" + width + "x" + height);
+            StringBuilder head = new StringBuilder();
+            for (String c : FlightRecorder.COUNTERS) head.append(head.length() == 0 ? "" : ",").append(c);
+            for (String p : FlightRecorder.PHASES) head.append(',').append(p).append("_us");
+            csv.println(head);
+            for (int[] d : frames) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < FlightRecorder.HEADER_INTS; i++) row.append(i == 0 ? "" : ",").append(d[i]);
+                csv.println(row);
+            }
+        }
+    }
+
+    private static Path csvPathFor(Path in) {
+        String name = in.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0) ? name.substring(0, dot) : name;
+        return in.resolveSibling(base + ".csv");
+    }
+}
@@ -0,0 +1,158 @@
+import greenfoot.*;  // World, GreenfootImage, Color, Greenfoot
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Visor de volcados de FlightRecorder (herramienta de depuración): abre el más
+ * nuevo de flights/ y lo muestra frame a frame.
+ * - Las entidades se dibujan con figuras simples (rocas por tamaño, naves por
+ *   rotación); es la foto grabada, no una simulación nueva.
+ * - Abajo: tiempo de cada frame (el pico en rojo, el umbral como línea) y el
+ *   desglose por fase del frame actual.
+ * - ← / → un frame, ESPACIO reproduce / pausa, INICIO vuelve al pico.
+ *
+ * En Greenfoot: clic derecho en la clase → new FlightReplay().
+ */
+public class FlightReplay extends World {
+
+    private static final int BARS_H = 60, TEXT_H = 54;
+    private static final Color[] SLOT_COLORS = {
+        new Color(255, 255, 255), new Color(120, 200, 255), new Color(255, 170, 90), new Color(150, 255, 140)
+    };
+
+    private final FlightRecording rec;
+    private final GreenfootImage canvas;
+    private int frame = 0, shown = -1;
+    private boolean playing = false;
+
+    public FlightReplay() {
+        this(FlightRecording.latest());
+    }
+
+    public FlightReplay(File file) {
+        super(AsteroidsWorld.WIDTH, AsteroidsWorld.HEIGHT, 1);
+        FlightRecording r = null;
+        String error = (file == null) ? "No hay volcados en flights/" : null;
+        if (file != null) {
+            try {
+                r = FlightRecording.load(file);
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+        }
+        rec = (r != null && r.frames() > 0) ? r : null;
+        canvas = new GreenfootImage(getWidth(), getHeight());
+        setBackground(canvas);
+        if (rec == null) {
+            canvas.setColor(Color.BLACK);
+            canvas.fill();
+            canvas.setColor(Color.WHITE);
+            canvas.drawString((error != null) ? error : "Volcado vacío", 20, 30);
+            return;
+        }
+        frame = rec.triggerFrame();
+        draw();
+    }
+
+    @Override
+    public void act() {
+        if (rec == null) return;
+        String key = Greenfoot.getKey();
+        if ("space".equals(key)) playing = !playing;
+        else if ("right".equals(key)) { playing = false; frame = Math.min(rec.frames() - 1, frame + 1); }
+        else if ("left".equals(key))  { playing = false; frame = Math.max(0, frame - 1); }
+        else if ("home".equals(key))  { playing = false; frame = rec.triggerFrame(); }
+        if (playing) {
+            if (frame < rec.frames() - 1) frame++;
+            else playing = false;
+        }
+        if (frame != shown) draw();
+    }
+
+    /* ===================== Dibujo ===================== */
+
+    private void draw() {
+        shown = frame;
+        int w = getWidth(), h = getHeight();
+        canvas.setColor(Color.BLACK);
+        canvas.fill();
+        for (int i = 0, n = rec.count(frame); i < n; i++) drawEntity(i);
+        drawBars(w, h);
+        drawText(w, h);
+    }
+
+    private void drawEntity(int i) {
+        int x = rec.x(frame, i), y = rec.y(frame, i), v = rec.variant(frame, i);
+        switch (rec.kind(frame, i)) {
+            case SpectatorServer.ROCK: {
+                Asteroid.Size[] sizes = Asteroid.Size.values();
+                int r = Asteroid.radiusFor(sizes[Math.min(v, sizes.length - 1)]);
+                canvas.setColor(new Color(190, 190, 190));
+                canvas.drawOval(x - r, y - r, 2 * r, 2 * r);
+                break;
+            }
+            case SpectatorServer.SHIP: {
+                double a = Math.toRadians(rec.rotation(frame, i));
+                double c = Math.cos(a), s = Math.sin(a);
+                int[] px = { x + (int) Math.round(14 * c), x + (int) Math.round(-10 * c - 8 * s), x + (int) Math.round(-10 * c + 8 * s) };
+                int[] py = { y + (int) Math.round(14 * s), y + (int) Math.round(-10 * s + 8 * c), y + (int) Math.round(-10 * s - 8 * c) };
+                canvas.setColor(SLOT_COLORS[v % SLOT_COLORS.length]);
+                canvas.drawPolygon(px, py, 3);
+                break;
+            }
+            case SpectatorServer.UFO_SHIP:
+                canvas.setColor(new Color(255, 90, 255));
+                canvas.drawOval(x - 18, y - 8, 36, 16);
+                break;
+            case SpectatorServer.BULLET:
+                canvas.setColor(Color.YELLOW);
+                canvas.fillRect(x - 1, y - 1, 3, 3);
+                break;
+            case SpectatorServer.ENEMY_BULLET:
+                canvas.setColor(Color.RED);
+                canvas.fillRect(x - 1, y - 1, 3, 3);
+                break;
+            default:   // partículas
+                canvas.setColor(Color.ORANGE);
+                canvas.fillRect(x, y, 1, 1);
+        }
+    }
+
+    /** Una barra por frame (alto = tiempo de frame, tope 2x el umbral). */
+    private void drawBars(int w, int h) {
+        int top = h - BARS_H - TEXT_H, n = rec.frames();
+        double max = 2.0 * rec.thresholdMicros();
+        canvas.setColor(new Color(0, 0, 0, 200));
+        canvas.fillRect(0, top, w, BARS_H + TEXT_H);
+        int trigger = rec.triggerFrame();
+        for (int f = 0; f < n; f++) {
+            int x0 = f * w / n, x1 = Math.max(x0 + 1, (f + 1) * w / n - 1);
+            int bh = (int) Math.min(BARS_H, BARS_H * rec.micros(f, FlightRecorder.FRAME) / max);
+            canvas.setColor(f == frame ? Color.WHITE : f == trigger ? Color.RED : new Color(80, 160, 255));
+            canvas.fillRect(x0, top + BARS_H - bh, x1 - x0, bh);
+        }
+        canvas.setColor(Color.YELLOW);
+        canvas.drawLine(0, top + BARS_H / 2, w, top + BARS_H / 2);   // umbral
+    }
+
+    private void drawText(int w, int h) {
+        int y = h - TEXT_H + 16;
+        canvas.setColor(Color.WHITE);
+        canvas.drawString("Frame " + (frame + 1) + "/" + rec.frames() + "  tick " + rec.tick(frame)
+                          + " (pico: " + rec.triggerTick() + ")  puntaje " + rec.counter(frame, FlightRecorder.SCORE)
+                          + "  oleada " + rec.counter(frame, FlightRecorder.WAVE)
+                          + "  vidas " + rec.counter(frame, FlightRecorder.LIVES), 8, y);
+        canvas.drawString("rocas " + rec.counter(frame, FlightRecorder.ROCKS)
+                          + "  balas " + rec.counter(frame, FlightRecorder.BULLETS)
+                          + "  partículas " + rec.counter(frame, FlightRecorder.PARTICLES)
+                          + "  ovnis " + rec.counter(frame, FlightRecorder.UFOS)
+                          + "  balas enemigas " + rec.counter(frame, FlightRecorder.ENEMY_BULLETS)
+                          + "  reservado " + rec.counter(frame, FlightRecorder.ALLOC_BYTES) / 1024 + " KB", 8, y + 16);
+        StringBuilder phases = new StringBuilder();
+        for (int p = 0; p < FlightRecorder.PHASES.length; p++) {
+            if (p > 0) phases.append("  ");
+            phases.append(FlightRecorder.PHASES[p]).append(' ').append(rec.micros(frame, p) / 1000.0).append(" ms");
+        }
+        canvas.drawString(phases.toString(), 8, y + 32);
+    }
+}
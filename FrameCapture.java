@@ -0,0 +1,371 @@
+import greenfoot.*;  // GreenfootImage
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Deflater;
+
+/**
+ * Captura de frames del lienzo del juego para clips (reportes de errores, jugadas).
+ * - El hilo del juego sólo copia los píxeles del frame ya pintado (BatchRenderer)
+ *   a uno de RING búferes reservados de antemano; si no hay uno libre, el frame
+ *   se descarta (dropped) y el juego nunca espera.
+ * - Un pool de hilos comprime cada frame: completo cada KEY_INTERVAL frames y,
+ *   entre medio, XOR contra el anterior (casi todo ceros: el fondo no cambia),
+ *   ambos con Deflater.
+ * - Los últimos 'seconds' segundos comprimidos quedan en memoria: saveLast los
+ *   escribe a disco a pedido (F9), empezando en un frame completo.
+ * - startRecording/stopRecording (F10) graban sin límite: cada frame se agrega
+ *   al archivo, en orden, apenas está comprimido.
+ * - Escritura con FileChannel; los clips guardados se escriben al lado y se renombran.
+ *
+ * Formato .clip: "ASTC" + versión, ancho, alto, fps (ints); luego por frame:
+ * tick (int), completo (byte 1) o XOR (byte 0), largo (int) y los datos deflate
+ * de los píxeles ARGB (ints big-endian). ClipExporter lo pasa a una secuencia PNG.
+ *
+ * Se activa con AsteroidsWorld.setCapture(true) o -Dasteroids.capture=on;
+ * los archivos van a captures/. Una por JVM: open cierra la anterior (el mundo
+ * de un Reset no deja hilos de compresión colgados).
+ */
+public final class FrameCapture {
+
+    static final byte[] MAGIC = { 'A', 'S', 'T', 'C' };
+    static final int VERSION = 1;
+
+    /** Un frame completo cada tanto: un clip puede empezar en cualquiera de ellos. */
+    static final int KEY_INTERVAL = 60;
+    private static final int RING = 8;          // frames crudos en vuelo
+    private static FrameCapture current;        // captura abierta (una por JVM)
+
+    private final int width, height, fps;
+    private final Path dir;
+
+    // --------- Ring de frames crudos (el juego escribe, el pool lee) ---------
+    // refs: 0 = libre; al llenarse 2 (su compresión + ser la referencia del siguiente)
+    private final int[][] raw = new int[RING][];
+    private final AtomicIntegerArray refs = new AtomicIntegerArray(RING);
+    private final EncodeTask[] tasks = new EncodeTask[RING];
+    private final ThreadPoolExecutor workers;
+
+    // --------- Sólo el hilo del juego ---------
+    private int seq = 0;                 // siguiente número de frame capturado
+    private boolean forceKey = true;
+    private long dropped = 0;
+
+    // --------- Frames comprimidos: los últimos window.length, por seq ---------
+    private final AtomicReferenceArray<Frame> window;
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    // --------- Grabación en curso (protegida por 'this') ---------
+    private FileChannel recording = null;
+    private Path recordingPath;
+    private int recordNext, recordEnd = Integer.MAX_VALUE;
+    private CompletableFuture<Path> recordingDone;
+
+    // Escrituras de clips a pedido (un hilo: no compiten con la compresión por el disco)
+    private final ExecutorService saver;
+
+    /** Un frame comprimido (inmutable). */
+    static final class Frame {
+        final int seq, tick;
+        final boolean key;
+        final byte[] data;
+
+        Frame(int seq, int tick, boolean key, byte[] data) {
+            this.seq = seq;
+            this.tick = tick;
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Abre una captura nueva (cierra la anterior, si la había).
+     * @param fps     frames por segundo del juego (para el archivo y la ventana)
+     * @param seconds segundos que se guardan en memoria para saveLast
+     */
+    public static synchronized FrameCapture open(int width, int height, int fps, int seconds) {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        current = new FrameCapture(width, height, fps, seconds);
+        return current;
+    }
+
+    private FrameCapture(int width, int height, int fps, int seconds) {
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.dir = Paths.get("captures");
+        this.window = new AtomicReferenceArray<>(Math.max(KEY_INTERVAL, fps * seconds));
+        for (int i = 0; i < RING; i++) {
+            raw[i] = new int[width * height];
+            tasks[i] = new EncodeTask(i);
+        }
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        // Cola acotada y tareas reutilizadas: encolar no reserva memoria en el hilo del juego
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                         new ArrayBlockingQueue<>(RING), daemon("capture-encoder"));
+        workers.prestartAllCoreThreads();
+        saver = Executors.newSingleThreadExecutor(daemon("capture-saver"));
+    }
+
+    /* ===================== Hilo del juego ===================== */
+
+    /**
+     * Copia el frame ya pintado y lo encola para comprimir. Nunca bloquea:
+     * devuelve false si todos los búferes siguen en uso (frame descartado).
+     */
+    public boolean offer(GreenfootImage frame, int tick) {
+        int slot = seq % RING;
+        if (refs.get(slot) != 0 || workers.isShutdown()) {
+            dropped++;
+            return false;
+        }
+        copyPixels(frame.getAwtImage(), raw[slot]);
+
+        boolean key = forceKey || seq % KEY_INTERVAL == 0;
+        forceKey = false;
+        int prev = (seq + RING - 1) % RING;
+        if (seq > 0 && key) refs.decrementAndGet(prev);  // nadie lo usará de referencia
+        refs.set(slot, 2);
+
+        EncodeTask t = tasks[slot];
+        t.seq = seq;
+        t.tick = tick;
+        t.key = key;
+        seq++;
+        workers.execute(t);   // la cola publica los campos de la tarea
+        return true;
+    }
+
+    private void copyPixels(BufferedImage img, int[] dst) {
+        Raster r = img.getRaster();
+        if (r.getTransferType() == DataBuffer.TYPE_INT && r.getNumDataElements() == 1) {
+            r.getDataElements(0, 0, width, height, dst);  // copia directa, sin convertir
+        } else {
+            img.getRGB(0, 0, width, height, dst, 0, width);
+        }
+    }
+
+    /**
+     * Guarda los últimos segundos en captures/clip-<ms>.clip, desde el primer frame
+     * completo de la ventana. Los frames que aún se comprimen no entran.
+     */
+    public CompletableFuture<Path> saveLast() {
+        // Se toman ya las referencias: la captura sigue y pisa los más viejos
+        int hi = seq, lo = Math.max(0, hi - window.length());
+        Frame[] frames = new Frame[hi - lo];
+        int n = 0;
+        for (int s = lo; s < hi; s++) {
+            Frame f = window.get(s % window.length());
+            if (f == null || f.seq != s) {            // todavía en compresión (o ya pisado)
+                if (n > 0) break;
+                continue;
+            }
+            if (n == 0 && !f.key) continue;           // el clip empieza en un frame completo
+            frames[n++] = f;
+        }
+        final int count = n;
+        Path out = dir.resolve("clip-" + System.currentTimeMillis() + ".clip");
+        return CompletableFuture.supplyAsync(() -> writeClip(out, frames, count), saver);
+    }
+
+    /**
+     * Empieza a grabar en captures/rec-<ms>.clip desde el próximo frame, que será
+     * completo. Desde el hilo del juego, como offer.
+     */
+    public synchronized void startRecording() throws IOException {
+        if (recording != null) return;
+        Files.createDirectories(dir);
+        recordingPath = dir.resolve("rec-" + System.currentTimeMillis() + ".clip");
+        recording = FileChannel.open(recordingPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writeFully(recording, header());
+        recordNext = seq;
+        recordEnd = Integer.MAX_VALUE;
+        recordingDone = new CompletableFuture<>();
+        forceKey = true;
+    }
+
+    /** Termina la grabación; se completa cuando los frames en vuelo llegaron al archivo. */
+    public synchronized CompletableFuture<Path> stopRecording() {
+        if (recording == null) return CompletableFuture.completedFuture(null);
+        recordEnd = seq;
+        CompletableFuture<Path> done = recordingDone;
+        drainRecording();
+        return done;
+    }
+
+    public synchronized boolean isRecording() { return recording != null; }
+
+    /** Detiene los hilos (la grabación en curso se cierra con lo que haya llegado). */
+    public void close() {
+        synchronized (FrameCapture.class) {
+            if (current == this) current = null;
+        }
+        stopRecording();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (recording != null) finishRecording();
+        }
+        saver.shutdown();
+    }
+
+    public int captured()    { return seq; }
+    public long dropped()    { return dropped; }
+    /** Bytes comprimidos en total (para estimar la tasa de compresión). */
+    public long encodedBytes() { return encodedBytes.get(); }
+
+    /* ===================== Compresión (pool) ===================== */
+
+    private final class EncodeTask implements Runnable {
+        final int slot;
+        int seq, tick;
+        boolean key;
+
+        EncodeTask(int slot) { this.slot = slot; }
+
+        @Override
+        public void run() {
+            int s = seq, tk = tick;
+            boolean k = key;
+            try {
+                Encoder enc = ENCODER.get();
+                byte[] data = enc.encode(raw[slot], k ? null : raw[(slot + RING - 1) % RING], width * height);
+                encodedBytes.addAndGet(data.length);
+                window.set(s % window.length(), new Frame(s, tk, k, data));
+            } finally {
+                refs.decrementAndGet(slot);
+                if (!k) refs.decrementAndGet((slot + RING - 1) % RING);
+            }
+            synchronized (FrameCapture.this) {
+                drainRecording();
+            }
+        }
+    }
+
+    /** Búfer y Deflater por hilo (se reutilizan entre frames). */
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    private static final class Encoder {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private ByteBuffer pixels = ByteBuffer.allocate(0);
+        private byte[] out = new byte[64 * 1024];
+
+        byte[] encode(int[] cur, int[] ref, int n) {
+            if (pixels.capacity() < n * 4) pixels = ByteBuffer.allocate(n * 4);
+            pixels.clear();
+            if (ref == null) {
+                pixels.asIntBuffer().put(cur, 0, n);
+            } else {
+                for (int i = 0; i < n; i++) pixels.putInt(cur[i] ^ ref[i]);
+            }
+            deflater.reset();
+            deflater.setInput(pixels.array(), 0, n * 4);
+            deflater.finish();
+            int len = 0;
+            while (!deflater.finished()) {
+                if (len == out.length) out = Arrays.copyOf(out, out.length * 2);
+                len += deflater.deflate(out, len, out.length - len);
+            }
+            return Arrays.copyOf(out, len);
+        }
+    }
+
+    /* ===================== Escritura ===================== */
+
+    /** Agrega al archivo los frames ya comprimidos que siguen en orden. Con 'this' tomado. */
+    private void drainRecording() {
+        if (recording == null) return;
+        try {
+            while (recordNext < recordEnd) {
+                Frame f = window.get(recordNext % window.length());
+                if (f == null || f.seq != recordNext) break;   // aún no está
+                writeFrame(recording, f);
+                recordNext++;
+            }
+        } catch (IOException e) {
+            System.err.println("FrameCapture: error de escritura (" + e + ")");
+            recordEnd = recordNext;
+        }
+        if (recordNext >= recordEnd) finishRecording();
+    }
+
+    private void finishRecording() {
+        try {
+            recording.close();
+        } catch (IOException ignored) { }
+        recording = null;
+        recordingDone.complete(recordingPath);
+    }
+
+    private Path writeClip(Path out, Frame[] frames, int count) {
+        try {
+            Files.createDirectories(out.getParent());
+            // Se escribe al lado y se renombra: nadie lee un clip a medio escribir
+            Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(ch, header());
+                for (int i = 0; i < count; i++) writeFrame(ch, frames[i]);
+            }
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer b = ByteBuffer.allocate(MAGIC.length + 16);
+        b.put(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(fps).flip();
+        return b;
+    }
+
+    private static void writeFrame(FileChannel ch, Frame f) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(9);
+        head.putInt(f.tick).put((byte) (f.key ? 1 : 0)).putInt(f.data.length).flip();
+        ByteBuffer[] parts = { head, ByteBuffer.wrap(f.data) };   // escritura con gather
+        while (parts[1].hasRemaining()) ch.write(parts);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,472 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fuzzer de tiempos de frame: arma casos al azar (pero válidos) y los corre sin
+ * interfaz (AsteroidsWorld.step) con la lógica real de rocas, balas, OVNIs y naves.
+ * - Un caso es una semilla del mundo, 1-4 naves con entrada guionada (una máscara
+ *   de PlayerControls por frame) y operaciones inyectadas en frames concretos:
+ *   cúmulos de rocas, ráfagas de balas que llegan juntas, OVNIs dentro de rocas,
+ *   naves destruidas en plena cascada (respawn) y explosiones grandes.
+ * - Por tick mide el tiempo de CPU del hilo (no cuenta al SO ni a otros hilos:
+ *   en una máquina cargada el reloj de pared mide a los vecinos) y los bytes
+ *   reservados (ThreadMXBean, como AllocationProbe).
+ * - Un caso que pasa del presupuesto (tiempo o memoria) se confirma corriéndolo
+ *   otra vez, se achica (menos frames, operaciones, cantidades, naves y entrada)
+ *   mientras siga fallando y se guarda en fuzz/ como texto; replay(ruta) lo repite.
+ * - El mundo es headless (WorldServices.headless): sin teclado ni sonido, y la
+ *   partida de Greenfoot que esté abierta conserva su entrada, métricas y captura.
+ *
+ * Uso: clic derecho sobre la clase en Greenfoot → run() / run(casos, semilla, µs, bytes)
+ * / replay("fuzz/caso-....txt").
+ */
+public final class FrameFuzzer {
+
+    private FrameFuzzer() {}
+
+    public static final int  DEFAULT_CASES              = 100;
+    public static final long DEFAULT_BUDGET_MICROS      = 8000;        // medio frame a 60 FPS
+    public static final long DEFAULT_MAX_BYTES_PER_TICK = 256 * 1024;
+    public static final String DIR = "fuzz";
+
+    static final int WARMUP_CASES = 5;       // JIT y pools antes de medir
+    static final int MAX_SHRINK_RUNS = 300;  // corridas máximas para achicar un caso
+
+    // --------- Operaciones: {frame, tipo, x, y, cantidad, parámetro} ---------
+    static final int CLUSTER = 0;       // 'cantidad' rocas de tamaño 'parámetro' alrededor de (x,y)
+    static final int VOLLEY = 1;        // 'cantidad' balas en anillo que convergen en (x,y)
+    static final int UFO_IN_ROCK = 2;   // 'cantidad' OVNIs (tipo 'parámetro'), cada uno dentro de una roca grande
+    static final int SHIP_HIT = 3;      // todas las naves en juego explotan
+    static final int EXPLOSION = 4;     // explosión de escala 'parámetro' en (x,y)
+    static final String[] OP_NAMES = { "CLUSTER", "VOLLEY", "UFO_IN_ROCK", "SHIP_HIT", "EXPLOSION" };
+    private static final int OP_FRAME = 0, OP_KIND = 1, OP_X = 2, OP_Y = 3, OP_COUNT = 4, OP_PARAM = 5;
+
+    /** Un caso reproducible. */
+    static final class Case {
+        long seed;
+        int players = 1;
+        int frames;
+        final List<int[]> ops = new ArrayList<>();   // ordenadas por frame
+        byte[] input;                                // máscara de PlayerControls por frame
+
+        Case copy() {
+            Case c = new Case();
+            c.seed = seed;
+            c.players = players;
+            c.frames = frames;
+            for (int[] op : ops) c.ops.add(op.clone());
+            c.input = input.clone();
+            return c;
+        }
+    }
+
+    /** Peor tick de una corrida. */
+    static final class Result {
+        long worstNanos = 0, worstBytes = 0;
+        int worstNanosFrame = -1, worstBytesFrame = -1;
+
+        boolean over(long budgetNanos, long maxBytes) {
+            return worstNanos > budgetNanos || worstBytes > maxBytes;
+        }
+
+        /** Frame del problema (el de tiempo si pasó de ese presupuesto). */
+        int culprit(long budgetNanos) {
+            return (worstNanos > budgetNanos) ? worstNanosFrame : worstBytesFrame;
+        }
+
+        void merge(Result r) {
+            if (r.worstNanos > worstNanos) { worstNanos = r.worstNanos; worstNanosFrame = r.worstNanosFrame; }
+            if (r.worstBytes > worstBytes) { worstBytes = r.worstBytes; worstBytesFrame = r.worstBytesFrame; }
+        }
+
+        @Override public String toString() {
+            return String.format("peor tick %.2f ms (frame %d), %d B en un tick (frame %d)",
+                                 worstNanos / 1e6, worstNanosFrame, worstBytes, worstBytesFrame);
+        }
+    }
+
+    /* ===================== Entrada pública ===================== */
+
+    /** Corre el fuzzer con los valores por defecto (semilla al azar). */
+    public static int run() {
+        return run(DEFAULT_CASES, System.nanoTime(), DEFAULT_BUDGET_MICROS, DEFAULT_MAX_BYTES_PER_TICK);
+    }
+
+    /**
+     * @param cases           casos a generar
+     * @param seed            semilla del generador de casos (misma semilla = mismos casos)
+     * @param budgetMicros    tiempo de CPU máximo por tick
+     * @param maxBytesPerTick bytes reservados máximos por tick
+     * @return casos que pasaron del presupuesto (achicados y guardados en fuzz/)
+     */
+    public static int run(int cases, long seed, long budgetMicros, long maxBytesPerTick) {
+        Runner runner = new Runner();
+        long budgetNanos = budgetMicros * 1000;
+        Random gen = new Random(seed);
+        for (int i = 0; i < WARMUP_CASES; i++) runner.run(generate(new Random(~seed - i)));
+
+        Result overall = new Result();
+        int failures = 0;
+        for (int i = 0; i < cases; i++) {
+            Case c = generate(gen);
+            Result r = runner.run(c);
+            overall.merge(r);
+            if (!r.over(budgetNanos, maxBytesPerTick)) continue;
+            Result again = runner.run(c);                 // ¿se repite, o fue ruido?
+            if (!again.over(budgetNanos, maxBytesPerTick)) continue;
+            r.merge(again);
+            failures++;
+            System.out.println("FrameFuzzer: caso " + i + " fuera de presupuesto: " + r);
+            Shrunk s = shrink(runner, c, r, budgetNanos, maxBytesPerTick);
+            try {
+                File file = save(s.c, s.result, budgetMicros, maxBytesPerTick);
+                System.out.println("  achicado a " + s.c.frames + " frames, " + s.c.ops.size()
+                                   + " operaciones: " + s.result + " → " + file.getPath());
+            } catch (IOException e) {
+                System.err.println("FrameFuzzer: no se pudo guardar el caso (" + e + ")");
+            }
+        }
+        System.out.println("FrameFuzzer: " + cases + " casos (semilla " + seed + "), " + failures
+                           + " fuera de presupuesto (" + budgetMicros + " µs, " + maxBytesPerTick
+                           + " B por tick); " + overall);
+        runner.close();
+        return failures;
+    }
+
+    /** Repite un caso guardado (tres veces) e imprime el peor tick. */
+    public static Result replay(String path) throws IOException {
+        Case c = load(new File(path));
+        Runner runner = new Runner();
+        for (int i = 0; i < WARMUP_CASES; i++) runner.run(generate(new Random(i)));
+        Result r = new Result();
+        for (int i = 0; i < 3; i++) r.merge(runner.run(c));
+        runner.close();
+        System.out.println("FrameFuzzer: " + path + ": " + r);
+        return r;
+    }
+
+    /* ===================== Casos ===================== */
+
+    static Case generate(Random r) {
+        Case c = new Case();
+        c.seed = r.nextLong();
+        c.players = (r.nextInt(4) == 0) ? 2 + r.nextInt(PlayerControls.MAX_PLAYERS - 1) : 1;
+        c.frames = 120 + r.nextInt(481);
+
+        int n = 1 + r.nextInt(8);
+        for (int i = 0; i < n; i++) {
+            int kind = r.nextInt(OP_NAMES.length);
+            int count, param = 0;
+            switch (kind) {
+                case CLUSTER:     count = 5 + r.nextInt(56);  param = r.nextInt(Asteroid.SIZES.length); break;
+                case VOLLEY:      count = 10 + r.nextInt(111); break;
+                case UFO_IN_ROCK: count = 1 + r.nextInt(6);   param = r.nextInt(UFO.Type.values().length); break;
+                case EXPLOSION:   count = 1;                  param = 5 + r.nextInt(36); break;
+                default:          count = 1; break;
+            }
+            c.ops.add(new int[] {
+                r.nextInt(c.frames), kind,
+                40 + r.nextInt(AsteroidsWorld.WIDTH - 80), 40 + r.nextInt(AsteroidsWorld.HEIGHT - 80),
+                count, param });
+        }
+        c.ops.sort(Comparator.comparingInt(op -> op[OP_FRAME]));
+
+        // Entrada: tramos de 1-30 frames con la misma máscara (como juega una persona)
+        c.input = new byte[c.frames];
+        for (int f = 0; f < c.frames; ) {
+            int len = 1 + r.nextInt(30);
+            byte mask = (byte) r.nextInt(PlayerControls.HYPER * 2);
+            if ((mask & PlayerControls.HYPER) != 0 && r.nextInt(4) != 0) mask &= ~PlayerControls.HYPER;
+            for (int end = Math.min(c.frames, f + len); f < end; f++) c.input[f] = mask;
+        }
+        return c;
+    }
+
+    /**
+     * Aplica una operación. Su azar sale de sus propios valores: quitar otra
+     * operación al achicar no la cambia.
+     */
+    private static void apply(AsteroidsWorld world, int[] op) {
+        Random r = new Random(Arrays.hashCode(op));
+        int x = op[OP_X], y = op[OP_Y], count = op[OP_COUNT];
+        switch (op[OP_KIND]) {
+            case CLUSTER: {
+                Asteroid.Size size = Asteroid.SIZES[Math.floorMod(op[OP_PARAM], Asteroid.SIZES.length)];
+                int spread = 20 + count;
+                for (int i = 0; i < count; i++) {
+                    world.events().spawnRock(size, r.nextInt(Assets.ROCK_VARIANTS),
+                                             x + r.nextInt(2 * spread + 1) - spread,
+                                             y + r.nextInt(2 * spread + 1) - spread,
+                                             r.nextDouble() * 4 - 2, r.nextDouble() * 4 - 2);
+                }
+                break;
+            }
+            case VOLLEY:
+                for (int i = 0; i < count; i++) {
+                    double ang = 2 * Math.PI * i / count;
+                    Bullet b = world.bulletPool().acquire()
+                                    .reset(-Math.cos(ang) * 6, -Math.sin(ang) * 6, 60, null);
+                    world.addObject(b, x + (int) Math.round(Math.cos(ang) * 120),
+                                       y + (int) Math.round(Math.sin(ang) * 120));
+                }
+                break;
+            case UFO_IN_ROCK: {
+                UFO.Type[] types = UFO.Type.values();
+                for (int i = 0; i < count; i++) {
+                    int ux = Math.max(1, Math.min(AsteroidsWorld.WIDTH - 2, x + (i - count / 2) * 30));
+                    world.addObject(new UFO(types[Math.floorMod(op[OP_PARAM], types.length)], 0.5), ux, y);
+                    world.events().spawnRock(Asteroid.Size.LARGE, r.nextInt(Assets.ROCK_VARIANTS), ux, y, 0, 0);
+                }
+                break;
+            }
+            case SHIP_HIT:
+                for (PlayerShip p : world.players()) world.events().shipHit(p, null);
+                break;
+            case EXPLOSION:
+                world.events().explosion(x, y, op[OP_PARAM]);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /* ===================== Ejecución ===================== */
+
+    /** Un mundo reutilizado entre casos (cada caso empieza con startCoop). */
+    private static final class Runner {
+        final AsteroidsWorld world = new AsteroidsWorld(WorldServices.headless());
+        final com.sun.management.ThreadMXBean mx;
+        int mask;                                  // entrada del frame en curso
+
+        Runner() {
+            java.lang.management.ThreadMXBean base = ManagementFactory.getThreadMXBean();
+            if (!(base instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) base).isThreadAllocatedMemorySupported()
+                || !base.isCurrentThreadCpuTimeSupported()) {
+                throw new UnsupportedOperationException("La JVM no expone tiempo ni memoria por hilo");
+            }
+            mx = (com.sun.management.ThreadMXBean) base;
+            mx.setThreadAllocatedMemoryEnabled(true);
+            mx.setThreadCpuTimeEnabled(true);
+            world.setInputScript(() -> mask);
+        }
+
+        Result run(Case c) {
+            Result res = new Result();
+            mask = 0;
+            world.rng().setSeed(c.seed);
+            world.startCoop(c.players);
+            int next = 0;
+            for (int f = 0; f < c.frames; f++) {
+                mask = c.input[f];
+                while (next < c.ops.size() && c.ops.get(next)[OP_FRAME] <= f) apply(world, c.ops.get(next++));
+                long t0 = mx.getCurrentThreadCpuTime();
+                long b0 = mx.getCurrentThreadAllocatedBytes();
+                world.step();
+                long dt = mx.getCurrentThreadCpuTime() - t0;
+                long db = mx.getCurrentThreadAllocatedBytes() - b0;
+                if (dt > res.worstNanos) { res.worstNanos = dt; res.worstNanosFrame = f; }
+                if (db > res.worstBytes) { res.worstBytes = db; res.worstBytesFrame = f; }
+            }
+            return res;
+        }
+
+        void close() {
+            world.setInputScript(null);
+        }
+    }
+
+    /* ===================== Achicado ===================== */
+
+    private static final class Shrunk {
+        Case c;
+        Result result;
+    }
+
+    /**
+     * Achica el caso mientras siga fallando (dos corridas seguidas, para no
+     * perseguir ruido): corta lo que sigue al frame del problema, quita
+     * operaciones, reduce cantidades y naves, apaga tramos de entrada y adelanta
+     * todo lo que se pueda.
+     */
+    private static Shrunk shrink(Runner runner, Case c, Result r, long budgetNanos, long maxBytes) {
+        Shrunk s = new Shrunk();
+        s.c = c;
+        s.result = r;
+        int[] runs = { 0 };
+        boolean progress = true;
+        while (progress && runs[0] < MAX_SHRINK_RUNS) {
+            progress = false;
+
+            // 1) Lo que pasa después del problema sobra
+            int cut = s.result.culprit(budgetNanos) + 1;
+            if (cut > 0 && cut < s.c.frames) progress |= attempt(runner, s, truncate(s.c, cut), budgetNanos, maxBytes, runs);
+
+            // 2) Operaciones de a una (desde la última)
+            for (int i = s.c.ops.size() - 1; i >= 0 && runs[0] < MAX_SHRINK_RUNS; i--) {
+                if (i >= s.c.ops.size()) continue;
+                Case cand = s.c.copy();
+                cand.ops.remove(i);
+                progress |= attempt(runner, s, cand, budgetNanos, maxBytes, runs);
+            }
+
+            // 3) Cantidades a la mitad
+            for (int i = 0; i < s.c.ops.size() && runs[0] < MAX_SHRINK_RUNS; i++) {
+                while (s.c.ops.get(i)[OP_COUNT] > 1 && runs[0] < MAX_SHRINK_RUNS) {
+                    Case cand = s.c.copy();
+                    cand.ops.get(i)[OP_COUNT] /= 2;
+                    if (!attempt(runner, s, cand, budgetNanos, maxBytes, runs)) break;
+                    progress = true;
+                }
+            }
+
+            // 4) Menos naves
+            if (s.c.players > 1) {
+                Case cand = s.c.copy();
+                cand.players = 1;
+                progress |= attempt(runner, s, cand, budgetNanos, maxBytes, runs);
+            }
+
+            // 5) Entrada: toda apagada, o por tramos cada vez más cortos
+            for (int chunk = s.c.frames; chunk >= 8 && runs[0] < MAX_SHRINK_RUNS; chunk /= 2) {
+                for (int from = 0; from < s.c.frames && runs[0] < MAX_SHRINK_RUNS; from += chunk) {
+                    int to = Math.min(s.c.frames, from + chunk);
+                    if (isSilent(s.c.input, from, to)) continue;
+                    Case cand = s.c.copy();
+                    Arrays.fill(cand.input, from, to, (byte) 0);
+                    progress |= attempt(runner, s, cand, budgetNanos, maxBytes, runs);
+                }
+            }
+
+            // 6) Adelantar: todas las operaciones empiezan antes, menos frames en total
+            int first = s.c.ops.isEmpty() ? 0 : s.c.ops.get(0)[OP_FRAME];
+            for (int shift = first; shift > 0 && runs[0] < MAX_SHRINK_RUNS; shift /= 2) {
+                if (attempt(runner, s, advance(s.c, shift), budgetNanos, maxBytes, runs)) {
+                    progress = true;
+                    break;
+                }
+            }
+        }
+        return s;
+    }
+
+    /** Corre 'cand' dos veces; si falla en ambas pasa a ser el caso actual. */
+    private static boolean attempt(Runner runner, Shrunk s, Case cand, long budgetNanos, long maxBytes, int[] runs) {
+        runs[0]++;
+        Result r = runner.run(cand);
+        if (!r.over(budgetNanos, maxBytes)) return false;
+        runs[0]++;
+        Result again = runner.run(cand);
+        if (!again.over(budgetNanos, maxBytes)) return false;
+        r.merge(again);
+        s.c = cand;
+        s.result = r;
+        return true;
+    }
+
+    private static Case truncate(Case c, int frames) {
+        Case t = c.copy();
+        t.frames = frames;
+        t.input = Arrays.copyOf(c.input, frames);
+        t.ops.removeIf(op -> op[OP_FRAME] >= frames);
+        return t;
+    }
+
+    private static Case advance(Case c, int shift) {
+        Case t = c.copy();
+        t.frames = c.frames - shift;
+        t.input = Arrays.copyOfRange(c.input, shift, c.frames);
+        for (int[] op : t.ops) op[OP_FRAME] -= shift;
+        return t;
+    }
+
+    private static boolean isSilent(byte[] input, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input[i] != 0) return false;
+        }
+        return true;
+    }
+
+    /* ===================== Archivo de un caso ===================== */
+
+    /**
+     * Formato de texto, una línea por dato:
+     *   seed N / players N / frames N
+     *   op FRAME TIPO X Y CANTIDAD PARÁMETRO
+     *   input DESDE CUÁNTOS MÁSCARA   (tramos; lo que no aparece va en 0)
+     */
+    static File save(Case c, Result r, long budgetMicros, long maxBytes) throws IOException {
+        File dir = new File(DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("No se pudo crear " + dir);
+        File file = new File(dir, String.format("caso-%016x-%d.txt", c.seed, c.frames));
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            out.println("# FrameFuzzer: " + r + " (presupuesto " + budgetMicros + " µs, " + maxBytes + " B)");
+            out.println("seed " + c.seed);
+            out.println("players " + c.players);
+            out.println("frames " + c.frames);
+            for (int[] op : c.ops) {
+                out.println("op " + op[OP_FRAME] + " " + OP_NAMES[op[OP_KIND]] + " " + op[OP_X] + " " + op[OP_Y]
+                            + " " + op[OP_COUNT] + " " + op[OP_PARAM]);
+            }
+            for (int f = 0; f < c.frames; ) {
+                int from = f;
+                byte mask = c.input[f];
+                while (f < c.frames && c.input[f] == mask) f++;
+                if (mask != 0) out.println("input " + from + " " + (f - from) + " " + mask);
+            }
+        }
+        return file;
+    }
+
+    static Case load(File file) throws IOException {
+        Case c = new Case();
+        List<int[]> runs = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] t = line.split("\\s+");
+                try {
+                    switch (t[0]) {
+                        case "seed":    c.seed = Long.parseLong(t[1]); break;
+                        case "players": c.players = Integer.parseInt(t[1]); break;
+                        case "frames":  c.frames = Integer.parseInt(t[1]); break;
+                        case "op": {
+                            int kind = Arrays.asList(OP_NAMES).indexOf(t[2]);
+                            if (kind < 0) throw new IOException("Operación desconocida: " + t[2]);
+                            c.ops.add(new int[] { Integer.parseInt(t[1]), kind, Integer.parseInt(t[3]),
+                                                  Integer.parseInt(t[4]), Integer.parseInt(t[5]), Integer.parseInt(t[6]) });
+                            break;
+                        }
+                        case "input":
+                            runs.add(new int[] { Integer.parseInt(t[1]), Integer.parseInt(t[2]), Integer.parseInt(t[3]) });
+                            break;
+                        default:
+                            throw new IOException("Línea desconocida: " + line);
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Línea inválida: " + line, e);
+                }
+            }
+        }
+        if (c.frames <= 0) throw new IOException("Falta 'frames' en " + file);
+        c.ops.sort(Comparator.comparingInt(op -> op[OP_FRAME]));
+        c.input = new byte[c.frames];
+        for (int[] run : runs) {
+            int from = Math.max(0, run[0]), to = Math.min(c.frames, run[0] + run[1]);
+            if (from < to) Arrays.fill(c.input, from, to, (byte) run[2]);
+        }
+        return c;
+    }
+}
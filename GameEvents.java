@@ -0,0 +1,234 @@
+import greenfoot.*;  // Actor
+import java.util.Arrays;
+
+/**
+ * Cola de eventos de juego diferidos (impactos, muertes, apariciones, sonidos).
+ * - Los actores publican durante su act(); nadie modifica a otro actor en ese momento.
+ * - AsteroidsWorld la procesa una vez por tick, tras las colisiones (endOfFrame).
+ * - Impactos duplicados sobre el mismo objetivo se colapsan: sólo cuenta el primero
+ *   (dos balas contra la misma roca en un frame ya no la dividen dos veces).
+ * - Sonidos y explosiones se agrupan y se emiten al final del drenado.
+ *
+ * La cola es un conjunto de arrays paralelos preasignados: publicar no reserva memoria.
+ */
+public final class GameEvents {
+
+    // --------- Tipos de evento ---------
+    static final int ROCK_HIT     = 1;  // a=Asteroid, b=Bullet
+    static final int UFO_KILLED   = 2;  // a=UFO, b=Bullet
+    static final int UFO_CRASH    = 3;  // a=UFO, b=Asteroid
+    static final int SHIP_HIT     = 4;  // a=PlayerShip, b=causa (EnemyBullet o null)
+    static final int SPAWN_ROCK   = 5;  // i0=tamaño, i1=variante, d0..d3 = x, y, vx, vy
+    static final int EXPLOSION    = 6;  // i0=escala, d0..d1 = x, y
+    static final int FIELD_HIT    = 7;  // b=Bullet, i0=roca del ArenaField, i1=generación
+    static final int UFO_RAMMED   = 8;  // a=UFO, b=PlayerShip
+
+    private final AsteroidsWorld world;
+
+    // --------- Cola (arrays paralelos) ---------
+    private int capacity;
+    private int[] kind;
+    private Actor[] a, b;
+    private int[] i0, i1;
+    private double[] d0, d1, d2, d3;
+    private int size = 0;
+
+    // Número de drenado: un actor está resuelto si su claimedInDrain coincide
+    // (colapsa duplicados sin listas ni búsquedas)
+    private int drainNumber = 1;
+
+    // Sonidos pedidos en este tick (uno por tipo, como máximo)
+    private final boolean[] soundRequested = new boolean[Assets.SOUNDS.length];
+
+    private boolean draining = false;
+
+    public GameEvents(AsteroidsWorld world, int capacity) {
+        this.world = world;
+        allocate(Math.max(16, capacity));
+    }
+
+    /* ===================== Publicación (desde los actores) ===================== */
+
+    public void rockHit(Asteroid rock, Bullet bullet)    { push(ROCK_HIT, rock, bullet); }
+    public void ufoKilled(UFO ufo, Bullet bullet)        { push(UFO_KILLED, ufo, bullet); }
+    public void ufoCrash(UFO ufo, Asteroid rock)         { push(UFO_CRASH, ufo, rock); }
+    public void shipHit(PlayerShip ship, Actor cause)    { push(SHIP_HIT, ship, cause); }
+    public void ufoRammed(UFO ufo, PlayerShip ship)      { push(UFO_RAMMED, ufo, ship); }
+
+    public void fieldHit(int rock, int generation, Bullet bullet) {
+        int k = push(FIELD_HIT, null, bullet);
+        i0[k] = rock; i1[k] = generation;
+    }
+
+    public void spawnRock(Asteroid.Size size, int variant, double x, double y, double vx, double vy) {
+        int k = push(SPAWN_ROCK, null, null);
+        i0[k] = size.ordinal(); i1[k] = variant;
+        d0[k] = x; d1[k] = y; d2[k] = vx; d3[k] = vy;
+    }
+
+    public void explosion(int x, int y, int scale) {
+        int k = push(EXPLOSION, null, null);
+        i0[k] = scale; d0[k] = x; d1[k] = y;
+    }
+
+    /** Pide un sonido; se reproduce una sola vez por tick aunque lo pidan varios (si el mundo tiene sonido). */
+    public void sound(String file) {
+        if (!world.hasSound()) return;
+        int idx = Assets.soundIndex(file);
+        if (idx >= 0) {
+            soundRequested[idx] = true;
+        } else {
+            Assets.playSound(file);
+            world.metrics().soundPlayed();
+        }
+    }
+
+    public int pending() { return size; }
+
+    private int push(int type, Actor first, Actor second) {
+        if (size == capacity) grow();
+        int k = size++;
+        kind[k] = type; a[k] = first; b[k] = second;
+        return k;
+    }
+
+    /* ===================== Drenado (una vez por tick) ===================== */
+
+    /**
+     * Resuelve todos los eventos en orden de publicación. Los que se publiquen
+     * mientras tanto (p.ej. fragmentos de una roca) se resuelven en el mismo drenado.
+     */
+    public void drain() {
+        if (draining) return;
+        draining = true;
+        drainNumber++;
+
+        // 1) Lógica de juego: impactos, muertes y apariciones
+        for (int k = 0; k < size; k++) {
+            switch (kind[k]) {
+                case ROCK_HIT:   resolveRockHit((Asteroid) a[k], (Bullet) b[k]);   break;
+                case UFO_KILLED: resolveUfoKilled((UFO) a[k], (Bullet) b[k]);      break;
+                case UFO_CRASH:  resolveUfoCrash((UFO) a[k], (Asteroid) b[k]);     break;
+                case SHIP_HIT:   resolveShipHit((PlayerShip) a[k], b[k]);          break;
+                case FIELD_HIT:  resolveFieldHit(i0[k], i1[k], (Bullet) b[k]);     break;
+                case UFO_RAMMED: resolveUfoRammed((UFO) a[k], (PlayerShip) b[k]);  break;
+                case SPAWN_ROCK:
+                    Asteroid.spawnFragment(world, Asteroid.SIZES[i0[k]], i1[k],
+                                           d0[k], d1[k], d2[k], d3[k]);
+                    break;
+                default: break;
+            }
+        }
+
+        // 2) Partículas en lote, cuando ya se sabe qué murió de verdad
+        for (int k = 0; k < size; k++) {
+            if (kind[k] == EXPLOSION) {
+                Particles.spawnExplosion(world, (int) d0[k], (int) d1[k], i0[k]);
+            }
+        }
+
+        // 3) Sonidos: cada uno una vez
+        for (int s = 0; s < soundRequested.length; s++) {
+            if (soundRequested[s]) {
+                soundRequested[s] = false;
+                Assets.playSound(Assets.SOUNDS[s]);
+                world.metrics().soundPlayed();
+            }
+        }
+
+        // Limpia referencias para no retener actores muertos
+        for (int k = 0; k < size; k++) { a[k] = null; b[k] = null; }
+        size = 0;
+        draining = false;
+    }
+
+    /** Descarta todo lo pendiente (p.ej. al reiniciar la partida). */
+    public void clear() {
+        for (int k = 0; k < size; k++) { a[k] = null; b[k] = null; }
+        size = 0;
+        drainNumber++;   // olvida lo resuelto hasta ahora
+        Arrays.fill(soundRequested, false);
+    }
+
+    private void resolveRockHit(Asteroid rock, Bullet bullet) {
+        // Otra bala llegó antes a la roca (ésta sigue viva), o la bala ya se
+        // gastó en otro objetivo: entonces la roca no se entera
+        if (!isFree(rock) || !isFree(bullet)) return;
+        claim(rock);
+        claim(bullet);
+        rock.onHitBy(bullet);                // usa la velocidad de la bala para el split
+        world.removeObject(bullet);
+    }
+
+    private void resolveUfoKilled(UFO ufo, Bullet bullet) {
+        if (!isFree(ufo) || !isFree(bullet)) return;
+        claim(bullet);
+        claim(ufo);
+        ufo.onKilledByPlayerBullet(bullet);
+    }
+
+    private void resolveUfoCrash(UFO ufo, Asteroid rock) {
+        if (!isFree(ufo) || !isFree(rock)) return;   // alguno ya murió por otra causa
+        claim(ufo);
+        claim(rock);
+        ufo.onCrashInto(rock);
+    }
+
+    private void resolveShipHit(PlayerShip ship, Actor cause) {
+        if (!claim(ship)) return;           // dos golpes en el mismo frame = una sola vida
+        if (cause instanceof SpriteActor && claim((SpriteActor) cause)) world.removeObject(cause);
+        ship.explode();
+    }
+
+    private void resolveUfoRammed(UFO ufo, PlayerShip ship) {
+        if (!claim(ufo)) return;            // la nave la reclama su propio SHIP_HIT
+        ufo.onRammedBy(ship);
+    }
+
+    private void resolveFieldHit(int rock, int generation, Bullet bullet) {
+        ArenaField field = world.arena();
+        // La generación descarta impactos sobre un hueco ya reutilizado por un fragmento
+        if (field == null || !field.isAlive(rock, generation)) return;
+        if (!claim(bullet)) return;
+        world.addScore(field.split(rock, bullet.getVX(), bullet.getVY(), world.rng()));
+        world.removeObject(bullet);
+        sound("rock-break.wav");
+    }
+
+    /** Marca el actor como resuelto; false si ya lo estaba o ya no está en el mundo. */
+    private boolean claim(SpriteActor actor) {
+        if (!isFree(actor)) return false;
+        actor.claimedInDrain = drainNumber;
+        return true;
+    }
+
+    /** ¿Sigue en el mundo y sin resolver en este drenado? */
+    private boolean isFree(SpriteActor actor) {
+        return actor != null && actor.getWorld() == world && actor.claimedInDrain != drainNumber;
+    }
+
+    /* ===================== Almacenamiento ===================== */
+
+    private void allocate(int cap) {
+        capacity = cap;
+        kind = new int[cap];
+        a = new Actor[cap]; b = new Actor[cap];
+        i0 = new int[cap]; i1 = new int[cap];
+        d0 = new double[cap]; d1 = new double[cap]; d2 = new double[cap]; d3 = new double[cap];
+    }
+
+    /** Sólo ocurre si un tick supera la capacidad preasignada (se conserva el contenido). */
+    private void grow() {
+        int cap = capacity * 2;
+        kind = Arrays.copyOf(kind, cap);
+        a = Arrays.copyOf(a, cap);
+        b = Arrays.copyOf(b, cap);
+        i0 = Arrays.copyOf(i0, cap);
+        i1 = Arrays.copyOf(i1, cap);
+        d0 = Arrays.copyOf(d0, cap);
+        d1 = Arrays.copyOf(d1, cap);
+        d2 = Arrays.copyOf(d2, cap);
+        d3 = Arrays.copyOf(d3, cap);
+        capacity = cap;
+    }
+}
@@ -0,0 +1,384 @@
+import greenfoot.*;  // Greenfoot
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.GraphicsEnvironment;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.Window;
+import java.awt.event.KeyEvent;
+import javax.swing.SwingUtilities;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entrada de teclado con marca de tiempo, para no perder toques entre frames y
+ * aplicarlos en el momento del frame en que ocurrieron.
+ * - Un KeyEventDispatcher (hilo de AWT) encola cada pulsación/suelta con su
+ *   nanoTime en un ring buffer de un solo productor: sin locks ni reservas.
+ *   El dispatcher es de toda la JVM: sólo cuentan las teclas de la ventana
+ *   que muestra el mundo (la del WorldCanvas de Greenfoot), no las del editor.
+ * - El mundo llama beginFrame al principio de su act: se consumen los eventos
+ *   del intervalo desde el act anterior y por tecla quedan estado, fracción del
+ *   frame que estuvo apretada (held) y cuánto antes del fin del frame se apretó
+ *   (lead). Un toque que empieza y termina entre dos frames cuenta (isDown).
+ * - Sin AWT (headless) o con -Dasteroids.input=poll se sondea Greenfoot.isKeyDown
+ *   y Greenfoot.getKey (éste atrapa toques cortos); esos eventos no tienen hora
+ *   dentro del frame y valen como al principio del frame, igual que antes.
+ * - Reproducible: setRecording guarda cada evento consumido (tick contado
+ *   desde que empezó a grabar, fracción, tecla) junto con la semilla del mundo
+ *   (Recording); replay los devuelve en los mismos ticks, sin teclado, y
+ *   AsteroidsWorld.replay reusa la semilla.
+ * - remote(): la misma cola sin teclado; los eventos los pone otro hilo con
+ *   push (p.ej. la red de una sesión de SessionHost), uno solo por cola.
+ *
+ * Teclas: nombres de Greenfoot ("left", "space", "a", "f3"...); ver keyIndex.
+ */
+public final class InputQueue {
+
+    // --------- Teclas conocidas (índice = posición) ---------
+    private static final String[] NAMES;
+    private static final int[] VK_CODES;
+    static {
+        String[] fixed = { "left", "right", "up", "down", "space", "shift", "control", "enter",
+                           "escape", "tab", "backspace" };
+        int[] fixedVk = { KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
+                          KeyEvent.VK_SPACE, KeyEvent.VK_SHIFT, KeyEvent.VK_CONTROL, KeyEvent.VK_ENTER,
+                          KeyEvent.VK_ESCAPE, KeyEvent.VK_TAB, KeyEvent.VK_BACK_SPACE };
+        int n = fixed.length + 26 + 10 + 12;
+        NAMES = Arrays.copyOf(fixed, n);
+        VK_CODES = Arrays.copyOf(fixedVk, n);
+        int k = fixed.length;
+        for (int i = 0; i < 26; i++, k++) { NAMES[k] = String.valueOf((char) ('a' + i)); VK_CODES[k] = KeyEvent.VK_A + i; }
+        for (int i = 0; i < 10; i++, k++) { NAMES[k] = String.valueOf((char) ('0' + i)); VK_CODES[k] = KeyEvent.VK_0 + i; }
+        for (int i = 0; i < 12; i++, k++) { NAMES[k] = "f" + (i + 1);                   VK_CODES[k] = KeyEvent.VK_F1 + i; }
+    }
+    public static final int KEY_COUNT = NAMES.length;
+
+    // --------- Evento grabado: tick (32) | fracción (16) | con hora (1) | apretada (1) | tecla (14) ---------
+    private static final int FRACTION_ONE = 1 << 16;
+    private static final long TIMED = 1L << 15, DOWN = 1L << 14;
+
+    private static final int CAPACITY = 1 << 10;  // eventos en el ring (potencia de 2)
+    private static InputQueue current;             // la que escucha el teclado (una por JVM)
+
+    private enum Source { KEYBOARD, POLL, REPLAY, REMOTE }
+    private final Source source;
+
+    // --------- Ring buffer SPSC (productor: hilo de AWT, o el de push) ---------
+    private final long[] ring;                 // 2 longs por evento: nanoTime, tecla | DOWN
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedTail = 0;               // copia local del productor
+    private final AtomicLong dropped = new AtomicLong();
+    private final KeyEventDispatcher dispatcher;
+    private final int[] keyOfVk = new int[256];   // código AWT → índice (+1; 0 = desconocida)
+    private Window gameWindow;                    // la del mundo (sólo el hilo de AWT)
+
+    // --------- Estado (hilo del juego) ---------
+    private final boolean[] down = new boolean[KEY_COUNT];
+    private final boolean[] touched = new boolean[KEY_COUNT];  // estuvo apretada en algún momento del frame
+    private final int[] since = new int[KEY_COUNT];            // desde qué fracción está apretada
+    private final int[] held = new int[KEY_COUNT];             // fracción del frame apretada
+    private final int[] firstPress = new int[KEY_COUNT];       // primera pulsación con hora, o -1
+    private final long[] lastEventTick = new long[KEY_COUNT];
+    private long frameStart = 0, frameEnd = 0;
+    private int tick = 0;
+
+    // --------- Grabación / reproducción ---------
+    private boolean recording = false;
+    private long seed;                         // la del mundo al empezar a grabar
+    private int origin = 0;                    // tick en que empezó a grabar (el 0 de la grabación)
+    private long[] log = new long[0];
+    private int logSize = 0, replayIndex = 0;
+
+    /**
+     * Una partida grabada: la semilla del RNG del mundo y los eventos consumidos
+     * (tick | fracción | con hora | apretada | tecla), en orden. El tick 0 es el
+     * comienzo de la grabación: sus eventos son las teclas que ya estaban apretadas.
+     */
+    public static final class Recording {
+        private final long seed;
+        private final long[] events;
+
+        /** 'events' se toma tal cual (no se copia). */
+        public Recording(long seed, long[] events) {
+            this.seed = seed;
+            this.events = events;
+        }
+
+        public long seed()     { return seed; }
+        public long[] events() { return events.clone(); }
+    }
+
+    private InputQueue(Source source, long[] script) {
+        this.source = source;
+        this.ring = (source == Source.KEYBOARD || source == Source.REMOTE) ? new long[CAPACITY * 2] : null;
+        for (int k = 0; k < KEY_COUNT; k++) {
+            if (VK_CODES[k] < keyOfVk.length) keyOfVk[VK_CODES[k]] = k + 1;
+        }
+        this.dispatcher = (source == Source.KEYBOARD) ? this::dispatch : null;
+        if (script != null) {
+            log = script.clone();
+            logSize = log.length;
+        }
+        Arrays.fill(firstPress, -1);
+    }
+
+    /**
+     * Abre la entrada del juego: escucha el teclado si hay AWT (y cierra la
+     * anterior); si no, o con -Dasteroids.input=poll, sondea a Greenfoot.
+     */
+    public static synchronized InputQueue open() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        if (!"poll".equalsIgnoreCase(System.getProperty("asteroids.input", "")) && !GraphicsEnvironment.isHeadless()) {
+            try {
+                InputQueue q = new InputQueue(Source.KEYBOARD, null);
+                KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(q.dispatcher);
+                current = q;
+                return q;
+            } catch (RuntimeException e) {
+                System.err.println("InputQueue: sin eventos de teclado, se sondea Greenfoot (" + e + ")");
+            }
+        }
+        return new InputQueue(Source.POLL, null);
+    }
+
+    /**
+     * Entrada que repite eventos grabados (ver recorded) en sus ticks, contados
+     * desde ahora; no lee el teclado. Arranca con las teclas que estaban
+     * apretadas al empezar a grabar. La semilla la aplica el mundo
+     * (AsteroidsWorld.replay).
+     */
+    public static InputQueue replay(Recording r) {
+        InputQueue q = new InputQueue(Source.REPLAY, r.events);
+        q.seed = r.seed;
+        q.replayTick();   // tick 0
+        return q;
+    }
+
+    /** Entrada sin teclado alimentada con push desde un solo hilo (no es la de la JVM). */
+    public static InputQueue remote() {
+        return new InputQueue(Source.REMOTE, null);
+    }
+
+    /** Deja de escuchar el teclado. */
+    public synchronized void close() {
+        if (dispatcher == null) return;
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(dispatcher);
+    }
+
+    /** Índice de una tecla por su nombre de Greenfoot. */
+    public static int keyIndex(String name) {
+        for (int k = 0; k < KEY_COUNT; k++) {
+            if (NAMES[k].equals(name)) return k;
+        }
+        throw new IllegalArgumentException("Tecla no soportada: " + name);
+    }
+
+    public static String keyName(int key) { return NAMES[key]; }
+
+    /* ===================== Productor (hilo de AWT) ===================== */
+
+    private boolean dispatch(KeyEvent e) {
+        int id = e.getID();
+        if (id != KeyEvent.KEY_PRESSED && id != KeyEvent.KEY_RELEASED) return false;
+        if (!fromGameWindow(e)) return false;   // p.ej. escribiendo en el editor de Greenfoot
+        int code = e.getKeyCode();
+        int k = (code >= 0 && code < keyOfVk.length) ? keyOfVk[code] - 1 : -1;
+        if (k < 0) return false;
+        enqueue(k, id == KeyEvent.KEY_PRESSED);
+        return false;          // Greenfoot también lo recibe
+    }
+
+    private boolean fromGameWindow(KeyEvent e) {
+        Component c = e.getComponent();
+        Window w = (c instanceof Window) ? (Window) c : SwingUtilities.getWindowAncestor(c);
+        if (gameWindow == null || !gameWindow.isDisplayable()) gameWindow = findGameWindow();
+        return gameWindow == null || w == gameWindow;   // sin lienzo a la vista: todas, como antes
+    }
+
+    /** La ventana que contiene el lienzo del mundo de Greenfoot (WorldCanvas), o null. */
+    private static Window findGameWindow() {
+        for (Window w : Window.getWindows()) {
+            if (w.isDisplayable() && containsWorldCanvas(w)) return w;
+        }
+        return null;
+    }
+
+    private static boolean containsWorldCanvas(Container c) {
+        for (Component child : c.getComponents()) {
+            if ("WorldCanvas".equals(child.getClass().getSimpleName())) return true;
+            if (child instanceof Container && containsWorldCanvas((Container) child)) return true;
+        }
+        return false;
+    }
+
+    /** Tecla apretada/soltada ahora (sólo remote(); siempre desde el mismo hilo). */
+    public void push(int key, boolean press) {
+        if (source != Source.REMOTE) throw new IllegalStateException("push sólo en una entrada remote()");
+        if (key < 0 || key >= KEY_COUNT) throw new IllegalArgumentException("Tecla inválida: " + key);
+        enqueue(key, press);
+    }
+
+    private void enqueue(int k, boolean press) {
+        long now = System.nanoTime();
+        long h = head.get();
+        if (h - cachedTail >= CAPACITY) {
+            cachedTail = tail.get();
+            if (h - cachedTail >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        int i = (int) (h & (CAPACITY - 1)) << 1;
+        ring[i]     = now;
+        ring[i + 1] = k | (press ? DOWN : 0);
+        head.lazySet(h + 1);   // publica el evento (store-release)
+    }
+
+    /* ===================== Hilo del juego ===================== */
+
+    /**
+     * Consume los eventos llegados desde el frame anterior (hasta 'nowNanos').
+     * Llamar una vez por tick, al principio del act del mundo.
+     */
+    public void beginFrame(int tick, long nowNanos) {
+        this.tick = tick;
+        frameStart = (frameEnd != 0) ? frameEnd : nowNanos - 16_666_667L;
+        frameEnd = Math.max(nowNanos, frameStart + 1);
+        for (int k = 0; k < KEY_COUNT; k++) {
+            touched[k] = down[k];
+            since[k] = 0;
+            held[k] = 0;
+            firstPress[k] = -1;
+        }
+
+        switch (source) {
+            case KEYBOARD:
+            case REMOTE:   drainKeyboard(); break;
+            case POLL:     poll();          break;
+            case REPLAY:   replayTick();    break;
+            default: break;
+        }
+
+        for (int k = 0; k < KEY_COUNT; k++) {
+            if (down[k]) held[k] += FRACTION_ONE - since[k];
+        }
+    }
+
+    private void drainKeyboard() {
+        long t = tail.get(), h = head.get();
+        for (; t < h; t++) {
+            int i = (int) (t & (CAPACITY - 1)) << 1;
+            long when = ring[i];
+            if (when > frameEnd) break;               // llegó después de empezar este frame: el próximo
+            long ev = ring[i + 1];
+            int frac = (int) Math.max(0, Math.min(FRACTION_ONE - 1,
+                           (when - frameStart) * FRACTION_ONE / (frameEnd - frameStart)));
+            apply((int) (ev & 0x3FFF), (ev & DOWN) != 0, frac, true);
+        }
+        tail.lazySet(t);
+
+        // Una suelta perdida (p.ej. la ventana perdió el foco) no deja la tecla trabada
+        if (source == Source.REMOTE) return;   // la trae el otro extremo
+        for (int k = 0; k < KEY_COUNT; k++) {
+            if (down[k] && tick - lastEventTick[k] > 1 && !Greenfoot.isKeyDown(NAMES[k])) apply(k, false, 0, false);
+        }
+    }
+
+    private void poll() {
+        for (int k = 0; k < KEY_COUNT; k++) {
+            boolean d = Greenfoot.isKeyDown(NAMES[k]);
+            if (d != down[k]) apply(k, d, 0, false);
+        }
+        // getKey devuelve la última tecla tecleada: atrapa un toque que ya se soltó
+        String typed = Greenfoot.getKey();
+        if (typed != null) {
+            for (int k = 0; k < KEY_COUNT; k++) {
+                if (NAMES[k].equals(typed)) {
+                    if (!down[k] && !touched[k]) {
+                        apply(k, true, 0, false);
+                        apply(k, false, 0, false);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private void replayTick() {
+        while (replayIndex < logSize && (int) (log[replayIndex] >>> 32) < tick) replayIndex++;   // se perdió ese tick
+        while (replayIndex < logSize && (int) (log[replayIndex] >>> 32) == tick) {
+            long ev = log[replayIndex++];
+            apply((int) (ev & 0x3FFF), (ev & DOWN) != 0, (int) ((ev >>> 16) & 0xFFFF), (ev & TIMED) != 0);
+        }
+    }
+
+    /** Un evento en la fracción 'frac' del frame (0..FRACTION_ONE-1). */
+    private void apply(int k, boolean press, int frac, boolean timed) {
+        if (press == down[k]) return;    // repetición automática o suelta repetida
+        lastEventTick[k] = tick;
+        if (press) {
+            down[k] = true;
+            touched[k] = true;
+            since[k] = frac;
+            if (timed && firstPress[k] < 0) firstPress[k] = frac;
+        } else {
+            down[k] = false;
+            held[k] += frac - since[k];
+        }
+        if (recording) record(tick - origin, k, press, frac, timed);
+    }
+
+    private void record(int at, int k, boolean press, int frac, boolean timed) {
+        if (logSize == log.length) log = Arrays.copyOf(log, Math.max(256, log.length * 2));
+        log[logSize++] = ((long) at << 32) | ((long) frac << 16) | (timed ? TIMED : 0) | (press ? DOWN : 0) | k;
+    }
+
+    /** ¿Estuvo apretada en este frame? (también un toque que ya se soltó) */
+    public boolean isDown(int key) { return down[key] || touched[key]; }
+
+    public boolean isDown(String name) { return isDown(keyIndex(name)); }
+
+    /** Fracción del frame (0..1) que estuvo apretada. */
+    public double held(int key) { return held[key] / (double) FRACTION_ONE; }
+
+    /**
+     * Si se apretó durante este frame (con hora): cuánto del frame faltaba (0..1),
+     * o sea, cuánto antes del fin del frame debió empezar la acción. 0 si no.
+     */
+    public double lead(int key) {
+        return (firstPress[key] < 0) ? 0 : (FRACTION_ONE - firstPress[key]) / (double) FRACTION_ONE;
+    }
+
+    /**
+     * Empieza/termina de grabar los eventos consumidos (empezar borra lo
+     * anterior). Los ticks se cuentan desde el último beginFrame y las teclas
+     * apretadas en ese momento quedan como pulsaciones en el tick 0.
+     * 'worldSeed' es la semilla del RNG del mundo; para repetir la partida hay
+     * que empezar a grabar junto con ella (AsteroidsWorld.recordInput).
+     */
+    public void setRecording(boolean on, long worldSeed) {
+        if (source == Source.REPLAY) return;   // su registro es lo que repite
+        if (on && !recording) {
+            logSize = 0;
+            seed = worldSeed;
+            origin = tick;
+            for (int k = 0; k < KEY_COUNT; k++) {
+                if (down[k]) record(0, k, true, 0, false);
+            }
+        }
+        recording = on;
+    }
+
+    /** La grabación: semilla y eventos, en orden (formato de replay). */
+    public Recording recorded() { return new Recording(seed, Arrays.copyOf(log, logSize)); }
+
+    /** Eventos del teclado (o de push) descartados por ring lleno. */
+    public long dropped() { return dropped.get(); }
+
+    public boolean isReplay() { return source == Source.REPLAY; }
+}
@@ -0,0 +1,231 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas en vivo para monitoreo (formato de texto de Prometheus) en un
+ * endpoint HTTP mínimo: GET /metrics en loopback.
+ * - El hilo del juego sólo suma en LongAdder y publica medidores con lazySet:
+ *   sin locks y sin reservar memoria.
+ * - Un hilo propio (de baja prioridad) atiende los pedidos de a uno y arma el
+ *   texto; leer las métricas nunca detiene al juego.
+ * - Histograma de tiempos de tick (act a act), entidades vivas por clase,
+ *   oleada, puntos sumados (la tasa la calcula el servidor con rate()),
+ *   vidas perdidas y sonidos reproducidos.
+ *
+ * Se activa con -Dasteroids.metrics=puerto; -Dasteroids.metrics.bind cambia la dirección.
+ */
+public final class Metrics {
+
+    // --------- Medidores (índices de 'gauges') ---------
+    static final int ROCKS = 0, BULLETS = 1, PARTICLES = 2, UFOS = 3, ENEMY_BULLETS = 4, WAVE = 5;
+    private static final String[] LIVE_KINDS = { "asteroid", "bullet", "particle", "ufo", "enemy_bullet" };
+
+    /** Límites superiores del histograma de ticks, en µs (60 FPS ≈ 16667). */
+    static final long[] TICK_BUCKETS_US = { 1000, 2000, 4000, 8000, 16667, 33333, 66667, 250000 };
+
+    /** Métricas que no registran nada (endpoint desactivado o sin puerto). */
+    public static final Metrics DISABLED = new Metrics();
+
+    private static Metrics current;            // endpoint abierto (uno por JVM)
+
+    private final LongAdder[] tickBuckets;     // uno por límite + el de +Inf (no acumulados)
+    private final LongAdder tickNanos = new LongAdder();
+    private final LongAdder scorePoints = new LongAdder();
+    private final LongAdder livesLost = new LongAdder();
+    private final LongAdder sounds = new LongAdder();
+    private final AtomicLongArray gauges = new AtomicLongArray(WAVE + 1);
+
+    private final ServerSocket server;
+    private final Thread thread;
+    private volatile boolean running;
+
+    private Metrics() {
+        this.tickBuckets = null;
+        this.server = null;
+        this.thread = null;
+    }
+
+    private Metrics(ServerSocket server) {
+        this.tickBuckets = new LongAdder[TICK_BUCKETS_US.length + 1];
+        for (int i = 0; i < tickBuckets.length; i++) tickBuckets[i] = new LongAdder();
+        this.server = server;
+        this.running = true;
+        this.thread = new Thread(this::serve, "metrics-http");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    /**
+     * Abre el endpoint si hay -Dasteroids.metrics=puerto (cierra el anterior, si lo había).
+     * Nunca falla: ante cualquier problema devuelve DISABLED.
+     */
+    public static synchronized Metrics openEndpoint() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        int port = Integer.getInteger("asteroids.metrics", 0);
+        if (port <= 0) return DISABLED;
+        try {
+            String bind = System.getProperty("asteroids.metrics.bind");
+            InetAddress addr = (bind != null) ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress();
+            ServerSocket s = new ServerSocket();
+            s.setReuseAddress(true);
+            s.bind(new InetSocketAddress(addr, port));
+            current = new Metrics(s);
+            return current;
+        } catch (IOException | SecurityException e) {
+            System.err.println("Metrics: desactivadas (" + e + ")");
+            return DISABLED;
+        }
+    }
+
+    public boolean isEnabled() { return server != null; }
+
+    /** Puerto en el que escucha, o -1 si está desactivado. */
+    public int port() { return (server != null) ? server.getLocalPort() : -1; }
+
+    /* ===================== Hilo del juego ===================== */
+
+    /** Duración del último tick (act a act). */
+    public void tick(long nanos) {
+        if (server == null) return;
+        long us = nanos / 1000;
+        int b = 0;
+        while (b < TICK_BUCKETS_US.length && us > TICK_BUCKETS_US[b]) b++;
+        tickBuckets[b].increment();
+        tickNanos.add(nanos);
+    }
+
+    /** Entidades vivas y oleada, una vez por tick. */
+    public void live(int rocks, int bullets, int particles, int ufos, int enemyBullets, int wave) {
+        if (server == null) return;
+        gauges.lazySet(ROCKS, rocks);
+        gauges.lazySet(BULLETS, bullets);
+        gauges.lazySet(PARTICLES, particles);
+        gauges.lazySet(UFOS, ufos);
+        gauges.lazySet(ENEMY_BULLETS, enemyBullets);
+        gauges.lazySet(WAVE, wave);
+    }
+
+    public void scored(int points)  { if (server != null) scorePoints.add(points); }
+    public void lifeLost()          { if (server != null) livesLost.increment(); }
+    public void soundPlayed()       { if (server != null) sounds.increment(); }
+
+    /** Cierra el endpoint. */
+    public void close() {
+        if (server == null || !running) return;
+        running = false;
+        try {
+            server.close();   // despierta al accept
+            thread.join(1000);
+        } catch (IOException ignored) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ===================== Endpoint (hilo propio) ===================== */
+
+    private void serve() {
+        while (running) {
+            try (Socket s = server.accept()) {
+                s.setSoTimeout(2000);   // un cliente mudo no traba al siguiente
+                String request = readRequestLine(new BufferedInputStream(s.getInputStream()));
+                byte[] body;
+                String status;
+                if (request.startsWith("GET /metrics ") || request.startsWith("GET /metrics?")) {
+                    status = "200 OK";
+                    body = render().getBytes(StandardCharsets.UTF_8);
+                } else {
+                    status = "404 Not Found";
+                    body = "Sólo /metrics\n".getBytes(StandardCharsets.UTF_8);
+                }
+                OutputStream out = s.getOutputStream();
+                out.write(("HTTP/1.1 " + status + "\r\n"
+                           + "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                           + "Content-Length: " + body.length + "\r\n"
+                           + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            } catch (IOException e) {
+                if (running) System.err.println("Metrics: pedido fallido (" + e + ")");
+            }
+        }
+    }
+
+    /**
+     * Primera línea del pedido. Lee también las cabeceras (hasta 8 KB): cerrar
+     * con datos sin leer resetea la conexión y el cliente podría perder la respuesta.
+     */
+    private static String readRequestLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        String first = null;
+        int c, read = 0;
+        while (read++ < 8192 && (c = in.read()) >= 0) {
+            if (c == '\r') continue;
+            if (c != '\n') {
+                line.append((char) c);
+            } else if (first == null) {
+                first = line.toString();
+                line.setLength(0);
+            } else if (line.length() == 0) {
+                break;                                  // línea vacía: fin de cabeceras
+            } else {
+                line.setLength(0);
+            }
+        }
+        return (first != null) ? first : line.toString();
+    }
+
+    /** Texto de exposición de Prometheus con los valores actuales. */
+    String render() {
+        StringBuilder sb = new StringBuilder(2048);
+
+        sb.append("# HELP asteroids_tick_seconds Duración de cada tick del juego (act a act).\n");
+        sb.append("# TYPE asteroids_tick_seconds histogram\n");
+        long cumulative = 0;
+        for (int b = 0; b < tickBuckets.length; b++) {
+            cumulative += tickBuckets[b].sum();
+            String le = (b < TICK_BUCKETS_US.length) ? Double.toString(TICK_BUCKETS_US[b] / 1e6) : "+Inf";
+            sb.append("asteroids_tick_seconds_bucket{le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        sb.append("asteroids_tick_seconds_sum ").append(tickNanos.sum() / 1e9).append('\n');
+        sb.append("asteroids_tick_seconds_count ").append(cumulative).append('\n');
+
+        sb.append("# HELP asteroids_live_entities Entidades vivas por clase.\n");
+        sb.append("# TYPE asteroids_live_entities gauge\n");
+        for (int k = 0; k < LIVE_KINDS.length; k++) {
+            sb.append("asteroids_live_entities{kind=\"").append(LIVE_KINDS[k]).append("\"} ")
+              .append(gauges.get(k)).append('\n');
+        }
+
+        gauge(sb, "asteroids_wave", "Oleada actual.", gauges.get(WAVE));
+        counter(sb, "asteroids_score_points_total", "Puntos sumados (tasa: rate()).", scorePoints.sum());
+        counter(sb, "asteroids_lives_lost_total", "Vidas perdidas (loseLife).", livesLost.sum());
+        counter(sb, "asteroids_sounds_played_total", "Sonidos reproducidos.", sounds.sum());
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -2,42 +2,88 @@ import greenfoot.*;
 
 /**
  * Partícula simple:
- * - Se mueve con velocidad inicial, aplica fricción leve y desvanece alpha.
- * - TTL en frames; al expirar se elimina.
+ * - Se mueve con velocidad inicial, aplica fricción leve y desvanece alpha
+ *   (recorriendo fotogramas de alpha pre-renderizados por Assets).
+ * - TTL en frames; al expirar se elimina. El TTL y los cambios de nivel de alpha
+ *   son temporizadores de la TimerWheel del mundo: act sólo mueve y gira.
  * - Wrapping para que no desaparezca de golpe en bordes.
+ * - Reutilizable: AsteroidsWorld la devuelve a su pool al sacarla (ver reset).
  */
-public class Particle extends Actor {
+public class Particle extends SpriteActor implements TimerWheel.Listener {
+
+    private static final int FADE = 0, EXPIRE = 1;   // tipos de temporizador
 
     private double x, y, vx, vy;
-    private int ttl, age = 0;
+    private int ttl;
+    private TimerWheel timers;
+    private int bornTick;            // tick de la rueda al entrar al mundo
+    private int timer = TimerWheel.NONE;  // próximo cambio de alpha o fin de vida
     private double drag = 0.98;     // fricción leve
     private double spin;            // giro por frame
-    private GreenfootImage base;
+    private GreenfootImage[] frames; // fotogramas de desvanecido (compartidos)
+    private int frame = 0;
 
     /**
-     * @param color  color inicial (incluye alpha)
-     * @param radius radio del círculo (px)
+     * @param frames fotogramas de alpha decreciente (p.ej. Assets.spark / Assets.smoke)
      * @param vx     velocidad inicial X (px/frame)
      * @param vy     velocidad inicial Y (px/frame)
      * @param ttl    frames de vida
      * @param spin   grados de giro por frame (puede ser 0)
      */
-    public Particle(Color color, int radius, double vx, double vy, int ttl, double spin) {
-        this.vx = vx; this.vy = vy; this.ttl = Math.max(1, ttl); this.spin = spin;
+    public Particle(GreenfootImage[] frames, double vx, double vy, int ttl, double spin) {
+        reset(frames, vx, vy, ttl, spin);
+    }
 
-        int d = Math.max(2, radius * 2);
-        base = new GreenfootImage(d, d);
-        base.setColor(color);
-        base.fillOval(0, 0, d-1, d-1);
-        // halo suave
-        base.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 80));
-        base.drawOval(0, 0, d-1, d-1);
-        setImage(base);
+    /** Instancia "vacía" para el pool; se configura con reset antes de usarla. */
+    public Particle() {}
+
+    /** (Re)inicializa la partícula (mismos parámetros que el constructor). */
+    public Particle reset(GreenfootImage[] frames, double vx, double vy, int ttl, double spin) {
+        this.vx = vx; this.vy = vy; this.ttl = Math.max(1, ttl); this.spin = spin;
+        this.frame = 0;
+        this.frames = frames;
+        setImage(frames[0]);
+        setRotation(0);
+        return this;
     }
 
     @Override
     protected void addedToWorld(World w) {
         x = getX(); y = getY();
+        timers = ((AsteroidsWorld) w).timers();
+        bornTick = timers.now();
+        scheduleNext();
+    }
+
+    @Override
+    public void onTimer(int kind) {
+        timer = TimerWheel.NONE;
+        if (kind == EXPIRE) {
+            if (getWorld() != null) getWorld().removeObject(this);
+            return;
+        }
+        // desvanecer alpha (sólo cambia de imagen al pasar de nivel)
+        int age = timers.now() - bornTick;
+        frame = Math.min(frames.length - 1, age * frames.length / ttl);
+        setImage(frames[frame]);
+        scheduleNext();
+    }
+
+    /** Programa el próximo paso de nivel de alpha o, si no quedan antes del TTL, el fin. */
+    private void scheduleNext() {
+        int at = ttl, kind = EXPIRE;
+        if (frame < frames.length - 1) {
+            // primera edad con age * frames.length / ttl >= frame + 1
+            int fade = ((frame + 1) * ttl + frames.length - 1) / frames.length;
+            if (fade < ttl) { at = fade; kind = FADE; }
+        }
+        timer = timers.schedule(this, kind, at - (timers.now() - bornTick));
+    }
+
+    @Override
+    void stopTimers(TimerWheel timers) {
+        timers.cancel(timer);
+        timer = TimerWheel.NONE;
     }
 
     @Override
@@ -50,15 +96,12 @@ public class Particle extends Actor {
 
         // giro (visual)
         if (spin != 0) setRotation(getRotation() + (int)Math.round(spin));
+    }
 
-        // desvanecer alpha
-        age++;
-        int alpha = (int)Math.max(0, 255 * (1.0 - (double)age / ttl));
-        getImage().setTransparency(alpha);
-
-        if (age >= ttl) {
-            if (getWorld() != null) getWorld().removeObject(this);
-        }
+    @Override
+    void scrollBy(double dx, double dy) {
+        x += dx; y += dy;
+        setLocation((int)Math.round(x), (int)Math.round(y));
     }
 
     private void wrap() {
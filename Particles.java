@@ -6,12 +6,18 @@ public class Particles {
 
     private Particles() {}
 
+    /** RNG de respaldo si el mundo no es un AsteroidsWorld (evita crear uno por ráfaga). */
+    private static final Random FALLBACK_RNG = new Random();
+
     /** 
      * Explosión mixta (chispas y humo) en (x,y).
      * @param scale 1..n ~ tamaño/energía de la explosión (10 recomendado para asteroide S, 14 M, 20 L).
+     * Con el mundo en su tope de partículas (setParticleLimit) las que sobran no
+     * se crean, pero se sortean igual: la partida no cambia.
      */
     public static void spawnExplosion(World w, int x, int y, int scale) {
-        Random rng = (w instanceof AsteroidsWorld) ? ((AsteroidsWorld) w).rng() : new Random();
+        AsteroidsWorld aw = (w instanceof AsteroidsWorld) ? (AsteroidsWorld) w : null;
+        Random rng = (aw != null) ? aw.rng() : FALLBACK_RNG;
 
         int sparks = Math.max(6, (int)(scale * 1.2));
         int smoke  = Math.max(4, scale / 2);
@@ -24,10 +30,10 @@ public class Particles {
             double vy  = Math.sin(ang) * spd;
             int ttl    = 20 + rng.nextInt(20);
             int r      = 2 + rng.nextInt(2);
-            Color c    = (rng.nextBoolean())
-                       ? new Color(255, 240, 160, 255)
-                       : new Color(255, 255, 255, 255);
-            Particle p = new Particle(c, r, vx, vy, ttl, rngRange(rng, -6, 6));
+            boolean yellow = rng.nextBoolean();                           // amarilla o blanca
+            double spin = rngRange(rng, -6, 6);
+            if (aw != null && !aw.hasParticleRoom()) continue;             // el RNG avanza igual
+            Particle p = obtain(aw).reset(Assets.spark(yellow, r), vx, vy, ttl, spin);
             w.addObject(p, x, y);
         }
 
@@ -39,12 +45,18 @@ public class Particles {
             double vy  = Math.sin(ang) * spd;
             int ttl    = 40 + rng.nextInt(40);
             int r      = 5 + rng.nextInt(6);
-            Color c    = new Color(180, 180, 180, 180);
-            Particle p = new Particle(c, r, vx, vy, ttl, rngRange(rng, -2, 2));
+            double spin = rngRange(rng, -2, 2);
+            if (aw != null && !aw.hasParticleRoom()) continue;
+            Particle p = obtain(aw).reset(Assets.smoke(r), vx, vy, ttl, spin);
             w.addObject(p, x, y);
         }
     }
 
+    /** Partícula del pool del mundo (o nueva si el mundo no tiene pool). */
+    private static Particle obtain(AsteroidsWorld aw) {
+        return (aw != null) ? aw.particlePool().acquire() : new Particle();
+    }
+
     private static double rngRange(Random rng, double a, double b) {
         return a + rng.nextDouble() * (b - a);
     }
@@ -0,0 +1,136 @@
+import greenfoot.*;  // Actor, GreenfootImage, World, Color
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Overlay de rendimiento (F3): gráfico de tiempos de frame, actores vivos por
+ * clase, uso de pools, consultas de colisión por tick y GC desde el frame anterior.
+ * - Sigue el estilo de HUD: un lienzo propio que se repinta sólo cada REDRAW_EVERY frames.
+ * - Oculto no está en el mundo: no muestrea nada ni cuesta nada (sólo la tecla).
+ *
+ * Lo crea y muestra AsteroidsWorld.togglePerfOverlay().
+ */
+public class PerfOverlay extends Actor {
+
+    private static final int W = 260, H = 206;
+    private static final int SAMPLES = 120;          // ~2 s de historia a 60 FPS
+    private static final int GRAPH_H = 50;
+    private static final double GRAPH_MAX_MS = 33.3; // tope del gráfico (30 FPS)
+    private static final int REDRAW_EVERY = 6;
+
+    private final GreenfootImage canvas = new GreenfootImage(W, H);
+    private final List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+
+    // Historia de tiempos de frame (ms)
+    private final float[] frameMs = new float[SAMPLES];
+    private int head = 0, filled = 0;
+
+    // Muestras del frame anterior (para diferencias)
+    private long lastQueries, lastGcCount, lastGcMillis;
+    private int queriesPerTick;
+    private long gcCountDelta, gcMillisDelta;       // acumulados desde el último repintado
+    private int framesSinceRedraw = 0;
+
+    @Override
+    protected void addedToWorld(World w) {
+        // Al (re)mostrarse empieza de cero: lo ocurrido oculto no se atribuye a un frame
+        lastQueries = Collision.queryCount();
+        lastGcCount = gcCount();
+        lastGcMillis = gcMillis();
+        gcCountDelta = gcMillisDelta = 0;
+        head = filled = 0;
+        framesSinceRedraw = REDRAW_EVERY;
+        setImage(canvas);
+    }
+
+    @Override
+    public void act() {
+        AsteroidsWorld world = (AsteroidsWorld) getWorld();
+
+        // 1) Muestreo (cada frame, barato)
+        frameMs[head] = world.getLastFrameNanos() / 1_000_000f;
+        head = (head + 1) % SAMPLES;
+        if (filled < SAMPLES) filled++;
+
+        long q = Collision.queryCount();
+        queriesPerTick = (int) (q - lastQueries);
+        lastQueries = q;
+
+        long gc = gcCount(), gcMs = gcMillis();
+        gcCountDelta += gc - lastGcCount;
+        gcMillisDelta += gcMs - lastGcMillis;
+        lastGcCount = gc;
+        lastGcMillis = gcMs;
+
+        // 2) Repintado (cada pocos frames)
+        if (++framesSinceRedraw >= REDRAW_EVERY) {
+            framesSinceRedraw = 0;
+            redraw(world);
+            gcCountDelta = gcMillisDelta = 0;
+        }
+    }
+
+    private void redraw(AsteroidsWorld world) {
+        canvas.clear();
+        canvas.setColor(new Color(0, 0, 0, 150));
+        canvas.fillRect(0, 0, W, H);
+        canvas.setColor(new Color(255, 255, 255, 40));
+        canvas.drawRect(0, 0, W - 1, H - 1);
+
+        // Gráfico de frame time (más viejo a la izquierda) con línea de 16.7 ms
+        int gx = 8, gy = 8, gw = W - 16;
+        canvas.setColor(new Color(255, 255, 255, 25));
+        canvas.fillRect(gx, gy, gw, GRAPH_H);
+        int budgetY = gy + GRAPH_H - (int) (GRAPH_H * 16.7 / GRAPH_MAX_MS);
+        canvas.setColor(new Color(255, 255, 255, 90));
+        canvas.drawLine(gx, budgetY, gx + gw - 1, budgetY);
+        float worst = 0;
+        for (int k = 0; k < filled; k++) {
+            float ms = frameMs[(head - filled + k + SAMPLES) % SAMPLES];
+            worst = Math.max(worst, ms);
+            int h = (int) Math.min(GRAPH_H, GRAPH_H * ms / GRAPH_MAX_MS);
+            int x = gx + (k * gw) / SAMPLES;
+            canvas.setColor(ms > 16.7f ? new Color(255, 90, 90) : new Color(120, 220, 120));
+            canvas.drawLine(x, gy + GRAPH_H - 1, x, gy + GRAPH_H - h);
+        }
+
+        // Texto
+        int y = gy + GRAPH_H + 16;
+        float last = frameMs[(head - 1 + SAMPLES) % SAMPLES];
+        canvas.setColor(new Color(255, 255, 255));
+        canvas.drawString(String.format("frame %.1f ms   peor %.1f ms", last, worst), 10, y);
+        canvas.drawString("rocas " + world.asteroids().size() + "  balas " + world.getBulletCount()
+                          + "  enemigas " + world.getEnemyBulletCount(), 10, y += 16);
+        canvas.drawString("ovnis " + world.getUfoCount() + "  particulas " + world.getParticleCount()
+                          + "  naves " + world.players().size(), 10, y += 16);
+        canvas.drawString("timers " + world.timers().pending() + "  vencen " + world.timers().firedLastTick()
+                          + "/tick", 10, y += 16);
+        ArenaSnapshot snap = world.arenaSnapshot(); // el campo puede estar avanzando en otro hilo
+        if (snap != null) {
+            canvas.drawString("arena " + snap.liveCount() + " rocas, " + snap.updatedLastTick()
+                              + " avanzadas/tick", 10, y += 16);
+        }
+        canvas.drawString("pools: part " + world.particlePool().inUse() + "/" + world.particlePool().created()
+                          + " bal " + world.bulletPool().inUse() + "/" + world.bulletPool().created()
+                          + " enem " + world.enemyBulletPool().inUse() + "/" + world.enemyBulletPool().created(),
+                          10, y += 16);
+        canvas.drawString("colisiones/tick " + queriesPerTick + "  pares " + world.collisions().pairsTestedLastTick()
+                          + "  contactos " + world.collisions().contactsLastTick(), 10, y += 16);
+        canvas.drawString("GC " + gcCountDelta + " ciclos, " + gcMillisDelta + " ms (ult. "
+                          + REDRAW_EVERY + " frames)", 10, y += 16);
+        setImage(canvas);
+    }
+
+    private long gcCount() {
+        long n = 0;
+        for (int i = 0; i < gcs.size(); i++) n += Math.max(0, gcs.get(i).getCollectionCount());
+        return n;
+    }
+
+    private long gcMillis() {
+        long n = 0;
+        for (int i = 0; i < gcs.size(); i++) n += Math.max(0, gcs.get(i).getCollectionTime());
+        return n;
+    }
+}
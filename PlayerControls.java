@@ -0,0 +1,96 @@
+import java.util.function.IntSupplier;
+
+/**
+ * Teclas de una nave: cada acción acepta una o más teclas (nombres de Greenfoot),
+ * leídas de la InputQueue del mundo (toques entre frames y momento dentro del frame).
+ * - solo(): las de siempre (flechas o WASD, espacio, shift).
+ * - forPlayer(i): juegos de teclas que no se pisan, para 2-4 naves en un teclado.
+ * - scripted(buttons): sin teclado; las acciones salen de una máscara de bits
+ *   (LEFT, RIGHT...) que da otro (p.ej. FrameFuzzer).
+ *
+ * Inmutable; consultar una acción no reserva memoria.
+ */
+public final class PlayerControls {
+
+    public static final int MAX_PLAYERS = 4;
+
+    /** Acciones como bits, para entradas guionadas (ver scripted). */
+    public static final int LEFT = 1, RIGHT = 2, THRUST = 4, FIRE = 8, HYPER = 16;
+
+    private static final PlayerControls SOLO = new PlayerControls(
+        keys("left", "a"), keys("right", "d"), keys("up", "w"), keys("space"), keys("shift"));
+
+    private static final PlayerControls[] COOP = {
+        new PlayerControls(keys("left"), keys("right"), keys("up"), keys("space"), keys("down")),
+        new PlayerControls(keys("a"), keys("d"), keys("w"), keys("q"), keys("e")),
+        new PlayerControls(keys("j"), keys("l"), keys("i"), keys("u"), keys("o")),
+        new PlayerControls(keys("f"), keys("h"), keys("t"), keys("r"), keys("y")),
+    };
+
+    private final int[] left, right, thrust, fire, hyper;   // índices de InputQueue
+    private final IntSupplier script;    // null = teclado
+
+    public PlayerControls(String[] left, String[] right, String[] thrust, String[] fire, String[] hyper) {
+        this.left = indices(left);
+        this.right = indices(right);
+        this.thrust = indices(thrust);
+        this.fire = indices(fire);
+        this.hyper = indices(hyper);
+        this.script = null;
+    }
+
+    private PlayerControls(IntSupplier script) {
+        int[] none = new int[0];
+        this.left = none;
+        this.right = none;
+        this.thrust = none;
+        this.fire = none;
+        this.hyper = none;
+        this.script = script;
+    }
+
+    /** Teclas de una partida de un jugador. */
+    public static PlayerControls solo() { return SOLO; }
+
+    /** Teclas del jugador i (0..MAX_PLAYERS-1) en cooperativo. */
+    public static PlayerControls forPlayer(int i) { return COOP[i]; }
+
+    /** Controles sin teclado: cada consulta lee la máscara de acciones que da 'buttons'. */
+    public static PlayerControls scripted(IntSupplier buttons) { return new PlayerControls(buttons); }
+
+    public boolean left(InputQueue in)  { return (script != null) ? (script.getAsInt() & LEFT) != 0  : anyDown(in, left); }
+    public boolean right(InputQueue in) { return (script != null) ? (script.getAsInt() & RIGHT) != 0 : anyDown(in, right); }
+    public boolean fire(InputQueue in)  { return (script != null) ? (script.getAsInt() & FIRE) != 0  : anyDown(in, fire); }
+    public boolean hyper(InputQueue in) { return (script != null) ? (script.getAsInt() & HYPER) != 0 : anyDown(in, hyper); }
+
+    /** Fracción del frame (0..1) con el impulso apretado: un toque corto empuja poco, pero empuja. */
+    public double thrust(InputQueue in) {
+        if (script != null) return ((script.getAsInt() & THRUST) != 0) ? 1 : 0;
+        double h = 0;
+        for (int i = 0; i < thrust.length; i++) h = Math.max(h, in.held(thrust[i]));
+        return h;
+    }
+
+    /** Cuánto del frame (0..1) hace que se apretó disparo, si fue en este frame (ver InputQueue.lead). */
+    public double fireLead(InputQueue in) {
+        if (script != null) return 0;
+        double lead = 0;
+        for (int i = 0; i < fire.length; i++) lead = Math.max(lead, in.lead(fire[i]));
+        return lead;
+    }
+
+    private static boolean anyDown(InputQueue in, int[] keys) {
+        for (int i = 0; i < keys.length; i++) {
+            if (in.isDown(keys[i])) return true;
+        }
+        return false;
+    }
+
+    private static int[] indices(String[] names) {
+        int[] out = new int[names.length];
+        for (int i = 0; i < names.length; i++) out[i] = InputQueue.keyIndex(names[i]);
+        return out;
+    }
+
+    private static String[] keys(String... names) { return names; }
+}
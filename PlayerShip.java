@@ -1,20 +1,25 @@
 import greenfoot.*;   // Actor, World, GreenfootImage, Greenfoot
-import java.util.List;
 
 /**
  * Nave del jugador:
  * - Movimiento inercial con thrust y giro.
  * - Wrapping toroidal.
- * - Disparo con cooldown y límite de balas activas.
+ * - Disparo con cooldown y límite de balas activas propias (contador O(1) que
+ *   mantiene AsteroidsWorld al registrar/retirar cada Bullet de esta nave).
+ * - Teclas propias (PlayerControls): hasta 4 naves en cooperativo. El impulso
+ *   cuenta sólo la parte del frame en que estuvo apretado y el disparo sale
+ *   adelantado según cuándo se apretó dentro del frame (InputQueue).
  * - Invulnerabilidad temporal al (re)aparecer (parpadeo).
- * - Explosión al colisionar (avisa al mundo para perder vida).
+ * - Recargas, invulnerabilidad y parpadeo son temporizadores de la TimerWheel
+ *   del mundo: la nave no descuenta nada en cada frame.
+ * - Explosión al colisionar (CollisionSystem publica GameEvents.shipHit; el mundo resta la vida).
  *
  * Requiere:
  *  - class AsteroidsWorld extends World (con loseLife() y addScore() ya definidos).
  *  - class Bullet extends Actor con constructor Bullet(double vx, double vy, int ttlFrames, Actor owner).
  *  - class Asteroid extends Actor (para detección de colisión).
  */
-public class PlayerShip extends Actor {
+public class PlayerShip extends SpriteActor implements TimerWheel.Listener {
 
     // ------------ Parámetros de balance (ajustables) ------------
     private static final double THRUST_POWER = 0.35;  // px/frame^2 (aceleración)
@@ -32,25 +37,73 @@ public class PlayerShip extends Actor {
 
     private static final int    HYPERSPACE_CD_FRAMES = 120; // opcional
 
+    // Casco triangular (coincide con el sprite: nariz +18, cola -12, semiancho 8)
+    private static final double HULL_NOSE = 18, HULL_TAIL = -12, HULL_HALF_W = 8;
+    static final double HULL_REACH = 18; // radio envolvente para descarte (también lo usa CollisionSystem)
+
+    private static final int FIRE_READY = 0, HYPER_READY = 1, BLINK = 2;  // tipos de temporizador
+    private static final int BLINK_FRAMES = 6;  // el parpadeo alterna cada 6 frames
+
+    // ------------ Identidad ------------
+    private final int slot;                 // 0..PlayerControls.MAX_PLAYERS-1
+    private final PlayerControls controls;
+
     // ------------ Estado dinámico ------------
     private double x, y;       // posición subpíxel
     private double vx, vy;     // velocidad
-    private int fireCooldown = 0;
-    private int invulnTimer  = INVULN_FRAMES;
-    private int hyperCD      = 0;
+    private boolean fireReady  = true;
+    private boolean hyperReady = true;
+    private int invulnUntil;                // tick de la rueda hasta el que es invulnerable
+    private TimerWheel timers;
+    private int fireTimer = TimerWheel.NONE, hyperTimer = TimerWheel.NONE, blinkTimer = TimerWheel.NONE;
+    private int activeBullets = 0;          // balas propias en el mundo
+
+    // Triángulo en coords. de mundo (reutilizado en cada comprobación)
+    private final double[] hullX = new double[3];
+    private final double[] hullY = new double[3];
+
+    // Estado visual (los sprites son compartidos y vienen pre-renderizados de Assets)
+    private boolean thrusting = false;
+    private int alphaLevel = Assets.SHIP_ALPHA_DIM;
+
+    /** Nave de una partida de un jugador. */
+    public PlayerShip() {
+        this(0, PlayerControls.solo());
+    }
 
-    // Sprites simples (con y sin llama)
-    private GreenfootImage imgBase;
-    private GreenfootImage imgThrust;
+    /** Nave del jugador 'slot' con sus teclas. */
+    public PlayerShip(int slot, PlayerControls controls) {
+        this.slot = slot;
+        this.controls = controls;
+    }
 
     @Override
     protected void addedToWorld(World w) {
         // Posición inicial (usar la del World)
         this.x = getX();
         this.y = getY();
-        buildSprites();
-        setImage(imgBase);
+        updateSprite();
         setRotation(270); // 270° = "mirando hacia arriba" visualmente (opcional)
+        timers = ((AsteroidsWorld) w).timers();
+        invulnUntil = timers.now() + INVULN_FRAMES;
+        blinkTimer = timers.schedule(this, BLINK, 1); // el primer act ya parpadea
+    }
+
+    @Override
+    public void onTimer(int kind) {
+        switch (kind) {
+            case FIRE_READY:  fireTimer = TimerWheel.NONE;  fireReady = true;  break;
+            case HYPER_READY: hyperTimer = TimerWheel.NONE; hyperReady = true; break;
+            default:          blinkTimer = TimerWheel.NONE; updateInvulnerabilityVisual(); break;
+        }
+    }
+
+    @Override
+    void stopTimers(TimerWheel timers) {
+        timers.cancel(fireTimer);
+        timers.cancel(hyperTimer);
+        timers.cancel(blinkTimer);
+        fireTimer = hyperTimer = blinkTimer = TimerWheel.NONE;
     }
 
     @Override
@@ -58,67 +111,82 @@ public class PlayerShip extends Actor {
         readInput();
         physicsStep();
         wrapAround();
-        updateInvulnerabilityVisual();
-        checkCollisions();
+        // Las colisiones las detecta CollisionSystem en el act del mundo
     }
 
     /* ==================== Entrada del jugador ==================== */
 
     private void readInput() {
-        boolean left  = Greenfoot.isKeyDown("left")  || Greenfoot.isKeyDown("a");
-        boolean right = Greenfoot.isKeyDown("right") || Greenfoot.isKeyDown("d");
-        boolean up    = Greenfoot.isKeyDown("up")    || Greenfoot.isKeyDown("w");
-        boolean fire  = Greenfoot.isKeyDown("space");
-        boolean hyper = Greenfoot.isKeyDown("shift"); // hipersalto opcional
+        InputQueue in = ((AsteroidsWorld) getWorld()).input();
+        boolean left  = controls.left(in);
+        boolean right = controls.right(in);
+        double thrust = controls.thrust(in);  // fracción del frame con el impulso apretado
+        boolean up    = thrust > 0;
+        boolean fire  = controls.fire(in);
+        boolean hyper = controls.hyper(in); // hipersalto opcional
 
         // Giro
         if (left)  setRotation((int)(getRotation() - ANGULAR_SPEED + 360) % 360);
         if (right) setRotation((int)(getRotation() + ANGULAR_SPEED) % 360);
 
-        // Thrust
+        // Thrust (sólo la parte del frame en que estuvo apretado)
         if (up) {
             double rad = Math.toRadians(getRotation());
-            vx += Math.cos(rad) * THRUST_POWER;
-            vy += Math.sin(rad) * THRUST_POWER;
-            setImage(imgThrust);
-        } else {
-            setImage(imgBase);
+            vx += Math.cos(rad) * THRUST_POWER * thrust;
+            vy += Math.sin(rad) * THRUST_POWER * thrust;
+        }
+        if (up != thrusting) {
+            thrusting = up;
+            updateSprite();
         }
 
-        // Disparo
-        if (fireCooldown > 0) fireCooldown--;
-        if (fire && fireCooldown == 0 && canFireAnotherBullet()) {
-            shoot();
-            fireCooldown = FIRE_COOLDOWN_FRAMES;
+        // Disparo (en el momento del frame en que se apretó)
+        if (fire && fireReady && canFireAnotherBullet()) {
+            shoot(controls.fireLead(in));
+            fireReady = false;
+            fireTimer = timers.schedule(this, FIRE_READY, FIRE_COOLDOWN_FRAMES);
         }
 
         // Hipersalto (opcional, simple: teletransporte aleatorio con cooldown)
-        if (hyperCD > 0) hyperCD--;
-        if (hyper && hyperCD == 0) {
+        if (hyper && hyperReady) {
             hyperspace();
-            hyperCD = HYPERSPACE_CD_FRAMES;
+            hyperReady = false;
+            hyperTimer = timers.schedule(this, HYPER_READY, HYPERSPACE_CD_FRAMES);
         }
     }
 
     private boolean canFireAnotherBullet() {
-        // Si solo hay un jugador, vale contar balas totales
-        List<Bullet> bullets = getWorld().getObjects(Bullet.class);
-        return bullets.size() < MAX_BULLETS;
+        return activeBullets < MAX_BULLETS; // cada nave, su propio cupo
     }
 
-    private void shoot() {
-        double rad = Math.toRadians(getRotation());
-        // Punto de salida (nariz de la nave)
-        double noseX = x + Math.cos(rad) * (SHIP_RADIUS_PX + 10);
-        double noseY = y + Math.sin(rad) * (SHIP_RADIUS_PX + 10);
+    /** Una bala de esta nave entró al / salió del mundo (lo llama AsteroidsWorld). */
+    void bulletAdded()   { activeBullets++; }
+    void bulletRemoved() { activeBullets--; }
 
+    /** Balas propias en el mundo. */
+    public int getActiveBullets() { return activeBullets; }
+
+    /** Jugador al que pertenece la nave (0..PlayerControls.MAX_PLAYERS-1). */
+    public int getSlot() { return slot; }
+
+    /**
+     * @param lead parte del frame (0..1) que pasó desde que se apretó disparo:
+     *             la bala sale ya adelantada lo que habría volado en ese tiempo
+     */
+    private void shoot(double lead) {
+        double rad = Math.toRadians(getRotation());
         // Velocidad de la bala = vel nave + vector hacia adelante
         double bvx = vx + Math.cos(rad) * BULLET_SPEED;
         double bvy = vy + Math.sin(rad) * BULLET_SPEED;
 
-        Bullet b = new Bullet(bvx, bvy, BULLET_TTL_FRAMES, this);
+        // Punto de salida (nariz de la nave)
+        double noseX = x + Math.cos(rad) * (SHIP_RADIUS_PX + 10) + bvx * lead;
+        double noseY = y + Math.sin(rad) * (SHIP_RADIUS_PX + 10) + bvy * lead;
+
+        Bullet b = ((AsteroidsWorld) getWorld()).bulletPool().acquire()
+                       .reset(bvx, bvy, BULLET_TTL_FRAMES, this);
         getWorld().addObject(b, (int)Math.round(noseX), (int)Math.round(noseY));
-        Greenfoot.playSound("shoot.wav"); // opcional (si tienes el audio)
+        ((AsteroidsWorld) getWorld()).events().sound("shoot.wav"); // opcional (si tienes el audio)
     }
 
     /* ==================== Física y envolvente ==================== */
@@ -158,38 +226,68 @@ public class PlayerShip extends Actor {
 
     /* ==================== Colisiones y estado ==================== */
 
-    private void checkCollisions() {
-        // Durante invulnerabilidad, no colisiona
-        if (invulnTimer > 0) return;
+    /**
+     * ¿El casco de la nave toca la roca? (triángulo-vs-casco exacto tras descarte
+     * por círculos). Durante la invulnerabilidad siempre devuelve false.
+     */
+    public boolean touchesRock(Asteroid rock) {
+        if (isInvulnerable()) return false;
+        updateHull();
+        return Collision.triangleHitsRock(hullX, hullY, x, y, HULL_REACH, rock);
+    }
 
-        // Solo comprobamos Asteroid para compilar sin clases extra
-        Actor hit = getOneIntersectingObject(Asteroid.class);
-        if (hit != null) {
-            explode();
-        }
+    /** Modo arena: la misma prueba contra el campo, en coordenadas de arena. */
+    public boolean touchesField(ArenaField field, double camX, double camY) {
+        if (isInvulnerable()) return false;
+        updateHull();
+        for (int k = 0; k < 3; k++) { hullX[k] += camX; hullY[k] += camY; }
+        int hit = field.hitTriangle(hullX, hullY, x + camX, y + camY, HULL_REACH);
+        updateHull();
+        return hit >= 0;
     }
 
-    private void explode() {
-        // Efecto simple (puedes reemplazar por partículas)
-        Greenfoot.playSound("explode.wav"); // opcional
+    /**
+     * ¿Un proyectil circular (px,py,r) alcanza el casco de la nave?
+     * Durante la invulnerabilidad siempre devuelve false.
+     */
+    public boolean isHitByCircle(double px, double py, double r) {
+        if (isInvulnerable()) return false;
+        updateHull();
+        return Collision.circleHitsTriangle(px, py, r, hullX, hullY, x, y, HULL_REACH);
+    }
+
+    /** Recalcula el triángulo de la nave según posición y rotación actuales. */
+    private void updateHull() {
+        double rad = Math.toRadians(getRotation());
+        double c = Math.cos(rad), s = Math.sin(rad);
+        hullX[0] = x + HULL_NOSE * c;                     hullY[0] = y + HULL_NOSE * s;
+        hullX[1] = x + HULL_TAIL * c + HULL_HALF_W * s;   hullY[1] = y + HULL_TAIL * s - HULL_HALF_W * c;
+        hullX[2] = x + HULL_TAIL * c - HULL_HALF_W * s;   hullY[2] = y + HULL_TAIL * s + HULL_HALF_W * c;
+    }
 
+    /** Destruye la nave (lo llama GameEvents al resolver SHIP_HIT). */
+    void explode() {
         AsteroidsWorld world = (AsteroidsWorld)getWorld();
+        // Efecto simple (puedes reemplazar por partículas)
+        world.events().sound("explode.wav"); // opcional
+
         // Notificar pérdida de vida ANTES de eliminar el actor
-        world.loseLife();
-        Particles.spawnExplosion(getWorld(), getX(), getY(), 16); // nave ~mediana
+        world.loseLife(this);
+        world.events().explosion(getX(), getY(), 16); // nave ~mediana
         // Sacar la nave
-        getWorld().removeObject(this);
+        world.removeObject(this);
         // El respawn lo gestiona el mundo.
     }
 
     private void hyperspace() {
-        World w = getWorld();
+        AsteroidsWorld w = (AsteroidsWorld) getWorld();
         int W = w.getWidth();
         int H = w.getHeight();
 
-        // Teletransporte aleatorio (no garantiza 100% seguridad; el Mundo ya intenta spawns seguros)
-        this.x = Greenfoot.getRandomNumber(W);
-        this.y = Greenfoot.getRandomNumber(H);
+        // Teletransporte aleatorio (no garantiza 100% seguridad; el Mundo ya intenta spawns seguros).
+        // Con el RNG del mundo: la misma semilla repite el salto (FrameFuzzer, repeticiones)
+        this.x = w.rng().nextInt(W);
+        this.y = w.rng().nextInt(H);
 
         // Pierde algo de velocidad (mareo post salto)
         this.vx *= 0.3;
@@ -197,44 +295,48 @@ public class PlayerShip extends Actor {
 
         setLocation((int)Math.round(x), (int)Math.round(y));
         // Pequeña invulnerabilidad tras salto
-        invulnTimer = Math.max(invulnTimer, 24);
+        grantInvulnerability(24);
+        w.log(Telemetry.HYPERSPACE, 0, 0);
+    }
+
+    /** La cámara del modo arena recentra la nave: se mueve con su posición subpíxel. */
+    @Override
+    void scrollBy(double dx, double dy) {
+        x += dx; y += dy;
+        setLocation((int)Math.round(x), (int)Math.round(y));
     }
 
     /* ==================== Visuales y utilidades ==================== */
 
+    /** Ticks de invulnerabilidad que quedan (0 = vulnerable). */
+    private int invulnLeft() {
+        return Math.max(0, invulnUntil - timers.now());
+    }
+
+    private boolean isInvulnerable() {
+        return invulnLeft() > 0;
+    }
+
+    /** Aplica el nivel de parpadeo que toca y programa el próximo cambio. */
     private void updateInvulnerabilityVisual() {
-        if (invulnTimer > 0) {
-            invulnTimer--;
-            // Parpadeo: alterna transparencia
-            int phase = (invulnTimer / 6) % 2;
-            getImage().setTransparency(phase == 0 ? 110 : 230);
-            if (invulnTimer == 0) {
-                getImage().setTransparency(255);
-            }
+        int left = invulnLeft();
+        // Parpadeo: alterna entre variantes de alpha ya pre-renderizadas
+        int phase = (left / BLINK_FRAMES) % 2;
+        int level = (left == 0) ? Assets.SHIP_ALPHA_OPAQUE
+                  : (phase == 0 ? Assets.SHIP_ALPHA_DIM : Assets.SHIP_ALPHA_BRIGHT);
+        if (level != alphaLevel) {
+            alphaLevel = level;
+            updateSprite();
+        }
+        if (left > 0) {
+            // Hasta el próximo múltiplo de BLINK_FRAMES (cambia la fase) o hasta el final
+            int delay = (left >= BLINK_FRAMES) ? left % BLINK_FRAMES + 1 : left;
+            blinkTimer = timers.schedule(this, BLINK, delay);
         }
     }
 
-    private void buildSprites() {
-        // Triángulo apuntando a la derecha (rot 0) para que el heading coincida con getRotation()
-        imgBase = new GreenfootImage(40, 40);
-        imgBase.setColor(new Color(255, 255, 255));
-        int cx = 20, cy = 20;
-        int[] xs = { cx + 18, cx - 12, cx - 12 };
-        int[] ys = { cy,      cy - 8,   cy + 8  };
-        imgBase.drawPolygon(xs, ys, 3);
-        imgBase.drawLine(cx - 5, cy - 4, cx - 5, cy + 4); // cabina
-        // contorno más visible
-        imgBase.setColor(new Color(200, 200, 200));
-        imgBase.drawOval(cx-16, cy-12, 8, 8); // detalle decorativo
-
-        imgThrust = new GreenfootImage(imgBase); // copia
-        // llama trasera
-        imgThrust.setColor(new Color(255, 180, 60));
-        imgThrust.fillPolygon(
-            new int[]{cx - 12, cx - 20, cx - 12},
-            new int[]{cy - 5,  cy,      cy + 5},
-            3
-        );
+    private void updateSprite() {
+        setImage(Assets.ship(thrusting, alphaLevel));
     }
 
     /* ==================== API opcional ==================== */
@@ -246,6 +348,9 @@ public class PlayerShip extends Actor {
 
     /** Reaplicar invulnerabilidad (útil si activas powerups de escudo). */
     public void grantInvulnerability(int frames) {
-        invulnTimer = Math.max(invulnTimer, frames);
+        invulnUntil = Math.max(invulnUntil, timers.now() + frames);
+        timers.cancel(blinkTimer);
+        blinkTimer = TimerWheel.NONE;
+        updateInvulnerabilityVisual();
     }
 }
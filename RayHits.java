@@ -0,0 +1,66 @@
+import greenfoot.*;  // Actor
+
+/**
+ * Resultado reutilizable de CollisionSystem.raycast: los impactos más cercanos
+ * a lo largo de un rayo, ordenados por distancia.
+ * - Capacidad fija: guarda como mucho capacity() impactos (los más cercanos),
+ *   así una consulta de "primer impacto" usa new RayHits(1) y corta antes.
+ * - Lo reserva quien consulta (una vez) y lo reutiliza: la consulta no reserva memoria.
+ */
+public final class RayHits {
+
+    private final Actor[] actors;
+    private final double[] dist;
+    private final int[] layers;
+    private int size = 0;
+
+    public RayHits(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+        actors = new Actor[capacity];
+        dist = new double[capacity];
+        layers = new int[capacity];
+    }
+
+    public int capacity()            { return actors.length; }
+    public int size()                { return size; }
+    public boolean isEmpty()         { return size == 0; }
+    public Actor actor(int i)        { return actors[i]; }
+    /** Distancia desde el origen del rayo hasta el punto de entrada. */
+    public double distance(int i)    { return dist[i]; }
+    public CollisionLayer layer(int i) { return CollisionLayer.ALL[layers[i]]; }
+
+    /** Vacía el resultado sin retener actores. */
+    public void clear() {
+        for (int i = 0; i < size; i++) actors[i] = null;
+        size = 0;
+    }
+
+    /** ¿Está lleno y el más lejano guardado queda antes de t? (permite cortar el recorrido) */
+    boolean isSettledBefore(double t) {
+        return size == actors.length && dist[size - 1] <= t;
+    }
+
+    /**
+     * Inserta en orden; si está lleno descarta el más lejano (o el nuevo, si es él).
+     * Un actor ya presente se ignora: los tramos llegan en orden, el previo está más cerca.
+     */
+    void offer(Actor a, int layer, double t) {
+        for (int k = 0; k < size; k++) if (actors[k] == a) return;
+        int i = size;
+        if (i == actors.length) {
+            if (t >= dist[i - 1]) return;
+            i--;                       // el último se cae
+        } else {
+            size++;
+        }
+        while (i > 0 && dist[i - 1] > t) {
+            actors[i] = actors[i - 1];
+            dist[i] = dist[i - 1];
+            layers[i] = layers[i - 1];
+            i--;
+        }
+        actors[i] = a;
+        dist[i] = t;
+        layers[i] = layer;
+    }
+}
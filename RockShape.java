@@ -0,0 +1,92 @@
+import greenfoot.*;  // GreenfootImage, Color
+import java.util.Random;
+
+/**
+ * Forma inmutable de un asteroide: polígono "rocoso" + sprite ya renderizado.
+ * - Los vértices se guardan relativos al centro del sprite (rotación 0).
+ * - Se comparte entre todos los asteroides que usan la misma variante.
+ *
+ * La genera Assets durante la precarga (o la lee de un AssetBundle); nadie
+ * debería construirla en pleno juego.
+ */
+public final class RockShape {
+
+    // Jitter radial de los vértices (fracción del radio nominal)
+    private static final double JITTER_MIN = 0.75, JITTER_MAX = 1.15;
+
+    private final int radius;           // radio nominal (px)
+    private final double[] vx, vy;      // vértices locales (centro = 0,0)
+    private final double hullRadius;    // distancia máxima centro→vértice
+    private final GreenfootImage image;
+
+    private RockShape(int radius, double[] vx, double[] vy, GreenfootImage image) {
+        this.radius = radius;
+        this.vx = vx;
+        this.vy = vy;
+        this.image = image;
+        double max = 0;
+        for (int i = 0; i < vx.length; i++) {
+            max = Math.max(max, Math.sqrt(vx[i]*vx[i] + vy[i]*vy[i]));
+        }
+        this.hullRadius = max;
+    }
+
+    /**
+     * Construye una variante de polígono dentado para el radio dado.
+     * La semilla fija hace que cada variante sea reproducible entre sesiones.
+     */
+    static RockShape build(int radius, long seed) {
+        Random rnd = new Random(seed);
+
+        // Imagen cuadrada que alcanza al vértice más lejano posible: el casco
+        // que prueban las colisiones es exactamente lo que se ve
+        int sz = 2 * (int) Math.ceil(radius * JITTER_MAX) + 2;
+        GreenfootImage img = new GreenfootImage(sz, sz);
+
+        // Polígono dentado: N vértices con jitter radial
+        int verts = Math.max(8, (int) Math.round(radius / 2.5)); // más grande => más vértices
+        int cx = sz / 2, cy = sz / 2;
+
+        int[] xs = new int[verts];
+        int[] ys = new int[verts];
+        double[] lx = new double[verts];
+        double[] ly = new double[verts];
+
+        for (int i = 0; i < verts; i++) {
+            double t = (2 * Math.PI * i) / verts;
+            double jitter = JITTER_MIN + rnd.nextDouble() * (JITTER_MAX - JITTER_MIN);
+            double r = radius * jitter;
+            xs[i] = (int) Math.round(cx + Math.cos(t) * r);
+            ys[i] = (int) Math.round(cy + Math.sin(t) * r);
+            lx[i] = xs[i] - cx;
+            ly[i] = ys[i] - cy;
+        }
+
+        // Relleno + contorno
+        img.setColor(new Color(200, 200, 200));
+        img.fillPolygon(xs, ys, verts);
+        img.setColor(new Color(140, 140, 140));
+        img.drawPolygon(xs, ys, verts);
+
+        // Sombras simples
+        img.setColor(new Color(255, 255, 255, 30));
+        img.drawLine(cx, cy, cx + radius, cy); // brillo
+        img.setColor(new Color(0, 0, 0, 40));
+        img.drawLine(cx, cy, cx - radius, cy); // sombra
+
+        return new RockShape(radius, lx, ly, img);
+    }
+
+    /** Forma ya calculada (la lee AssetBundle de un paquete). */
+    static RockShape of(int radius, double[] vx, double[] vy, GreenfootImage image) {
+        return new RockShape(radius, vx, vy, image);
+    }
+
+    /* ================== Getters ================== */
+    public int getRadius()          { return radius; }
+    public int vertexCount()        { return vx.length; }
+    public double vertexX(int i)    { return vx[i]; }
+    public double vertexY(int i)    { return vy[i]; }
+    public double getHullRadius()   { return hullRadius; }
+    public GreenfootImage getImage(){ return image; }
+}
@@ -0,0 +1,308 @@
+import greenfoot.*;  // GreenfootImage
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Muchas partidas independientes en una sola JVM (servidor de gabinetes): cada
+ * sesión es un AsteroidsWorld sin interfaz con su propia simulación y su propia
+ * entrada (InputQueue.remote, en WorldServices.hosted), avanzado con step() por
+ * un grupo fijo de hilos.
+ *
+ * - Compartido: sprites, rocas y rotaciones ya eran estáticos e inmutables
+ *   (Assets, BatchRenderer); el fondo de estrellas, que cada mundo pintaba para
+ *   sí (2.5 MB), es uno solo para todas (las sesiones no se ven en este equipo;
+ *   el fondo se sigue sorteando, así el RNG y la partida no cambian).
+ * - Ritmo: cada sesión va a FPS propios; la que se atrasa no recupera en ráfaga
+ *   (como Greenfoot, la partida se pone lenta).
+ * - Reparto justo (como CFS): de las sesiones a las que les toca, corre la que
+ *   menos CPU usó (tiempo virtual, medido con la CPU del hilo). Una sesión es de
+ *   un solo hilo a la vez: una lenta ocupa un hilo, nunca más.
+ * - Cuota de CPU por tick: un tick no se puede interrumpir, así que la sesión
+ *   que se pasa espera en proporción (10 veces la cuota → 1 tick cada 10
+ *   frames). Se atrasa ella sola, aunque haya un único hilo.
+ * - Memoria: cada sesión tiene un presupuesto; lo que crece con la partida son
+ *   las partículas (rocas, OVNIs y balas ya tienen tope), así que el presupuesto
+ *   se convierte en un tope de partículas (AsteroidsWorld.setParticleLimit). Con
+ *   el total de sesiones por encima de la memoria de la JVM, open() rechaza.
+ * - Una sesión que falla se cierra sola (el error va a stderr); las demás siguen.
+ *
+ * Uso: java SessionHost [sesiones] [hilos] [segundos] — carga sintética, una
+ * línea por segundo. Desde código: open(), Session.key() desde la red, close().
+ */
+public final class SessionHost implements AutoCloseable {
+
+    public static final int DEFAULT_FPS = 60;
+    public static final long DEFAULT_SESSION_BYTES = 1L << 20;    // 1 MB por sesión
+    public static final int DEFAULT_TICK_BUDGET_US = 4000;         // ~1/4 de frame
+
+    // Heap tras GC (JDK 17, 64 bits): ~90 KB por sesión recién empezada (un mundo
+    // suelto, con sus fondos, ~5 MB) y ~100 B por partícula; con margen para lo
+    // que Greenfoot guarda por actor y por mundo
+    static final long SESSION_BASE_BYTES = 256L << 10;
+    static final long PARTICLE_BYTES = 160;
+    private static final int MIN_PARTICLES = 64;
+
+    /** Una partida del host. */
+    public static final class Session {
+        private final int id;
+        private final AsteroidsWorld world;
+        private final InputQueue input;
+        private final long budgetBytes;
+
+        // Del planificador (protegido por el monitor del host)
+        private long vruntime;          // CPU usada (ns), para el reparto
+        private long due;               // nanoTime desde el que le toca el próximo tick
+        private long started;           // nanoTime del tick en curso
+        private boolean closed;
+
+        // Estadísticas (protegidas por el monitor de la sesión)
+        private long ticks, cpuNanos, lastCpuNanos, late;
+
+        private Session(int id, AsteroidsWorld world, InputQueue input, long budgetBytes) {
+            this.id = id;
+            this.world = world;
+            this.input = input;
+            this.budgetBytes = budgetBytes;
+        }
+
+        public int id() { return id; }
+
+        /**
+         * Tecla de la sesión (nombres de Greenfoot: "left", "space"...; ver
+         * PlayerControls). Siempre desde el mismo hilo (el de su conexión).
+         */
+        public void key(String name, boolean down) { input.push(InputQueue.keyIndex(name), down); }
+
+        /** El mundo de la sesión: lo avanzan los hilos del host; leerlo con la sesión cerrada. */
+        public AsteroidsWorld world() { return world; }
+
+        public long budgetBytes() { return budgetBytes; }
+
+        /** Memoria estimada ahora (base + partículas vivas). */
+        public long estimatedBytes() {
+            return SESSION_BASE_BYTES + (long) world.getParticleCount() * PARTICLE_BYTES;
+        }
+
+        public synchronized long ticks()        { return ticks; }
+        public synchronized long lastCpuNanos() { return lastCpuNanos; }
+        public synchronized long cpuNanos()     { return cpuNanos; }
+        /** Ticks que empezaron más de un frame tarde. */
+        public synchronized long lateTicks()    { return late; }
+    }
+
+    private final long periodNanos, budgetNanos;
+    private final long sessionBytes;
+    private final long maxSessions;
+    private final GreenfootImage backdrop;
+    private final Thread[] workers;
+    private final ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime = cpu.isCurrentThreadCpuTimeSupported();
+
+    // Sesiones esperando su hora (por 'due') y listas (por 'vruntime'); protegido por 'this'
+    private final PriorityQueue<Session> waiting = new PriorityQueue<>(Comparator.comparingLong((Session s) -> s.due));
+    private final PriorityQueue<Session> ready = new PriorityQueue<>(Comparator.comparingLong((Session s) -> s.vruntime));
+    private final List<Session> sessions = new ArrayList<>();
+    private int nextId = 1;
+    private boolean stopped = false;
+
+    public SessionHost(int workers) {
+        this(workers, DEFAULT_FPS, DEFAULT_SESSION_BYTES, DEFAULT_TICK_BUDGET_US);
+    }
+
+    /**
+     * @param workers          hilos que avanzan sesiones (p.ej. núcleos disponibles)
+     * @param fps              ticks por segundo de cada sesión
+     * @param sessionBytes     presupuesto de memoria por sesión
+     * @param tickBudgetMicros CPU por tick de una sesión antes de espaciarla
+     */
+    public SessionHost(int workers, int fps, long sessionBytes, int tickBudgetMicros) {
+        if (sessionBytes < SESSION_BASE_BYTES + MIN_PARTICLES * PARTICLE_BYTES) {
+            throw new IllegalArgumentException("Presupuesto por sesión muy chico: " + sessionBytes + " B");
+        }
+        this.periodNanos = 1_000_000_000L / Math.max(1, fps);
+        this.budgetNanos = Math.max(1, tickBudgetMicros) * 1000L;
+        this.sessionBytes = sessionBytes;
+        this.maxSessions = Runtime.getRuntime().maxMemory() * 3 / 4 / sessionBytes;   // el resto, para la JVM
+        Collision.setCounting(false);     // contador global: sólo tiene sentido con un mundo
+        Assets.warmUp();
+        this.backdrop = Starfield.generate(new Random(1), AsteroidsWorld.WIDTH, AsteroidsWorld.HEIGHT).paint(100);
+        this.workers = new Thread[Math.max(1, workers)];
+        for (int i = 0; i < this.workers.length; i++) {
+            Thread t = new Thread(this::workerLoop, "session-worker-" + i);
+            t.setDaemon(true);
+            this.workers[i] = t;
+            t.start();
+        }
+    }
+
+    /** Sesión nueva con la partida ya empezada (1-4 jugadores en cooperativo). */
+    public Session open(int players) {
+        synchronized (this) {
+            if (stopped) throw new IllegalStateException("El host está cerrado");
+            if (sessions.size() >= maxSessions) {
+                throw new IllegalStateException("Sin memoria para otra sesión (" + sessions.size() + " de "
+                                                + maxSessions + " con " + (sessionBytes >> 10) + " KB cada una)");
+            }
+        }
+        // Fuera del monitor: armar el mundo tarda y no frena a los hilos
+        InputQueue input = InputQueue.remote();
+        AsteroidsWorld world = new AsteroidsWorld(WorldServices.hosted(input, backdrop));
+        world.setParticleLimit((int) Math.max(MIN_PARTICLES, (sessionBytes - SESSION_BASE_BYTES) / PARTICLE_BYTES));
+        world.startCoop(players);
+        synchronized (this) {
+            if (stopped) throw new IllegalStateException("El host está cerrado");
+            Session s = new Session(nextId++, world, input, sessionBytes);
+            s.vruntime = minVruntime();   // entra al par de las demás, sin CPU "ahorrada"
+            s.due = System.nanoTime();
+            sessions.add(s);
+            waiting.add(s);
+            notifyAll();
+            return s;
+        }
+    }
+
+    /** Saca la sesión; si está corriendo, sale al terminar su tick. */
+    public synchronized void close(Session s) {
+        if (s.closed) return;
+        s.closed = true;
+        sessions.remove(s);
+        waiting.remove(s);
+        ready.remove(s);
+    }
+
+    /** Detiene los hilos (esperan a que termine el tick en curso). */
+    @Override
+    public void close() {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public synchronized List<Session> sessions() { return new ArrayList<>(sessions); }
+    public synchronized int sessionCount()       { return sessions.size(); }
+    public long maxSessions()                    { return maxSessions; }
+
+    /* ===================== Planificador ===================== */
+
+    private void workerLoop() {
+        while (true) {
+            Session s = take();
+            if (s == null) return;
+            long t0 = cpuNanos(), w0 = System.nanoTime();
+            boolean failed = false;
+            try {
+                s.world.step();
+            } catch (RuntimeException e) {
+                failed = true;
+                System.err.println("SessionHost: sesión " + s.id + " cerrada por error en el tick " + s.world.getTick());
+                e.printStackTrace();
+            }
+            long used = cpuTime ? cpuNanos() - t0 : System.nanoTime() - w0;
+            synchronized (s) {
+                s.ticks++;
+                s.cpuNanos += used;
+                s.lastCpuNanos = used;
+            }
+            release(s, used, failed);
+        }
+    }
+
+    /** La próxima sesión a correr (espera si ninguna está a tiempo); null al cerrar. */
+    private synchronized Session take() {
+        while (!stopped) {
+            long now = System.nanoTime();
+            while (!waiting.isEmpty() && waiting.peek().due <= now) ready.add(waiting.poll());
+            Session s = ready.poll();
+            if (s != null) {
+                s.started = now;
+                if (now - s.due > periodNanos) {
+                    synchronized (s) { s.late++; }
+                }
+                return s;
+            }
+            long wait = waiting.isEmpty() ? 0 : waiting.peek().due - now;
+            try {
+                if (wait <= 0) wait();
+                else wait(wait / 1_000_000L, (int) (wait % 1_000_000L));
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void release(Session s, long usedNanos, boolean failed) {
+        if (failed) {
+            close(s);
+            return;
+        }
+        if (s.closed) return;
+        s.vruntime += usedNanos;
+        if (usedNanos > budgetNanos) {
+            s.due = s.started + usedNanos / budgetNanos * periodNanos;   // se pasó de la cuota: espera en proporción
+        } else {
+            s.due = Math.max(s.due + periodNanos, System.nanoTime() - periodNanos);   // atrasada: no recupera en ráfaga
+        }
+        waiting.add(s);
+        notifyAll();
+    }
+
+    private long minVruntime() {
+        long min = Long.MAX_VALUE;
+        for (Session s : sessions) min = Math.min(min, s.vruntime);
+        return (min == Long.MAX_VALUE) ? 0 : min;
+    }
+
+    private long cpuNanos() { return cpu.getCurrentThreadCpuTime(); }
+
+    /* ===================== Carga sintética ===================== */
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        try (SessionHost host = new SessionHost(threads)) {
+            List<Session> list = new ArrayList<>();
+            for (int i = 0; i < count; i++) list.add(host.open(1));
+            System.out.println(count + " sesiones en " + threads + " hilos (máximo " + host.maxSessions() + ")");
+            // Cada sesión dispara y gira a su ritmo (un solo hilo alimenta a todas)
+            String[] keys = { "space", "left", "up", "right" };
+            long lastTicks = 0;
+            for (int sec = 0; sec < seconds; sec++) {
+                long end = System.nanoTime() + 1_000_000_000L;
+                for (int frame = 0; System.nanoTime() < end; frame++) {
+                    for (Session s : list) {
+                        String k = keys[(frame / 20 + s.id()) % keys.length];
+                        s.key(k, frame % 20 < 10);
+                    }
+                    Thread.sleep(1000 / DEFAULT_FPS);
+                }
+                long ticks = 0, late = 0, worst = 0, bytes = 0;
+                for (Session s : host.sessions()) {
+                    ticks += s.ticks();
+                    late += s.lateTicks();
+                    worst = Math.max(worst, s.lastCpuNanos());
+                    bytes += s.estimatedBytes();
+                }
+                System.out.printf("%2d s: %.1f ticks/s por sesión, %d tarde en total, último tick más caro %d µs, ~%d MB%n",
+                                  sec + 1, (ticks - lastTicks) / (double) Math.max(1, host.sessionCount()),
+                                  late, worst / 1000, bytes >> 20);
+                lastTicks = ticks;
+            }
+        }
+    }
+}
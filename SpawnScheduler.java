@@ -0,0 +1,85 @@
+import java.util.ArrayDeque;
+
+/**
+ * Trabajo pesado repartido entre frames con un presupuesto fijo de tiempo por
+ * frame: pintar el fondo de una partida nueva, pre-calcular las rotaciones de
+ * los sprites para el dibujo por lotes, etc.
+ * - Cada Job avanza de a trozos chicos (step); run() los llama hasta agotar el
+ *   presupuesto del frame (medido con nanoTime). Siempre da al menos un paso.
+ * - FIFO; submitFirst adelanta lo que se necesita ya (el fondo nuevo).
+ * - Sólo para trabajo que no cambia la simulación (ni usa el RNG del mundo):
+ *   cuánto avanza en un frame depende de la máquina, y la partida no puede.
+ *
+ * Lo corre AsteroidsWorld al final de su act, también en la pantalla de título
+ * y durante el cartel de "Oleada despejada", donde el frame tiene tiempo de sobra.
+ */
+public final class SpawnScheduler {
+
+    /** Un trabajo divisible. */
+    public interface Job {
+        /** Hace un trozo chico de trabajo; true si ya terminó. */
+        boolean step();
+
+        /** false = por ahora no puede avanzar (p.ej. recursos cargando); se salta este frame. */
+        default boolean ready() { return true; }
+    }
+
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private final long budgetNanos;
+
+    private int stepsLastTick = 0;
+    private long nanosLastTick = 0;
+
+    /** @param budgetMicros tiempo máximo por frame (µs) */
+    public SpawnScheduler(int budgetMicros) {
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000L;
+    }
+
+    public void submit(Job job)       { queue.addLast(job); }
+    public void submitFirst(Job job)  { queue.addFirst(job); }
+
+    /** Descarta lo pendiente. */
+    public void clear() { queue.clear(); }
+
+    /** Avanza los trabajos hasta agotar el presupuesto del frame. Devuelve los pasos dados. */
+    public int run() {
+        int steps = 0;
+        long start = System.nanoTime(), now = start;
+        int skipped = 0;   // trabajos seguidos que no estaban listos
+        while (!queue.isEmpty() && skipped < queue.size() && (steps == 0 || now - start < budgetNanos)) {
+            Job job = queue.peekFirst();
+            if (!job.ready()) {
+                queue.addLast(queue.pollFirst());   // al final: los demás sí pueden avanzar
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            if (job.step()) queue.pollFirst();
+            steps++;
+            now = System.nanoTime();
+        }
+        stepsLastTick = steps;
+        nanosLastTick = now - start;
+        return steps;
+    }
+
+    /** Termina todo ya, sin presupuesto (los que no están listos quedan en la cola). */
+    public void finish() {
+        int skipped = 0;
+        while (!queue.isEmpty() && skipped < queue.size()) {
+            Job job = queue.peekFirst();
+            if (!job.ready()) {
+                queue.addLast(queue.pollFirst());
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            while (!job.step()) { }
+            queue.pollFirst();
+        }
+    }
+
+    public int pending()          { return queue.size(); }
+    public int stepsLastTick()    { return stepsLastTick; }
+    public long nanosLastTick()   { return nanosLastTick; }
+}
@@ -0,0 +1,137 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Espectador mínimo de SpectatorServer: se conecta, decodifica las fotos
+ * (inflate + XOR contra la anterior) y expone la última.
+ * - next() bloquea hasta el próximo paquete; false si el servidor cerró.
+ * - Los ticks pueden saltar: fotos descartadas por el juego o saltos del
+ *   servidor al último paquete completo cuando este espectador se atrasa.
+ *
+ * Uso: java SpectatorClient [host] [puerto] [segundos] — imprime una línea por segundo.
+ */
+public final class SpectatorClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final int width, height;
+
+    private final Inflater inflater = new Inflater();
+    private byte[] packed = new byte[16 * 1024];
+    private final byte[] bytes = new byte[4 * (SpectatorServer.HEADER_INTS + 2 * SpectatorServer.MAX_ENTITIES)];
+    private final int[] snap = new int[SpectatorServer.HEADER_INTS + 2 * SpectatorServer.MAX_ENTITIES];
+    private boolean started = false, key = false;
+
+    public SpectatorClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        byte[] magic = new byte[SpectatorServer.MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != SpectatorServer.MAGIC[i]) throw new IOException("No es un servidor de espectadores");
+        }
+        int version = in.readInt();
+        if (version != SpectatorServer.VERSION) throw new IOException("Versión no soportada: " + version);
+        width = in.readInt();
+        height = in.readInt();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = (args.length > 0) ? args[0] : "localhost";
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : 7777;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        try (SpectatorClient c = new SpectatorClient(host, port)) {
+            System.out.println("Conectado: " + c.width() + "x" + c.height());
+            long end = System.nanoTime() + seconds * 1_000_000_000L;
+            long nextLine = System.nanoTime() + 1_000_000_000L;
+            int packets = 0, keys = 0, gaps = 0, lastTick = -1;
+            while (System.nanoTime() < end && c.next()) {
+                packets++;
+                if (c.isKey()) keys++;
+                if (lastTick >= 0 && c.tick() != lastTick + 1) gaps++;
+                lastTick = c.tick();
+                if (System.nanoTime() >= nextLine) {
+                    nextLine += 1_000_000_000L;
+                    System.out.println("tick " + c.tick() + "  paquetes " + packets + " (completos " + keys
+                                       + ")  saltos " + gaps + "  entidades " + c.count()
+                                       + "  puntaje " + c.score() + "  oleada " + c.wave());
+                    packets = keys = gaps = 0;
+                }
+            }
+        }
+    }
+
+    /** Lee y decodifica el próximo paquete; false si el servidor cerró la conexión. */
+    public boolean next() throws IOException {
+        int len;
+        try {
+            len = in.readInt();
+        } catch (EOFException end) {
+            return false;
+        }
+        key = in.readByte() != 0;
+        int ints = in.readInt();
+        int size = len - 5;
+        if (ints < SpectatorServer.HEADER_INTS || ints > snap.length || size < 0) throw new IOException("Paquete corrupto");
+        if (packed.length < size) packed = new byte[Math.max(size, packed.length * 2)];
+        in.readFully(packed, 0, size);
+        if (!started && !key) throw new IOException("La transmisión no empieza en un paquete completo");
+        started = true;
+
+        inflater.reset();
+        inflater.setInput(packed, 0, size);
+        int n = 0;
+        try {
+            while (n < ints * 4 && !inflater.finished()) {
+                int r = inflater.inflate(bytes, n, ints * 4 - n);
+                if (r == 0 && inflater.needsInput()) break;
+                n += r;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Paquete corrupto", e);
+        }
+        if (n != ints * 4) throw new IOException("Paquete corrupto (" + n + " de " + ints * 4 + " bytes)");
+
+        // XOR contra la foto anterior (sólo en el largo que tenía; lo nuevo viene tal cual)
+        int prevLen = SpectatorServer.HEADER_INTS + 2 * snap[4];
+        ByteBuffer b = ByteBuffer.wrap(bytes, 0, n);
+        for (int i = 0; i < ints; i++) {
+            int v = b.getInt();
+            snap[i] = (key || i >= prevLen) ? v : snap[i] ^ v;
+        }
+        return true;
+    }
+
+    public int width()    { return width; }
+    public int height()   { return height; }
+    /** ¿El último paquete era completo? */
+    public boolean isKey() { return key; }
+
+    public int tick()     { return snap[0]; }
+    public int score()    { return snap[1]; }
+    public int wave()     { return snap[2]; }
+    public int lives()    { return snap[3]; }
+    /** Entidades de la última foto. */
+    public int count()    { return snap[4]; }
+
+    /** Tipo de la entidad i (SpectatorServer.SHIP, ROCK...). */
+    public int kind(int i)     { return snap[SpectatorServer.HEADER_INTS + 2 * i] >>> 24; }
+    public int variant(int i)  { return (snap[SpectatorServer.HEADER_INTS + 2 * i] >>> 16) & 0xFF; }
+    public int rotation(int i) { return (short) snap[SpectatorServer.HEADER_INTS + 2 * i]; }
+    public int x(int i)        { return snap[SpectatorServer.HEADER_INTS + 2 * i + 1] >> 16; }
+    public int y(int i)        { return (short) snap[SpectatorServer.HEADER_INTS + 2 * i + 1]; }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        socket.close();
+    }
+}
@@ -0,0 +1,356 @@
+import greenfoot.*;  // Actor
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Transmisión de la partida a espectadores (pantallas de torneo, etc.) por TCP.
+ * - El hilo del juego sólo copia posiciones/rotaciones del registro de actores
+ *   a uno de RAW búferes reservados (publish: sin locks, sin reservar memoria;
+ *   si el servidor va atrasado, el tick se descarta).
+ * - Un único hilo con Selector codifica cada tick UNA vez, completo cada
+ *   KEY_INTERVAL paquetes y XOR contra el anterior en el resto (deflate), en un
+ *   ByteBuffer de sólo lectura que comparten todos los espectadores: a cada
+ *   socket se le escribe una vista (duplicate) del mismo búfer, sin copiarlo.
+ * - Un espectador que queda más de MAX_LAG paquetes atrás salta al último
+ *   paquete completo en vez de acumular atraso; los nuevos empiezan también ahí.
+ * - La cantidad de espectadores no cambia el trabajo del hilo del juego.
+ *
+ * Protocolo: "ASTS" + versión, ancho, alto (ints); luego paquetes: largo (int,
+ * sin contarse a sí mismo), completo (byte 1) o XOR (byte 0), nº de ints de la
+ * foto (int) y los datos deflate. La foto: tick, puntaje, oleada, vidas, nº de
+ * entidades y dos ints por entidad (tipo<<24 | variante<<16 | rotación, x<<16 | y).
+ * SpectatorClient la lee.
+ *
+ * Se activa con AsteroidsWorld.setSpectatorPort(puerto) o -Dasteroids.spectate=puerto;
+ * escucha en loopback salvo -Dasteroids.spectate.bind=dirección.
+ */
+public final class SpectatorServer {
+
+    static final byte[] MAGIC = { 'A', 'S', 'T', 'S' };
+    static final int VERSION = 1;
+
+    // --------- Tipos de entidad ---------
+    public static final int SHIP = 1;          // variante = puesto
+    public static final int ROCK = 2;          // variante = tamaño (ordinal)
+    public static final int BULLET = 3;
+    public static final int UFO_SHIP = 4;      // variante = tipo (ordinal)
+    public static final int ENEMY_BULLET = 5;
+    public static final int PARTICLE = 6;
+
+    /** Ints de la foto antes de las entidades. */
+    static final int HEADER_INTS = 5;
+    /** Entidades por foto (las demás no se transmiten ese tick). */
+    static final int MAX_ENTITIES = 2048;
+
+    /** Un paquete completo cada tanto: punto de entrada y de salto para espectadores. */
+    static final int KEY_INTERVAL = 30;
+    /** Atraso (en paquetes) a partir del cual un espectador salta al último completo. */
+    static final int MAX_LAG = 2 * KEY_INTERVAL;
+
+    private static final int RAW = 4;          // fotos en vuelo del juego al servidor
+    private static final int RING = 256;       // paquetes codificados que se conservan
+    private static final int SEND_BUFFER = 32 * 1024;  // poco en el kernel: el atraso se ve aquí
+    private static SpectatorServer current;    // servidor abierto (uno por JVM)
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // --------- Fotos crudas: SPSC (juego → servidor) ---------
+    private final int[][] raw = new int[RAW][HEADER_INTS + 2 * MAX_ENTITIES];
+    private final AtomicLong published = new AtomicLong();   // productor
+    private final AtomicLong consumed = new AtomicLong();    // servidor
+    private long cachedConsumed = 0;           // copia local del productor
+    private long dropped = 0;                  // sólo lo toca el productor
+
+    // --------- Sólo el hilo del servidor ---------
+    private final ByteBuffer header;
+    private final ByteBuffer[] packets = new ByteBuffer[RING];  // por número de paquete
+    private long newest = -1, lastKey = -1;
+    private final int[] prev = new int[HEADER_INTS + 2 * MAX_ENTITIES];
+    private int prevLen = 0;
+    private final ByteBuffer pixels = ByteBuffer.allocate(4 * (HEADER_INTS + 2 * MAX_ENTITIES));
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] out = new byte[16 * 1024];
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    // Estadísticas (las lee cualquier hilo)
+    private volatile int viewerCount = 0;
+    private final AtomicLong skips = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /** Un espectador conectado (sólo lo toca el hilo del servidor). */
+    private static final class Viewer {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer pending;         // vista del paquete a medio escribir (o la cabecera)
+        long next = -1;             // próximo paquete; -1 = empieza en el último completo
+
+        Viewer(SocketChannel channel) { this.channel = channel; }
+    }
+
+    private SpectatorServer(int width, int height, ServerSocketChannel server, Selector selector) {
+        this.server = server;
+        this.selector = selector;
+        ByteBuffer h = ByteBuffer.allocate(MAGIC.length + 12);
+        h.put(MAGIC).putInt(VERSION).putInt(width).putInt(height).flip();
+        this.header = h.asReadOnlyBuffer();
+        this.thread = new Thread(this::serve, "spectator-server");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Abre el servidor en 'port' (cierra el anterior, si lo había).
+     * Nunca falla: ante cualquier problema devuelve null.
+     */
+    public static synchronized SpectatorServer open(int width, int height, int port) {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        ServerSocketChannel ch = null;
+        try {
+            String bind = System.getProperty("asteroids.spectate.bind");
+            InetAddress addr = (bind != null) ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress();
+            Selector selector = Selector.open();
+            ch = ServerSocketChannel.open();
+            ch.bind(new InetSocketAddress(addr, port));
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_ACCEPT);
+            current = new SpectatorServer(width, height, ch, selector);
+            return current;
+        } catch (IOException | SecurityException e) {
+            System.err.println("SpectatorServer: desactivado (" + e + ")");
+            if (ch != null) try { ch.close(); } catch (IOException ignored) { }
+            return null;
+        }
+    }
+
+    /** Puerto en el que escucha (útil si se abrió con 0). */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /* ===================== Productor (hilo del juego) ===================== */
+
+    /** Copia la foto del tick. Nunca bloquea: si no hay búfer libre, la descarta. */
+    public void publish(AsteroidsWorld world) {
+        long p = published.get();
+        if (p - cachedConsumed >= RAW) {
+            cachedConsumed = consumed.get();
+            if (p - cachedConsumed >= RAW) {
+                dropped++;
+                return;
+            }
+        }
+        int[] snap = raw[(int) (p % RAW)];
+        int n = encode(world.actors(), snap, HEADER_INTS, MAX_ENTITIES);
+        snap[0] = world.getTick();
+        snap[1] = world.getScore();
+        snap[2] = world.getWave();
+        snap[3] = world.getLives();
+        snap[4] = n;
+        published.lazySet(p + 1);   // publica la foto (store-release)
+        selector.wakeup();
+    }
+
+    /**
+     * Dos ints por entidad (tipo<<24 | variante<<16 | rotación, x<<16 | y) desde
+     * dst[off], hasta 'max' entidades; devuelve cuántas escribió. Lo comparte
+     * FlightRecorder.
+     */
+    static int encode(List<Actor> actors, int[] dst, int off, int max) {
+        int n = 0;
+        for (int i = 0; i < actors.size() && n < max; i++) {
+            Actor a = actors.get(i);
+            int kind, variant = 0;
+            if (a instanceof Asteroid)         { kind = ROCK; variant = ((Asteroid) a).getSizeType().ordinal(); }
+            else if (a instanceof Particle)    kind = PARTICLE;
+            else if (a instanceof Bullet)      kind = BULLET;
+            else if (a instanceof EnemyBullet) kind = ENEMY_BULLET;
+            else if (a instanceof UFO)         { kind = UFO_SHIP; variant = ((UFO) a).getType().ordinal(); }
+            else if (a instanceof PlayerShip)  { kind = SHIP; variant = ((PlayerShip) a).getSlot(); }
+            else continue;
+            int j = off + 2 * n++;
+            dst[j]     = (kind << 24) | (variant << 16) | (a.getRotation() & 0xFFFF);
+            dst[j + 1] = (a.getX() << 16) | (a.getY() & 0xFFFF);
+        }
+        return n;
+    }
+
+    /** Fotos descartadas porque el servidor iba atrasado. */
+    public long dropped() { return dropped; }
+
+    /* ===================== Consultas ===================== */
+
+    public int viewers()      { return viewerCount; }
+    /** Veces que un espectador atrasado saltó al último paquete completo. */
+    public long skips()       { return skips.get(); }
+    public long bytesSent()   { return bytesSent.get(); }
+
+    /** Cierra el servidor y desconecta a todos. */
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ===================== Servidor (hilo propio) ===================== */
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey k : selector.selectedKeys()) {
+                    if (!k.isValid()) continue;
+                    if (k.isAcceptable()) {
+                        accept();
+                    } else {
+                        Viewer v = (Viewer) k.attachment();
+                        if (k.isReadable()) readOrDrop(v);
+                        if (k.isValid() && k.isWritable()) pump(v);
+                    }
+                }
+                selector.selectedKeys().clear();
+                if (encodePending()) {
+                    for (int i = viewers.size() - 1; i >= 0; i--) pump(viewers.get(i));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("SpectatorServer: error (" + e + ")");
+        } finally {
+            for (Viewer v : viewers) closeQuietly(v.channel);
+            viewers.clear();
+            viewerCount = 0;
+            closeQuietly(server);
+            try { selector.close(); } catch (IOException ignored) { }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            ch.socket().setSendBufferSize(SEND_BUFFER);
+            Viewer v = new Viewer(ch);
+            v.pending = header.duplicate();
+            v.key = ch.register(selector, SelectionKey.OP_READ, v);
+            viewers.add(v);
+            viewerCount = viewers.size();
+            pump(v);
+        }
+    }
+
+    /** Los espectadores no envían nada: leer sólo sirve para detectar el cierre. */
+    private void readOrDrop(Viewer v) {
+        try {
+            scratch.clear();
+            if (v.channel.read(scratch) < 0) drop(v);
+        } catch (IOException e) {
+            drop(v);
+        }
+    }
+
+    /** Escribe al espectador lo que acepte su socket, sin bloquear. */
+    private void pump(Viewer v) {
+        if (!v.key.isValid()) return;
+        try {
+            while (true) {
+                if (v.pending == null) {
+                    if (v.next < 0) {
+                        if (lastKey < 0) break;               // aún no hay nada que ver
+                        v.next = lastKey;
+                    } else if (v.next > newest) {
+                        break;                                // al día
+                    } else if (newest - v.next >= MAX_LAG) {
+                        v.next = lastKey;                     // atrasado: al último completo
+                        skips.incrementAndGet();
+                    }
+                    v.pending = packets[(int) (v.next % RING)].duplicate();
+                    v.next++;
+                }
+                int n = v.channel.write(v.pending);
+                bytesSent.addAndGet(n);
+                if (v.pending.hasRemaining()) {
+                    v.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                v.pending = null;
+            }
+            v.key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            drop(v);
+        }
+    }
+
+    private void drop(Viewer v) {
+        v.key.cancel();
+        closeQuietly(v.channel);
+        viewers.remove(v);
+        viewerCount = viewers.size();
+    }
+
+    /** Codifica las fotos publicadas; true si hay paquetes nuevos. */
+    private boolean encodePending() {
+        long c = consumed.get(), p = published.get();
+        if (c == p) return false;
+        for (; c < p; c++) {
+            encode(raw[(int) (c % RAW)]);
+            consumed.lazySet(c + 1);   // libera el búfer para el productor
+        }
+        return true;
+    }
+
+    private void encode(int[] snap) {
+        long seq = newest + 1;
+        boolean key = seq % KEY_INTERVAL == 0;
+        int len = HEADER_INTS + 2 * snap[4];
+        pixels.clear();
+        if (key) {
+            for (int i = 0; i < len; i++) pixels.putInt(snap[i]);
+        } else {
+            for (int i = 0; i < len; i++) pixels.putInt(i < prevLen ? snap[i] ^ prev[i] : snap[i]);
+        }
+        System.arraycopy(snap, 0, prev, 0, len);
+        prevLen = len;
+
+        deflater.reset();
+        deflater.setInput(pixels.array(), 0, len * 4);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == out.length) out = Arrays.copyOf(out, out.length * 2);
+            size += deflater.deflate(out, size, out.length - size);
+        }
+
+        ByteBuffer packet = ByteBuffer.allocate(4 + 1 + 4 + size);
+        packet.putInt(1 + 4 + size).put((byte) (key ? 1 : 0)).putInt(len).put(out, 0, size).flip();
+        packets[(int) (seq % RING)] = packet.asReadOnlyBuffer();   // inmutable: se comparte
+        newest = seq;
+        if (key) lastKey = seq;
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try { c.close(); } catch (IOException ignored) { }
+    }
+}
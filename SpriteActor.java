@@ -0,0 +1,55 @@
+import greenfoot.*;  // Actor, GreenfootImage
+
+/**
+ * Base de los actores del juego que pueden dibujarse por lotes (ver BatchRenderer).
+ * - setImage guarda el sprite lógico (compartido, de Assets) en getSprite().
+ * - En modo por lotes el actor le entrega a Greenfoot una imagen vacía, así
+ *   Greenfoot no lo compone: lo pinta BatchRenderer en su propio lienzo.
+ *
+ * AsteroidsWorld marca/desmarca el modo al registrar cada actor.
+ */
+public abstract class SpriteActor extends Actor {
+
+    /** Imagen que ve Greenfoot mientras el actor se dibuja por lotes. */
+    private static final GreenfootImage HIDDEN = new GreenfootImage(1, 1);
+
+    // Sin inicializadores: Actor() puede llamar a setImage antes que ellos
+    private GreenfootImage sprite;
+    private boolean batched;
+
+    // Posiciones en los registros de AsteroidsWorld (las asigna al dar de alta):
+    // así las bajas no buscan el actor recorriendo la lista.
+    int paintSlot;   // en actors(), el orden de pintado
+    int kindSlot;    // en la lista de su tipo (asteroids(), bullets()...)
+    int claimedInDrain;   // último drenado de GameEvents que lo resolvió
+
+    @Override
+    public void setImage(GreenfootImage image) {
+        sprite = image;
+        super.setImage(batched ? HIDDEN : image);
+    }
+
+    /** Sprite lógico actual (el que Greenfoot pintaría fuera del modo por lotes). */
+    public GreenfootImage getSprite() { return sprite; }
+
+    /**
+     * Desplaza el actor en pantalla (cámara del modo arena). Los actores con
+     * posición subpíxel lo redefinen para mover también sus coordenadas propias.
+     */
+    void scrollBy(double dx, double dy) {
+        setLocation((int) Math.round(getX() + dx), (int) Math.round(getY() + dy));
+    }
+
+    /**
+     * Cancela los temporizadores propios (ver TimerWheel). Lo llama AsteroidsWorld
+     * al sacar el actor del mundo, por ejemplo antes de devolverlo a su pool.
+     */
+    void stopTimers(TimerWheel timers) {}
+
+    /** Activa/desactiva el dibujo por lotes para este actor. */
+    void setBatched(boolean on) {
+        if (on == batched) return;
+        batched = on;
+        super.setImage(on ? HIDDEN : sprite);
+    }
+}
@@ -0,0 +1,174 @@
+import greenfoot.*;  // GreenfootImage, Color
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Fondo de estrellas y nebulosas del mundo.
+ * - generate() sortea todo con el RNG del mundo (siempre en el mismo orden);
+ *   pintarlo no usa el RNG, así se puede pintar después, a otra escala o de a
+ *   trozos (painter, un Job de SpawnScheduler) sin cambiar la partida.
+ * - Las nebulosas también se pintan del otro lado de los bordes: el fondo se
+ *   puede repetir en mosaico (modo arena).
+ * - Se pinta directo en los píxeles de la imagen: por GreenfootImage cada línea
+ *   translúcida reservaba un Graphics2D y máscaras (~0.5 MB por frame mientras
+ *   se pintaba un fondo nuevo; lo encontró FrameFuzzer).
+ */
+final class Starfield {
+
+    private static final int STARS = 420, HAZES = 12;
+    private static final int LINES_PER_STEP = 24;   // líneas de nebulosa por paso del painter
+    private static final int STARS_PER_STEP = 140;
+
+    private final int width, height;
+    private final int[] stars = new int[STARS * 3];        // x, y, grande
+    private final int[] haze = new int[HAZES * 3];         // centro x, y, radio
+    private final java.awt.Color[] hazeColors = new java.awt.Color[HAZES];
+
+    private Starfield(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    static Starfield generate(Random rng, int width, int height) {
+        Starfield f = new Starfield(width, height);
+        for (int i = 0; i < STARS; i++) {
+            f.stars[i * 3]     = rng.nextInt(width);
+            f.stars[i * 3 + 1] = rng.nextInt(height);
+            int b = 150 + rng.nextInt(106); // brillo 150-255
+            f.stars[i * 3 + 2] = (rng.nextFloat() < 0.07f) ? 1 : 0;
+        }
+        for (int i = 0; i < HAZES; i++) {
+            f.haze[i * 3]     = rng.nextInt(width);
+            f.haze[i * 3 + 1] = rng.nextInt(height);
+            f.haze[i * 3 + 2] = 80 + rng.nextInt(140);
+            int alpha = 20 + rng.nextInt(30);
+            f.hazeColors[i] = new java.awt.Color(120 + rng.nextInt(80), 120 + rng.nextInt(80), 200, alpha);
+        }
+        return f;
+    }
+
+    /** Pinta todo ahora, al 'percent' % del tamaño del mundo. */
+    GreenfootImage paint(int percent) {
+        Painter p = painter(percent);
+        while (!p.step()) { }
+        return p.image();
+    }
+
+    /** Pintor de a trozos; la imagen está completa cuando step() devuelve true. */
+    Painter painter(int percent) {
+        return new Painter(percent);
+    }
+
+    final class Painter implements SpawnScheduler.Job {
+        private final double k;
+        private final GreenfootImage img;
+        private final int w, h, side, wide;
+        private final int[] pixels;          // null = formato raro: se pinta con Graphics2D
+        private int star = 0;
+        private int hazeIndex = 0, tile = 0, line = Integer.MIN_VALUE;   // nebulosa, copia (3x3) y línea en curso
+
+        private Painter(int percent) {
+            k = percent / 100.0;
+            w = Math.max(1, (int) Math.round(width * k));
+            h = Math.max(1, (int) Math.round(height * k));
+            img = new GreenfootImage(w, h);
+            img.setColor(Color.BLACK);
+            img.fill();
+            side = Math.max(1, (int) Math.round(2 * k));
+            wide = Math.max(1, (int) Math.round(3 * k));
+            BufferedImage awt = img.getAwtImage();
+            int type = awt.getType();
+            pixels = (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE
+                      || type == BufferedImage.TYPE_INT_RGB)
+                     ? ((DataBufferInt) awt.getRaster().getDataBuffer()).getData() : null;
+        }
+
+        GreenfootImage image() { return img; }
+
+        @Override
+        public boolean step() {
+            if (star == STARS && hazeIndex == HAZES) return true;
+            Graphics2D g = (pixels == null) ? img.getAwtImage().createGraphics() : null;
+            try {
+                return step(g);
+            } finally {
+                if (g != null) g.dispose();
+            }
+        }
+
+        private boolean step(Graphics2D g) {
+            // Estrellas
+            if (star < STARS) {
+                if (g != null) g.setColor(java.awt.Color.WHITE);
+                int end = Math.min(STARS, star + STARS_PER_STEP);
+                for (; star < end; star++) {
+                    int x = (int) Math.round(stars[star * 3] * k), y = (int) Math.round(stars[star * 3 + 1] * k);
+                    int sw = (stars[star * 3 + 2] != 0) ? wide : side;
+                    if (g != null) g.fillRect(x, y, sw, side);
+                    else for (int dy = 0; dy < side; dy++) span(x, x + sw - 1, y + dy, 0xFFFFFFFF);
+                }
+                return false;
+            }
+
+            // Nebulosas: cada una con sus copias del otro lado de los bordes, de a pocas líneas
+            int budget = LINES_PER_STEP;
+            while (hazeIndex < HAZES) {
+                int ox = (tile % 3 - 1) * width, oy = (tile / 3 - 1) * height;
+                int cx = haze[hazeIndex * 3] + ox, cy = haze[hazeIndex * 3 + 1] + oy, rad = haze[hazeIndex * 3 + 2];
+                if (cx + rad < 0 || cx - rad >= width || cy + rad < 0 || cy - rad >= height) {
+                    nextTile();
+                    continue;
+                }
+                int r = (int) Math.round(rad * k);
+                int sx = (int) Math.round(cx * k), sy = (int) Math.round(cy * k);
+                java.awt.Color c = hazeColors[hazeIndex];
+                if (line == Integer.MIN_VALUE) line = -r;
+                if (g != null) g.setColor(c);
+                for (; line <= r; line++) {
+                    if (budget-- == 0) return false;
+                    int span = (int) Math.sqrt(r * r - line * line);
+                    if (g != null) g.drawLine(sx - span, sy + line, sx + span, sy + line);
+                    else span(sx - span, sx + span, sy + line, c.getRGB());
+                }
+                nextTile();
+            }
+            return true;
+        }
+
+        /**
+         * Línea horizontal [x0, x1] con 'argb' encima (SrcOver), directo en los
+         * píxeles: con color translúcido, Java2D reserva ~1.7 KB en cada llamada.
+         * El fondo es opaco, así que el resultado también (igual en ARGB y ARGB_PRE).
+         */
+        private void span(int x0, int x1, int y, int argb) {
+            if (y < 0 || y >= h) return;
+            x0 = Math.max(0, x0);
+            x1 = Math.min(w - 1, x1);
+            int a = argb >>> 24, ia = 255 - a;
+            int sr = mul8(a, (argb >> 16) & 0xFF), sg = mul8(a, (argb >> 8) & 0xFF), sb = mul8(a, argb & 0xFF);
+            for (int i = y * w + x0, end = y * w + x1; i <= end; i++) {
+                int d = pixels[i];
+                int r = sr + mul8(ia, (d >> 16) & 0xFF);
+                int gr = sg + mul8(ia, (d >> 8) & 0xFF);
+                int b = sb + mul8(ia, d & 0xFF);
+                pixels[i] = 0xFF000000 | (r << 16) | (gr << 8) | b;
+            }
+        }
+
+        private void nextTile() {
+            line = Integer.MIN_VALUE;
+            if (++tile == 9) {
+                tile = 0;
+                hazeIndex++;
+            }
+        }
+    }
+
+    /** a*b/255 redondeado, como las tablas de Java2D (mismo resultado que drawLine). */
+    private static int mul8(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro binario de telemetría de la sesión (oleadas, vidas, puntaje, OVNIs,
+ * hipersaltos y tiempos de frame) sin bloquear nunca el hilo del juego.
+ * - El juego escribe registros de tamaño fijo en un ring buffer de un solo
+ *   productor (record: sin locks, sin reservar memoria; si está lleno, descarta).
+ * - Un hilo escritor en segundo plano los vacía por lotes y los codifica en
+ *   formato compacto (varints) a disco vía FileChannel.
+ * - TelemetryReader convierte el archivo a CSV fuera de línea.
+ *
+ * Formato del archivo: cabecera "AST1" + versión (1 byte) + epoch ms (8 bytes),
+ * luego registros: tipo (1 byte), delta de frame (varint), a y b (zigzag varint).
+ *
+ * Apagada por defecto: se activa con -Dasteroids.telemetry=on; los archivos van
+ * a telemetry/.
+ */
+public final class Telemetry {
+
+    // --------- Tipos de registro ---------
+    public static final int WAVE_START = 1;   // a=oleada, b=asteroides lanzados
+    public static final int WAVE_CLEAR = 2;   // a=oleada
+    public static final int LIFE_LOST  = 3;   // a=vidas restantes
+    public static final int SCORE      = 4;   // a=puntos sumados, b=total
+    public static final int UFO_SPAWN  = 5;   // a=tipo (ordinal)
+    public static final int UFO_KILL   = 6;   // a=tipo (ordinal), b=0 bala del jugador / 1 asteroide / 2 embestida
+    public static final int HYPERSPACE = 7;
+    public static final int FRAME_TIME = 8;   // a=microsegundos desde el frame anterior
+    public static final int DROPPED    = 9;   // a=registros descartados por ring lleno
+
+    static final String[] NAMES = {
+        "?", "wave_start", "wave_clear", "life_lost", "score",
+        "ufo_spawn", "ufo_kill", "hyperspace", "frame_time", "dropped"
+    };
+
+    static final byte[] MAGIC = { 'A', 'S', 'T', '1' };
+    static final int VERSION = 1;
+
+    /** Sesión que no registra nada (telemetría desactivada o sin disco). */
+    public static final Telemetry DISABLED = new Telemetry();
+
+    private static final int CAPACITY = 1 << 14;           // registros en el ring (potencia de 2)
+    private static final int MAX_RECORD_BYTES = 1 + 3 * 10; // tipo + tres varints de 64 bits
+    private static Telemetry current;                        // sesión abierta (una por JVM)
+
+    // --------- Ring buffer SPSC ---------
+    private final long[] ring;                 // 2 longs por registro
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // siguiente a escribir (productor)
+    private final AtomicLong tail = new AtomicLong(); // siguiente a leer (escritor)
+    private long cachedTail = 0;               // copia local del productor
+    private long dropped = 0;                  // sólo lo toca el productor
+
+    // --------- Escritor ---------
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean running;
+
+    private Telemetry() {
+        this.ring = null;
+        this.mask = 0;
+        this.channel = null;
+        this.writer = null;
+    }
+
+    private Telemetry(FileChannel channel) {
+        this.ring = new long[CAPACITY * 2];
+        this.mask = CAPACITY - 1;
+        this.channel = channel;
+        this.running = true;
+        this.writer = new Thread(this::writerLoop, "telemetry-writer");
+        this.writer.setDaemon(true);
+        this.writer.setPriority(Thread.MIN_PRIORITY);
+        this.writer.start();
+    }
+
+    /**
+     * Abre una sesión nueva (cierra la anterior, si la había).
+     * Nunca falla: ante cualquier problema devuelve DISABLED.
+     */
+    public static synchronized Telemetry openSession() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        if (!"on".equalsIgnoreCase(System.getProperty("asteroids.telemetry", "off"))) return DISABLED;
+        try {
+            Path dir = Paths.get("telemetry");
+            Files.createDirectories(dir);
+            long now = System.currentTimeMillis();
+            Path file = dir.resolve("session-" + now + ".bin");
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1 + 8);
+            header.put(MAGIC).put((byte) VERSION).putLong(now).flip();
+            while (header.hasRemaining()) ch.write(header);
+            current = new Telemetry(ch);
+            return current;
+        } catch (IOException | SecurityException e) {
+            System.err.println("Telemetry: desactivada (" + e + ")");
+            return DISABLED;
+        }
+    }
+
+    public boolean isEnabled() { return ring != null; }
+
+    /* ===================== Productor (hilo del juego) ===================== */
+
+    /** Encola un registro. Nunca bloquea: si el ring está lleno, lo descarta. */
+    public void record(int type, int frame, int a, int b) {
+        if (ring == null) return;
+        long h = head.get();
+        if (h - cachedTail >= CAPACITY) {
+            cachedTail = tail.get();
+            if (h - cachedTail >= CAPACITY) {
+                dropped++;
+                return;
+            }
+        }
+        int i = (int) (h & mask) << 1;
+        ring[i]     = ((long) type << 32) | (frame & 0xFFFFFFFFL);
+        ring[i + 1] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+        head.lazySet(h + 1); // publica el registro (store-release)
+    }
+
+    /** Cierra la sesión: el escritor vacía lo pendiente y cierra el archivo. */
+    public void close() {
+        if (ring == null || !running) return;
+        if (dropped > 0) {
+            long d = dropped;
+            dropped = 0;
+            record(DROPPED, 0, (int) Math.min(Integer.MAX_VALUE, d), 0);
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ===================== Escritor (hilo propio) ===================== */
+
+    private void writerLoop() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        int lastFrame = 0;
+        try {
+            while (true) {
+                long t = tail.get();
+                long h = head.get();
+                if (t == h) {
+                    if (!running) break;
+                    LockSupport.parkNanos(5_000_000L); // 5 ms: lotes grandes, CPU casi nula
+                    continue;
+                }
+                while (t < h && buf.remaining() >= MAX_RECORD_BYTES) {
+                    int i = (int) (t & mask) << 1;
+                    long w0 = ring[i], w1 = ring[i + 1];
+                    int frame = (int) w0;
+                    buf.put((byte) (w0 >>> 32));
+                    putVarLong(buf, zigzag(frame - lastFrame));
+                    putVarLong(buf, zigzag((int) (w1 >> 32)));
+                    putVarLong(buf, zigzag((int) w1));
+                    lastFrame = frame;
+                    t++;
+                }
+                tail.lazySet(t); // libera los huecos para el productor
+                buf.flip();
+                while (buf.hasRemaining()) channel.write(buf);
+                buf.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Telemetry: error de escritura (" + e + ")");
+        } finally {
+            try { channel.close(); } catch (IOException ignored) { }
+        }
+    }
+
+    static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+    static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static void putVarLong(ByteBuffer buf, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Conversor fuera de línea de archivos de Telemetry a CSV.
+ * Columnas: frame,event,a,b (el epoch de inicio de sesión va en un comentario).
+ *
+ * Uso: java TelemetryReader telemetry/session-XXXX.bin [salida.csv]
+ * o desde Greenfoot: clic derecho → toCsv("telemetry/session-XXXX.bin").
+ */
+public final class TelemetryReader {
+
+    private TelemetryReader() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java TelemetryReader <session.bin> [salida.csv]");
+            return;
+        }
+        Path in = Paths.get(args[0]);
+        Path out = (args.length > 1) ? Paths.get(args[1]) : csvPathFor(in);
+        convert(in, out);
+        System.out.println("CSV escrito en " + out);
+    }
+
+    /** Convierte el archivo y devuelve la ruta del CSV (junto al .bin). */
+    public static String toCsv(String binFile) throws IOException {
+        Path in = Paths.get(binFile);
+        Path out = csvPathFor(in);
+        convert(in, out);
+        return out.toString();
+    }
+
+    public static void convert(Path in, Path out) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(in)));
+             PrintWriter csv = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+
+            byte[] magic = new byte[Telemetry.MAGIC.length];
+            data.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != Telemetry.MAGIC[i]) throw new IOException("No es un archivo de telemetría: " + in);
+            }
+            int version = data.readUnsignedByte();
+            if (version != Telemetry.VERSION) throw new IOException("Versión no soportada: " + version);
+            long startMillis = data.readLong();
+
+            csv.println("# session_start_epoch_ms=" + startMillis);
+            csv.println("frame,event,a,b");
+
+            long frame = 0;
+            while (true) {
+                int type = data.read();
+                if (type < 0) break; // fin de archivo
+                try {
+                    frame += Telemetry.unzigzag(readVarLong(data));
+                    long a = Telemetry.unzigzag(readVarLong(data));
+                    long b = Telemetry.unzigzag(readVarLong(data));
+                    String name = (type < Telemetry.NAMES.length) ? Telemetry.NAMES[type] : ("type_" + type);
+                    csv.println(frame + "," + name + "," + a + "," + b);
+                } catch (EOFException truncated) {
+                    break; // último registro a medio escribir (sesión cortada)
+                }
+            }
+        }
+    }
+
+    private static Path csvPathFor(Path in) {
+        String name = in.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0) ? name.substring(0, dot) : name;
+        return in.resolveSibling(base + ".csv");
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+            if (shift > 63) throw new IOException("varint demasiado largo");
+        }
+    }
+}
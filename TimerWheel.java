@@ -0,0 +1,223 @@
+import java.util.Arrays;
+
+/**
+ * Cuentas atrás de todo el juego en una rueda de tiempos jerárquica: vida de
+ * balas y partículas, recargas de la nave y del OVNI, respawn, pausa entre oleadas.
+ * - Cada temporizador vence en un tick y entonces llama a su Listener con su tipo.
+ *   advance() sólo visita los que vencen en ese tick: el costo no depende de
+ *   cuántos temporizadores hay vivos.
+ * - Tres niveles: 256 ranuras de 1 tick, 64 de 256 ticks y 64 de 16384 ticks.
+ *   Al dar la vuelta un nivel, la ranura siguiente del de arriba baja al de abajo.
+ * - Los que vencen en el mismo tick lo hacen en el orden en que se programaron.
+ * - Nodos en arrays paralelos con lista libre: no reserva memoria en régimen estable.
+ * - Un handle incluye la generación del nodo: cancelar uno ya vencido o
+ *   cancelado no hace nada, aunque el nodo se haya reutilizado.
+ *
+ * Lo avanza AsteroidsWorld una vez por tick, al final de su act: lo que vence en
+ * el tick N se ve en el act de los actores de ese mismo tick, igual que antes
+ * cuando cada uno descontaba su contador.
+ */
+public final class TimerWheel {
+
+    /** Recibe los vencimientos; 'kind' es el que se pasó a schedule. */
+    public interface Listener {
+        void onTimer(int kind);
+    }
+
+    /** Handle que no corresponde a ningún temporizador. */
+    public static final int NONE = 0;
+    /** Espera máxima en ticks (~4.8 h a 60 FPS). */
+    public static final int MAX_DELAY = (1 << 20) - 1;
+
+    private static final int L0 = 256, L1 = 64, L2 = 64;
+    private static final int L1_BASE = L0, L2_BASE = L0 + L1;
+    private static final int L1_SHIFT = 8, L2_SHIFT = 14;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GEN_MASK = (1 << (32 - INDEX_BITS)) - 1;
+
+    // Ranuras: listas doblemente enlazadas (para cancelar en O(1)), con cola para orden FIFO
+    private final int[] head = new int[L0 + L1 + L2];
+    private final int[] tail = new int[L0 + L1 + L2];
+
+    // Nodos (arrays paralelos)
+    private Listener[] listener;
+    private int[] kind, due, next, prev, slot, gen;
+    private int free = -1;          // lista libre (enlazada por next)
+    private int used = 0;           // nodos creados alguna vez
+
+    private int now = 0;
+    private int pending = 0;
+    private int firedLastTick = 0;
+
+    public TimerWheel(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        listener = new Listener[cap];
+        kind = new int[cap];
+        due = new int[cap];
+        next = new int[cap];
+        prev = new int[cap];
+        slot = new int[cap];
+        gen = new int[cap];
+        Arrays.fill(head, -1);
+        Arrays.fill(tail, -1);
+    }
+
+    /* ===================== Programar / cancelar ===================== */
+
+    /**
+     * Llama a l.onTimer(kind) dentro de 'delay' ticks (1..MAX_DELAY; 0 cuenta como 1).
+     * @return handle para cancel/isPending/remaining
+     */
+    public int schedule(Listener l, int kind, int delay) {
+        if (l == null) throw new IllegalArgumentException("listener null");
+        if (delay > MAX_DELAY) throw new IllegalArgumentException("delay > MAX_DELAY: " + delay);
+        int i = allocate();
+        listener[i] = l;
+        this.kind[i] = kind;
+        due[i] = now + Math.max(1, delay);
+        place(i);
+        pending++;
+        return (gen[i] << INDEX_BITS) | i;
+    }
+
+    /** Cancela el temporizador; false si ya había vencido o no existe. */
+    public boolean cancel(int handle) {
+        int i = live(handle);
+        if (i < 0) return false;
+        unlink(i);
+        release(i);
+        return true;
+    }
+
+    /** ¿Sigue programado (ni vencido ni cancelado)? */
+    public boolean isPending(int handle) {
+        return live(handle) >= 0;
+    }
+
+    /** Ticks que faltan para que venza, o -1 si no está programado. */
+    public int remaining(int handle) {
+        int i = live(handle);
+        return (i < 0) ? -1 : due[i] - now;
+    }
+
+    /** Cancela todos (los handles viejos quedan inválidos). */
+    public void clear() {
+        for (int s = 0; s < head.length; s++) {
+            for (int i = head[s]; i >= 0; ) {
+                int n = next[i];
+                release(i);
+                i = n;
+            }
+            head[s] = tail[s] = -1;
+        }
+    }
+
+    /* ===================== Avance ===================== */
+
+    /** Avanza un tick y llama a los que vencen en él. Devuelve cuántos vencieron. */
+    public int advance() {
+        now++;
+        if ((now & (L0 - 1)) == 0) {
+            // Primero el nivel alto: puede bajar temporizadores a la ranura de L1 que sigue
+            if ((now & ((1 << L2_SHIFT) - 1)) == 0) cascade(L2_BASE + ((now >>> L2_SHIFT) & (L2 - 1)));
+            cascade(L1_BASE + ((now >>> L1_SHIFT) & (L1 - 1)));
+        }
+        int s = now & (L0 - 1);
+        int fired = 0;
+        // Uno a uno desde la cabeza: un callback puede programar o cancelar otros
+        // (ninguno nuevo cae en esta ranura: la espera mínima es 1 tick)
+        for (int i = head[s]; i >= 0; i = head[s]) {
+            unlink(i);
+            Listener l = listener[i];
+            int k = kind[i];
+            release(i);        // antes del callback: puede reprogramar con el mismo nodo
+            l.onTimer(k);
+            fired++;
+        }
+        firedLastTick = fired;
+        return fired;
+    }
+
+    /** Baja los temporizadores de una ranura alta a la que les toca ahora. */
+    private void cascade(int s) {
+        for (int i = head[s]; i >= 0; i = head[s]) {
+            unlink(i);
+            place(i);
+        }
+    }
+
+    /* ===================== Consultas ===================== */
+
+    /** Tick actual de la rueda (avances desde que se creó). */
+    public int now()              { return now; }
+    /** Temporizadores programados. */
+    public int pending()          { return pending; }
+    /** Los que vencieron en el último advance (PerfOverlay). */
+    public int firedLastTick()    { return firedLastTick; }
+
+    /* ===================== Nodos ===================== */
+
+    private void place(int i) {
+        int d = due[i] - now;
+        int s;
+        if (d < L0)                  s = due[i] & (L0 - 1);
+        else if (d < 1 << L2_SHIFT)  s = L1_BASE + ((due[i] >>> L1_SHIFT) & (L1 - 1));
+        else                         s = L2_BASE + ((due[i] >>> L2_SHIFT) & (L2 - 1));
+        slot[i] = s;
+        next[i] = -1;
+        prev[i] = tail[s];
+        if (tail[s] >= 0) next[tail[s]] = i;
+        else head[s] = i;
+        tail[s] = i;
+    }
+
+    private void unlink(int i) {
+        int s = slot[i];
+        if (prev[i] >= 0) next[prev[i]] = next[i]; else head[s] = next[i];
+        if (next[i] >= 0) prev[next[i]] = prev[i]; else tail[s] = prev[i];
+    }
+
+    /** Índice del nodo si el handle sigue vivo, o -1. */
+    private int live(int handle) {
+        if (handle == NONE) return -1;
+        int i = handle & INDEX_MASK;
+        if (i >= used || slot[i] < 0 || gen[i] != (handle >>> INDEX_BITS)) return -1;
+        return i;
+    }
+
+    private int allocate() {
+        if (free >= 0) {
+            int i = free;
+            free = next[i];
+            return i;
+        }
+        if (used == listener.length) grow();
+        int i = used++;
+        gen[i] = 1;
+        return i;
+    }
+
+    private void release(int i) {
+        listener[i] = null;
+        slot[i] = -1;
+        gen[i] = (gen[i] & GEN_MASK) + 1;          // invalida los handles viejos
+        if (gen[i] > GEN_MASK) gen[i] = 1;         // 0 queda reservado (NONE)
+        next[i] = free;
+        free = i;
+        pending--;
+    }
+
+    private void grow() {
+        if (listener.length > INDEX_MASK) throw new IllegalStateException("demasiados temporizadores");
+        int cap = Math.min(listener.length * 2, INDEX_MASK + 1);
+        listener = Arrays.copyOf(listener, cap);
+        kind = Arrays.copyOf(kind, cap);
+        due = Arrays.copyOf(due, cap);
+        next = Arrays.copyOf(next, cap);
+        prev = Arrays.copyOf(prev, cap);
+        slot = Arrays.copyOf(slot, cap);
+        gen = Arrays.copyOf(gen, cap);
+    }
+}
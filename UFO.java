@@ -1,21 +1,22 @@
 import greenfoot.*;   // Actor, World, GreenfootImage, Greenfoot
-import java.util.List;
 import java.util.Random;
 
 /**
  * OVNI enemigo:
  * - Se desplaza lateralmente (L->R o R->L) con leve deriva vertical.
- * - Dispara hacia el Player con precisión configurable (ruido angular).
+ * - Dispara hacia el Player con precisión configurable (ruido angular), sólo
+ *   si ningún asteroide tapa la línea de tiro (CollisionSystem.raycast).
  * - TTL (desaparece tras un tiempo) y wrapping opcional.
- * - Muere si lo golpea una Bullet del jugador (otorga puntos).
+ * - Muere si lo golpea una Bullet del jugador (otorga puntos) o si lo embiste la nave.
  * - Si choca con un Asteroid, ambos se destruyen (sin puntos).
+ * - Los choques los detecta CollisionSystem; aquí sólo se responde a ellos.
  *
  * Requiere:
  *  - AsteroidsWorld con rng() y addScore(int).
- *  - PlayerShip (para apuntar) y Bullet (del jugador).
+ *  - CollisionSystem.nearest (para apuntar a la nave más cercana) y Bullet (del jugador).
  *  - EnemyBullet (definida más abajo) para golpear al jugador.
  */
-public class UFO extends Actor {
+public class UFO extends SpriteActor implements TimerWheel.Listener {
 
     public static enum Type { LARGE, SMALL } // clásico: LARGE=200 pts, SMALL=1000 pts
 
@@ -31,20 +32,25 @@ public class UFO extends Actor {
     private static final int FIRE_MAX = 95;
     private static final double ENEMY_BULLET_SPEED = 7.0;
     private static final int    ENEMY_BULLET_TTL   = 120;
+    private static final int    SIGHT_RETRY = 12;  // sin línea de tiro: vuelve a mirar en 12 frames
 
     // Precisión: 0.0=aleatorio, 1.0=perfecto. El ruido angular se escala con (1-acc).
     // Ruido base en grados: LARGE ~25°, SMALL ~8° (aprox)
     private static final double NOISE_DEG_LARGE = 25.0;
     private static final double NOISE_DEG_SMALL = 8.0;
 
+    private static final int FIRE = 0, EXPIRE = 1;   // tipos de temporizador
+
     // ---- Estado dinámico ----
     private final Type type;
     private double accuracy;       // 0..1
-    private int ttl = TTL_FRAMES;
+    private int lifeTimer = TimerWheel.NONE;   // TTL (TimerWheel del mundo)
 
     private double x, y;           // posición subpíxel
     private double vx, vy;         // velocidad
-    private int fireCd = 0;        // cooldown de disparo
+    private int fireTimer = TimerWheel.NONE;   // cooldown de disparo
+    private boolean fireDue = false;           // venció: dispara en el próximo act
+    private final RayHits sight = new RayHits(1); // buffer de la consulta de línea de tiro
 
     // Direcciones y RNG
     private boolean leftToRight;   // true si entra por la izquierda
@@ -53,7 +59,7 @@ public class UFO extends Actor {
     public UFO(Type type, double accuracy) {
         this.type = type;
         this.accuracy = clamp01(accuracy);
-        buildSprite();
+        setImage(Assets.ufo(type)); // sprite compartido
     }
 
     @Override
@@ -78,7 +84,27 @@ public class UFO extends Actor {
         vy = rngRange(-DRIFT_Y, DRIFT_Y);
 
         // Primer disparo en un rango aleatorio inicial
-        fireCd = rng.nextInt(FIRE_MAX - FIRE_MIN + 1) + FIRE_MIN;
+        TimerWheel timers = world.timers();
+        fireTimer = timers.schedule(this, FIRE, rng.nextInt(FIRE_MAX - FIRE_MIN + 1) + FIRE_MIN);
+        lifeTimer = timers.schedule(this, EXPIRE, TTL_FRAMES);
+    }
+
+    @Override
+    public void onTimer(int kind) {
+        if (kind == FIRE) {
+            fireTimer = TimerWheel.NONE;
+            fireDue = true;         // se dispara desde act, ya movido
+        } else {
+            lifeTimer = TimerWheel.NONE;
+            if (getWorld() != null) getWorld().removeObject(this);
+        }
+    }
+
+    @Override
+    void stopTimers(TimerWheel timers) {
+        timers.cancel(fireTimer);
+        timers.cancel(lifeTimer);
+        fireTimer = lifeTimer = TimerWheel.NONE;
     }
 
     @Override
@@ -96,54 +122,39 @@ public class UFO extends Actor {
 
         setLocation((int)Math.round(x), (int)Math.round(y));
 
-        // 2) Disparo
-        if (fireCd > 0) fireCd--;
-        if (fireCd == 0) {
-            shootAtPlayer();
-            fireCd = rng.nextInt(FIRE_MAX - FIRE_MIN + 1) + FIRE_MIN;
-        }
-
-        // 3) Ser golpeado por balas del jugador
-        Actor maybeBullet = getOneIntersectingObject(Bullet.class);
-        if (maybeBullet != null) {
-            Bullet b = (Bullet) maybeBullet;
-            if (b.getOwner() instanceof PlayerShip) {
-                onKilledByPlayerBullet(b);
-                return;
-            }
+        // 2) Disparo (cuando vence la recarga)
+        if (fireDue) {
+            fireDue = false;
+            int cd = shootAtPlayer() ? rng.nextInt(FIRE_MAX - FIRE_MIN + 1) + FIRE_MIN : SIGHT_RETRY;
+            fireTimer = ((AsteroidsWorld) getWorld()).timers().schedule(this, FIRE, cd);
         }
 
-        // 4) Choque contra asteroides (ambos fuera, sin puntos)
-        Actor rock = getOneIntersectingObject(Asteroid.class);
-        if (rock != null) {
-            if (getWorld() != null) {
-                getWorld().removeObject(rock); // no hace split: caos emergente
-                Particles.spawnExplosion(getWorld(), getX(), getY(), 16);                
-                getWorld().removeObject(this);
-            }
-            return;
-        }
-
-        // 5) TTL
-        ttl--;
-        if (ttl <= 0 && getWorld() != null) {
-            getWorld().removeObject(this);
-        }
+        // 3) Balas del jugador, asteroides y la nave: los detecta CollisionSystem
+        // 4) El TTL vence en la TimerWheel (onTimer)
     }
 
     /* ====================== Disparo y muerte ====================== */
 
-    private void shootAtPlayer() {
-        List<PlayerShip> players = getWorld().getObjects(PlayerShip.class);
-        if (players.isEmpty()) return;
+    /** Dispara hacia la nave más cercana; false si no hay naves o un asteroide tapa la línea. */
+    private boolean shootAtPlayer() {
+        AsteroidsWorld world = (AsteroidsWorld) getWorld();
+        Actor p = world.collisions().nearest(x, y, CollisionLayer.SHIP.bit());
+        if (p == null) return false;
 
-        PlayerShip p = players.get(0);
         double tx = p.getX();
         double ty = p.getY();
 
         // Vector al jugador
         double dx = tx - x;
         double dy = ty - y;
+
+        // Línea de tiro: basta el primer asteroide entre ambos (sight tiene capacidad 1)
+        double dist = Math.hypot(dx, dy);
+        if (world.collisions().raycast(x, y, dx, dy, dist, CollisionLayer.ROCK.bit(), sight) > 0) {
+            sight.clear();
+            return false;
+        }
+
         double ang = Math.atan2(dy, dx); // en radianes
 
         // Aplica ruido angular según precisión y tipo
@@ -156,12 +167,15 @@ public class UFO extends Actor {
         double bvx = Math.cos(shootAng) * ENEMY_BULLET_SPEED;
         double bvy = Math.sin(shootAng) * ENEMY_BULLET_SPEED;
 
-        EnemyBullet eb = new EnemyBullet(bvx, bvy, ENEMY_BULLET_TTL, this);
+        EnemyBullet eb = ((AsteroidsWorld) getWorld()).enemyBulletPool().acquire()
+                            .reset(bvx, bvy, ENEMY_BULLET_TTL, this);
         getWorld().addObject(eb, (int)Math.round(x), (int)Math.round(y));
-        Greenfoot.playSound("ufo_shoot.wav"); // opcional
+        ((AsteroidsWorld) getWorld()).events().sound("ufo_shoot.wav"); // opcional
+        return true;
     }
 
-    private void onKilledByPlayerBullet(Bullet playerBullet) {
+    /** Muerte por bala del jugador (lo llama GameEvents al resolver UFO_KILLED). */
+    void onKilledByPlayerBullet(Bullet playerBullet) {
         AsteroidsWorld world = (AsteroidsWorld) getWorld();
         if (world == null) return;
 
@@ -169,34 +183,44 @@ public class UFO extends Actor {
         world.addScore(type == Type.SMALL ? PTS_SMALL : PTS_LARGE);
 
         // Quita bala y OVNI
-        if (playerBullet.getWorld() != null) playerBullet.getWorld().removeObject(playerBullet);
-        Particles.spawnExplosion(getWorld(), getX(), getY(), (type == Type.SMALL) ? 14 : 18);        
+        world.removeObject(playerBullet);
+        world.events().explosion(getX(), getY(), (type == Type.SMALL) ? 14 : 18);
         world.removeObject(this);
 
-        Greenfoot.playSound("ufo_explode.wav"); // opcional
+        world.events().sound("ufo_explode.wav"); // opcional
+        world.log(Telemetry.UFO_KILL, type.ordinal(), 0);
     }
 
-    /* ====================== Visual ====================== */
-
-    private void buildSprite() {
-        // Saucer simple: disco + cúpula; SMALL más compacto
-        boolean small = (type == Type.SMALL);
-        int w = small ? 28 : 40;
-        int h = small ? 14 : 18;
-
-        GreenfootImage img = new GreenfootImage(w, h);
-        img.setColor(new Color(190, 190, 190));
-        img.fillOval(0, h/3, w-1, h-1);             // plato
-        img.setColor(new Color(230, 230, 230));
-        img.fillOval(w/4, 0, w/2, h/2);             // cúpula
-        img.setColor(new Color(120, 120, 120));
-        img.drawOval(0, h/3, w-1, h-1);
-        img.drawOval(w/4, 0, w/2, h/2);
-        setImage(img);
+    /** Choque con un asteroide: ambos fuera, sin puntos (lo llama GameEvents al resolver UFO_CRASH). */
+    void onCrashInto(Asteroid rock) {
+        AsteroidsWorld world = (AsteroidsWorld) getWorld();
+        if (world == null) return;
+        world.log(Telemetry.UFO_KILL, type.ordinal(), 1);
+        world.removeObject(rock); // no hace split: caos emergente
+        world.events().explosion(getX(), getY(), 16);
+        world.removeObject(this);
+    }
+
+    /** Embestido por la nave: ambos caen; da los puntos igual (lo llama GameEvents al resolver UFO_RAMMED). */
+    void onRammedBy(PlayerShip ship) {
+        AsteroidsWorld world = (AsteroidsWorld) getWorld();
+        if (world == null) return;
+        world.addScore(type == Type.SMALL ? PTS_SMALL : PTS_LARGE);
+        world.log(Telemetry.UFO_KILL, type.ordinal(), 2);
+        world.events().explosion(getX(), getY(), (type == Type.SMALL) ? 14 : 18);
+        world.removeObject(this);
+        world.events().sound("ufo_explode.wav");
     }
 
     /* ====================== Utilidades ====================== */
 
+    public Type getType() { return type; }
+
+    /** Radio de colisión aproximado (semiancho del plato). */
+    int hitRadius() {
+        return (type == Type.SMALL) ? 12 : 18;
+    }
+
     private double rngRange(double a, double b) {
         return a + rng.nextDouble() * (b - a);
     }
@@ -0,0 +1,127 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Director de oleadas: decide cuánto y cuándo aparece, con un tope fijo de
+ * entidades vivas para que el costo por frame no dependa de la oleada.
+ * - Cada oleada tiene una cuota de rocas grandes que crece linealmente.
+ * - Al inicio sólo se lanza una parte; el resto llega como refuerzos a mitad
+ *   de oleada, a medida que se destruyen rocas y hay presupuesto libre.
+ * - El presupuesto se mide en actores "potenciales": una L puede acabar en
+ *   1 + 2 + 4 = 7 actores, una M en 3 y una S en 1.
+ * - La dificultad sube por velocidad de las rocas, frecuencia y precisión de
+ *   los OVNIs y ritmo de refuerzos, no por cantidad.
+ *
+ * Lo posee AsteroidsWorld: beginWave() al lanzar cada oleada y tick() una vez por frame.
+ */
+public final class WaveDirector {
+
+    // --------- Presupuesto ---------
+    /** Actores potenciales vivos como máximo (rocas; los OVNIs cuentan aparte). */
+    public static final int LIVE_BUDGET = 42;           // 6 rocas L completas
+    private static final int POT_L = 7, POT_M = 3, POT_S = 1;
+
+    // --------- Curvas de dificultad (ajustables) ---------
+    private static final int    QUOTA_BASE = 5;         // L en oleada 1 (como antes)
+    private static final int    QUOTA_PER_WAVE = 2;
+    private static final int    QUOTA_MAX = 40;
+    private static final int    OPENING_MAX = 6;        // L lanzadas de entrada
+    private static final double SPEED_PER_WAVE = 0.06;  // +6% de velocidad por oleada
+    private static final double SPEED_MAX = 2.0;
+    private static final int    REINFORCE_MIN_FRAMES = 30;
+    private static final int    REINFORCE_MAX_FRAMES = 120;
+    private static final int    UFO_FIRST_WAVE = 2;     // desde aquí hay OVNIs a mitad de oleada
+    private static final int    UFO_MIN_GAP = 6 * 60;   // frames entre OVNIs (mínimo)
+    private static final int    UFO_MAX_GAP = 20 * 60;
+
+    // --------- Estado de la oleada actual ---------
+    private int wave = 0;
+    private int quota = 0;           // rocas L que faltan por enviar en esta oleada
+    private int reinforceCd = 0;
+    private int ufoCd = 0;
+
+    /** Prepara la oleada y devuelve cuántas rocas L lanzar de entrada. */
+    public int beginWave(int wave, Random rng) {
+        this.wave = wave;
+        this.quota = Math.min(QUOTA_MAX, QUOTA_BASE + QUOTA_PER_WAVE * (wave - 1));
+        this.reinforceCd = reinforceGap();
+        this.ufoCd = (wave >= UFO_FIRST_WAVE) ? ufoGap(rng) : 0;
+        int opening = Math.min(quota, OPENING_MAX);
+        quota -= opening;
+        return opening;
+    }
+
+    /**
+     * Una vez por frame: envía refuerzos si hay presupuesto y cuota, y OVNIs
+     * según la frecuencia de la oleada.
+     */
+    public void tick(AsteroidsWorld world) {
+        if (wave == 0) return;
+
+        if (reinforceCd > 0) reinforceCd--;
+        if (quota > 0 && reinforceCd == 0
+            && livePotential(world.asteroids()) + POT_L <= LIVE_BUDGET) {
+            quota--;
+            reinforceCd = reinforceGap();
+            world.spawnReinforcement();
+        }
+
+        if (ufoCd > 0 && --ufoCd == 0) {
+            if (world.getUfoCount() < maxUfos()) world.spawnUfo();
+            ufoCd = ufoGap(world.rng());
+        }
+    }
+
+    /** ¿Ya se enviaron todas las rocas de la oleada? */
+    public boolean isExhausted() { return quota == 0; }
+
+    public int remainingQuota() { return quota; }
+
+    /* ================== Parámetros que consultan los actores ================== */
+
+    /** Multiplicador de velocidad de las rocas (también de los fragmentos). */
+    public double rockSpeedScale() {
+        return Math.min(SPEED_MAX, 1.0 + SPEED_PER_WAVE * Math.max(0, wave - 1));
+    }
+
+    /** Tipo de OVNI: los pequeños (precisos) aparecen desde la oleada 4. */
+    public UFO.Type ufoType(Random rng) {
+        return (wave >= 4 && rng.nextBoolean()) ? UFO.Type.SMALL : UFO.Type.LARGE;
+    }
+
+    public double ufoAccuracy(UFO.Type type) {
+        double acc = (type == UFO.Type.SMALL) ? 0.65 + 0.1 * wave : 0.30 + 0.07 * wave;
+        return Math.min(0.95, acc);
+    }
+
+    /** Probabilidad de OVNI al abrir la oleada (antes 15% fijo). */
+    public double openingUfoChance() {
+        return Math.min(0.5, 0.15 + 0.03 * (wave - 1));
+    }
+
+    /* ================== Utilidades ================== */
+
+    /** Actores en que pueden acabar las rocas vivas si se destruyen todas. */
+    static int livePotential(List<Asteroid> rocks) {
+        int total = 0;
+        for (int i = 0; i < rocks.size(); i++) {
+            switch (rocks.get(i).getSizeType()) {
+                case LARGE:  total += POT_L; break;
+                case MEDIUM: total += POT_M; break;
+                default:     total += POT_S; break;
+            }
+        }
+        return total;
+    }
+
+    private int maxUfos() { return (wave >= 8) ? 2 : 1; }
+
+    private int reinforceGap() {
+        return Math.max(REINFORCE_MIN_FRAMES, REINFORCE_MAX_FRAMES - 6 * wave);
+    }
+
+    private int ufoGap(Random rng) {
+        int gap = Math.max(UFO_MIN_GAP, UFO_MAX_GAP - 60 * wave);
+        return gap + rng.nextInt(gap / 2 + 1);
+    }
+}
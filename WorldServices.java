@@ -0,0 +1,69 @@
+import greenfoot.*;  // GreenfootImage
+
+/**
+ * Lo que un AsteroidsWorld recibe de afuera y no es la partida: entrada,
+ * telemetría, métricas, caja negra, sonido, fondo y opciones de pantalla.
+ * El mundo usa lo que le den sin preguntar de dónde viene; la simulación es la
+ * misma con unos u otros (mismo RNG, mismo orden).
+ * - standalone(): la partida de Greenfoot. Teclado, telemetría, métricas y caja
+ *   negra son uno por JVM (abrir uno cierra el del mundo anterior); sonido y
+ *   opciones -D de dibujo, captura y espectadores.
+ * - hosted(input, backdrop): una sesión de SessionHost. Entrada propia, fondo
+ *   compartido y nada de lo demás.
+ * - headless(): herramientas sin interfaz (FrameFuzzer). Sin teclado ni nada
+ *   de lo demás: no toca la partida de Greenfoot que esté corriendo.
+ */
+final class WorldServices {
+
+    final InputQueue input;
+    final Telemetry telemetry;
+    final Metrics metrics;
+    final FlightRecorder flight;
+    final boolean sound;
+    final GreenfootImage backdrop;   // null = el mundo pinta el suyo
+
+    // --------- Opciones de pantalla (se aplican al construir el mundo) ---------
+    final boolean batchRendering;
+    final int renderScale;           // % (100 = resolución completa)
+    final boolean capture;
+    final int spectatorPort;         // 0 = sin espectadores
+
+    private WorldServices(InputQueue input, Telemetry telemetry, Metrics metrics, FlightRecorder flight,
+                          boolean sound, GreenfootImage backdrop,
+                          boolean batchRendering, int renderScale, boolean capture, int spectatorPort) {
+        this.input = input;
+        this.telemetry = telemetry;
+        this.metrics = metrics;
+        this.flight = flight;
+        this.sound = sound;
+        this.backdrop = backdrop;
+        this.batchRendering = batchRendering;
+        this.renderScale = renderScale;
+        this.capture = capture;
+        this.spectatorPort = spectatorPort;
+    }
+
+    /** Partida de Greenfoot: abre lo que es uno por JVM y lee las opciones -D. */
+    static WorldServices standalone() {
+        return new WorldServices(InputQueue.open(), Telemetry.openSession(), Metrics.openEndpoint(),
+                                 FlightRecorder.open(AsteroidsWorld.WIDTH, AsteroidsWorld.HEIGHT), true, null,
+                                 "batch".equalsIgnoreCase(System.getProperty("asteroids.render", "")),
+                                 Integer.getInteger("asteroids.renderScale", 100),
+                                 "on".equalsIgnoreCase(System.getProperty("asteroids.capture", "")),
+                                 Integer.getInteger("asteroids.spectate", 0));
+    }
+
+    /**
+     * Sesión de SessionHost: la entrada es suya (remote) y el fondo, el de todas;
+     * sin sonido ni nada que sea uno por JVM.
+     */
+    static WorldServices hosted(InputQueue input, GreenfootImage sharedBackdrop) {
+        return new WorldServices(input, Telemetry.DISABLED, Metrics.DISABLED, FlightRecorder.DISABLED, false,
+                                 sharedBackdrop, false, 100, false, 0);
+    }
+
+    /** Mundo para herramientas: entrada remote() que nadie alimenta, fondo propio, sin sonido. */
+    static WorldServices headless() {
+        return hosted(InputQueue.remote(), null);
+    }
+}